@@ -0,0 +1,256 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.jboss.pressgang.ccms.wrapper.CSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedCSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedContentSpecWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+
+/**
+ * Generates the synthetic inputs used by the benchmarks. The PressGang entities are stubbed using dynamic proxies, so the
+ * benchmarks only measure the tools own code and not any REST calls.
+ */
+public class BenchmarkData {
+    private static final String LOCALE = "en-US";
+    /**
+     * The number of old revisions that each topic has been pushed to Zanata for.
+     */
+    private static final int REVISIONS_PER_TOPIC = 4;
+    /**
+     * One in this many topics is pushed with a condition.
+     */
+    private static final int CONDITION_FREQUENCY = 10;
+    /**
+     * One in this many topics hasn't changed since the old content spec was pushed.
+     */
+    private static final int UNCHANGED_FREQUENCY = 3;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generate a shuffled list of Zanata document ids, made up of several revisions for each topic.
+     *
+     * @param size The number of ids to generate.
+     * @param seed The seed for the random number generator, so that runs are repeatable.
+     * @return The generated ids.
+     */
+    public static List<String> createZanataIds(final int size, final long seed) {
+        final Random random = new Random(seed);
+        final List<String> zanataIds = new ArrayList<String>(size);
+        for (int i = 0; zanataIds.size() < size; i++) {
+            final int topicId = i / REVISIONS_PER_TOPIC + 1;
+            final int revision = random.nextInt(100000) + 1;
+            if (topicId % CONDITION_FREQUENCY == 0) {
+                zanataIds.add(topicId + "-" + revision + "-" + (random.nextInt(10000) + 1));
+            } else {
+                zanataIds.add(topicId + "-" + revision);
+            }
+        }
+
+        Collections.shuffle(zanataIds, random);
+        return zanataIds;
+    }
+
+    /**
+     * Generate the old Zanata ids for a content spec, where every topic has been pushed for several revisions.
+     *
+     * @param numTopics The number of topics in the content spec.
+     * @return The old Zanata ids.
+     */
+    public static Set<String> createOldZanataIds(final int numTopics) {
+        final Set<String> zanataIds = new LinkedHashSet<String>();
+        for (int i = 1; i <= REVISIONS_PER_TOPIC; i++) {
+            zanataIds.add("CS1-" + (i * 100));
+        }
+        for (int topicId = 1; topicId <= numTopics; topicId++) {
+            for (int i = 1; i <= REVISIONS_PER_TOPIC; i++) {
+                zanataIds.add(topicId + "-" + (i * 100));
+            }
+        }
+
+        return zanataIds;
+    }
+
+    /**
+     * Generate the new Zanata ids for a content spec, where some of the topics haven't changed since the old ids were pushed.
+     *
+     * @param numTopics The number of topics in the content spec.
+     * @return The new Zanata ids.
+     */
+    public static Set<String> createNewZanataIds(final int numTopics) {
+        final Set<String> zanataIds = new LinkedHashSet<String>();
+        zanataIds.add("CS1-" + ((REVISIONS_PER_TOPIC + 1) * 100));
+        for (int topicId = 1; topicId <= numTopics; topicId++) {
+            final int revision = topicId % UNCHANGED_FREQUENCY == 0 ? REVISIONS_PER_TOPIC : REVISIONS_PER_TOPIC + 1;
+            zanataIds.add(topicId + "-" + (revision * 100));
+        }
+
+        return zanataIds;
+    }
+
+    /**
+     * Create a frozen translated content spec, where every topic is fixed to a revision.
+     *
+     * @param numTopics The number of topics in the content spec.
+     * @return The stubbed translated content spec.
+     */
+    public static TranslatedContentSpecWrapper createTranslatedContentSpec(final int numTopics) {
+        final List<TranslatedCSNodeWrapper> translatedNodes = new ArrayList<TranslatedCSNodeWrapper>(numTopics);
+        for (int topicId = 1; topicId <= numTopics; topicId++) {
+            final Map<String, Object> csNode = new HashMap<String, Object>();
+            csNode.put("getId", topicId);
+            csNode.put("getEntityId", topicId);
+            csNode.put("getEntityRevision", topicId * 10);
+            csNode.put("getNodeType", CommonConstants.CS_NODE_TOPIC);
+
+            final Map<String, Object> translatedNode = new HashMap<String, Object>();
+            translatedNode.put("getId", topicId);
+            translatedNode.put("getNodeId", topicId);
+            translatedNode.put("getNodeRevision", 1);
+            translatedNode.put("getCSNode", stub(CSNodeWrapper.class, csNode));
+            translatedNodes.add(stub(TranslatedCSNodeWrapper.class, translatedNode));
+        }
+
+        final Map<String, Object> contentSpec = new HashMap<String, Object>();
+        contentSpec.put("getId", 1);
+        contentSpec.put("getRevision", 1);
+        contentSpec.put("getZanataId", "CS1-" + numTopics);
+        contentSpec.put("getTranslatedNodes", collection(translatedNodes));
+        return stub(TranslatedContentSpecWrapper.class, contentSpec);
+    }
+
+    /**
+     * Create a topic provider that creates a new topic, that has been pushed to Zanata, every time a topic is requested.
+     *
+     * @return The stubbed topic provider.
+     */
+    public static TopicProvider createTopicProvider() {
+        return (TopicProvider) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[]{TopicProvider.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getTopic") && args != null && args.length == 2 && args[1] != null) {
+                            return createTopic((Integer) args[0], (Integer) args[1]);
+                        } else if (CollectionWrapper.class.isAssignableFrom(method.getReturnType())) {
+                            return collection(Collections.emptyList());
+                        } else {
+                            return defaultValue(method.getReturnType());
+                        }
+                    }
+                });
+    }
+
+    private static TopicWrapper createTopic(final Integer topicId, final Integer topicRevision) {
+        final Map<String, Object> translatedTopic = new HashMap<String, Object>();
+        translatedTopic.put("getId", topicId);
+        translatedTopic.put("getTopicId", topicId);
+        translatedTopic.put("getTopicRevision", topicRevision);
+        translatedTopic.put("getLocale", LOCALE);
+        translatedTopic.put("getZanataId", topicId + "-" + topicRevision);
+
+        final Map<String, Object> topic = new HashMap<String, Object>();
+        topic.put("getId", topicId);
+        topic.put("getRevision", topicRevision);
+        topic.put("getLocale", LOCALE);
+        topic.put("getTranslatedTopics", collection(Collections.singletonList(stub(TranslatedTopicWrapper.class, translatedTopic))));
+        return stub(TopicWrapper.class, topic);
+    }
+
+    /**
+     * Create a stub for an interface, that returns the values for its methods from a map of method names to values. Methods that
+     * aren't in the map return null, zero or false.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(final Class<T> type, final Map<String, Object> values) {
+        return (T) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                final String name = method.getName();
+                if (name.equals("equals") && args != null && args.length == 1) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode") && args == null) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("toString") && args == null) {
+                    return type.getSimpleName() + values;
+                }
+
+                final Object value = values.get(name);
+                final Class<?> returnType = method.getReturnType();
+                if (value == null) {
+                    return defaultValue(returnType);
+                } else if (value instanceof String && returnType.isInterface()) {
+                    // Some entities (ie locales) are wrappers in some versions of PressGang, so wrap the value
+                    final Map<String, Object> wrappedValue = new HashMap<String, Object>();
+                    wrappedValue.put("getValue", value);
+                    wrappedValue.put("getTranslationValue", value);
+                    return stub(returnType, wrappedValue);
+                } else {
+                    return value;
+                }
+            }
+        });
+    }
+
+    /**
+     * Create a stubbed collection wrapper for a list of items.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CollectionWrapper<T> collection(final List<T> items) {
+        return (CollectionWrapper<T>) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(),
+                new Class<?>[]{CollectionWrapper.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                final String name = method.getName();
+                if (name.equals("getItems") || name.equals("getUnchangedItems")) {
+                    return items;
+                } else if (name.equals("size")) {
+                    return items.size();
+                } else if (name.equals("isEmpty")) {
+                    return items.isEmpty();
+                } else {
+                    return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == Boolean.TYPE) {
+            return false;
+        } else if (type == Integer.TYPE) {
+            return 0;
+        } else if (type == Long.TYPE) {
+            return 0L;
+        } else if (type == Double.TYPE) {
+            return 0D;
+        } else if (type == Float.TYPE) {
+            return 0F;
+        } else if (type == Short.TYPE) {
+            return (short) 0;
+        } else if (type == Byte.TYPE) {
+            return (byte) 0;
+        } else if (type == Character.TYPE) {
+            return (char) 0;
+        } else if (CollectionWrapper.class.isAssignableFrom(type)) {
+            return collection(Collections.emptyList());
+        } else {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * The tools log their progress, which would skew the benchmark results, so only warnings and errors are logged while benchmarking.
+ */
+public class BenchmarkLogging {
+    private BenchmarkLogging() {
+    }
+
+    public static void disable() {
+        Logger.getLogger(Utilities.class).setLevel(Level.WARN);
+        Logger.getLogger(TranslationCopyTool.class).setLevel(Level.WARN);
+    }
+}
@@ -0,0 +1,51 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures mapping the new Zanata ids of a content spec to the old Zanata ids they should copy their translations from, which is
+ * the part of {@link TranslationCopyTool#collectOldIds} that doesn't talk to PressGang.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectOldIdsBenchmark {
+    /**
+     * The number of topics in the content spec. Each topic has several old ids, so the number of old ids is a few times larger.
+     */
+    @Param({"100", "1000", "10000", "100000", "500000"})
+    private int size;
+
+    private Set<String> newZanataIds;
+    private Set<String> oldZanataIds;
+
+    @Setup
+    public void setup() {
+        BenchmarkLogging.disable();
+        newZanataIds = BenchmarkData.createNewZanataIds(size);
+        oldZanataIds = BenchmarkData.createOldZanataIds(size);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> mapOldIds() {
+        return TranslationCopyTool.mapOldIds(newZanataIds, oldZanataIds);
+    }
+}
@@ -0,0 +1,58 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TranslatedContentSpecWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures discovering the Zanata ids of a frozen translated content spec, using a stubbed topic provider. Each invocation starts
+ * with an empty topic cache, so every topic has to be "downloaded".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetZanataIdsBenchmark {
+    /**
+     * The number of topics in the content spec.
+     */
+    @Param({"100", "1000", "10000", "100000", "500000"})
+    private int size;
+
+    private TopicProvider topicProvider;
+    private TranslatedContentSpecWrapper translatedContentSpec;
+
+    @Setup
+    public void setup() {
+        BenchmarkLogging.disable();
+        topicProvider = BenchmarkData.createTopicProvider();
+        translatedContentSpec = BenchmarkData.createTranslatedContentSpec(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTopicCache() {
+        Utilities.getTopicCache().clear();
+        Utilities.getPushedTopicCache().clear();
+    }
+
+    @Benchmark
+    public Set<String> getZanataIds() {
+        return Utilities.getZanataIds(topicProvider, translatedContentSpec, true);
+    }
+}
@@ -0,0 +1,53 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sorting and indexing a shuffled set of Zanata document ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZanataIdSortBenchmark {
+    @Param({"100", "1000", "10000", "100000", "500000"})
+    private int size;
+
+    private List<String> zanataIds;
+    private String[] zanataIdArray;
+    private final ZanataIdSort zanataIdSort = new ZanataIdSort();
+
+    @Setup
+    public void setup() {
+        zanataIds = BenchmarkData.createZanataIds(size, 42L);
+        zanataIdArray = zanataIds.toArray(new String[zanataIds.size()]);
+    }
+
+    @Benchmark
+    public String[] sortZanataIds() {
+        final String[] sortedZanataIds = zanataIdArray.clone();
+        Arrays.sort(sortedZanataIds, zanataIdSort);
+        return sortedZanataIds;
+    }
+
+    @Benchmark
+    public ZanataDocumentIdIndex indexZanataIds() {
+        return new ZanataDocumentIdIndex(zanataIds);
+    }
+}
@@ -0,0 +1,150 @@
+package org.jboss.pressgang.ccms.zanata.standin;
+
+/**
+ * The settings for a {@link StandInServer}. Latency applies to every request, while errors and throttling are only injected into
+ * Zanata requests, as Zanata is the server that throttles the tools in production.
+ */
+public class StandInConfig {
+    private int port = 0;
+    private int serverThreads = 16;
+    private long latencyMillis = 20;
+    private long latencyJitterMillis = 10;
+    private double errorRate = 0;
+    private double throttleRate = 0;
+    private int retryAfterSeconds = 1;
+    private long copyTransMillis = 200;
+    private int numTopics = 1000;
+    private int numTextFlows = 20;
+    private String[] locales = new String[]{"de", "es", "fr", "ja", "zh-Hans"};
+    private boolean legacyServerSettings = false;
+    private boolean rejectCompressedRequests = false;
+
+    /**
+     * @return The port to listen on, or 0 to use any free port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(final int port) {
+        this.port = port;
+    }
+
+    public int getServerThreads() {
+        return serverThreads;
+    }
+
+    public void setServerThreads(final int serverThreads) {
+        this.serverThreads = serverThreads;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(final long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public void setLatencyJitterMillis(final long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    /**
+     * @return The fraction of Zanata requests that fail with a 500 response.
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @return The fraction of Zanata requests that are throttled with a 429 response.
+     */
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    public void setThrottleRate(final double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(final int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return How long a CopyTrans run takes to complete.
+     */
+    public long getCopyTransMillis() {
+        return copyTransMillis;
+    }
+
+    public void setCopyTransMillis(final long copyTransMillis) {
+        this.copyTransMillis = copyTransMillis;
+    }
+
+    /**
+     * @return The number of topics in the generated content spec.
+     */
+    public int getNumTopics() {
+        return numTopics;
+    }
+
+    public void setNumTopics(final int numTopics) {
+        this.numTopics = numTopics;
+    }
+
+    /**
+     * @return The number of text flows in each generated Zanata document.
+     */
+    public int getNumTextFlows() {
+        return numTextFlows;
+    }
+
+    public void setNumTextFlows(final int numTextFlows) {
+        this.numTextFlows = numTextFlows;
+    }
+
+    public String[] getLocales() {
+        return locales;
+    }
+
+    public void setLocales(final String[] locales) {
+        this.locales = locales;
+    }
+
+    /**
+     * @return True if the server settings should list the locales as plain strings, as older versions of PressGang did.
+     */
+    public boolean isLegacyServerSettings() {
+        return legacyServerSettings;
+    }
+
+    public void setLegacyServerSettings(final boolean legacyServerSettings) {
+        this.legacyServerSettings = legacyServerSettings;
+    }
+
+    /**
+     * @return True if gzip compressed request bodies should be rejected with a 415 response, like a server that doesn't support
+     *         them.
+     */
+    public boolean isRejectCompressedRequests() {
+        return rejectCompressedRequests;
+    }
+
+    public void setRejectCompressedRequests(final boolean rejectCompressedRequests) {
+        this.rejectCompressedRequests = rejectCompressedRequests;
+    }
+}
@@ -0,0 +1,333 @@
+package org.jboss.pressgang.ccms.zanata.standin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The generated data served by a {@link StandInServer}. The dataset is made up of a single content spec (id 1) that has been
+ * translated twice:
+ * <ul>
+ * <li>Translated content spec 1 is revision {@link #OLD_REVISION} of the content spec, and every topic is fixed to its old
+ * revision. The Zanata documents for this revision are fully translated.</li>
+ * <li>Translated content spec 2 is revision {@link #NEW_REVISION} of the content spec, and every topic is fixed to its new
+ * revision. The Zanata documents for this revision have no translations.</li>
+ * </ul>
+ * So copying translations from CS1-100 to CS1-200 copies every document and locale.
+ */
+public class StandInDataset {
+    public static final int CONTENT_SPEC_ID = 1;
+    public static final int OLD_REVISION = 100;
+    public static final int NEW_REVISION = 200;
+    public static final String ZANATA_NAMESPACE = "http://zanata.org/namespace/api/";
+    private static final String SOURCE_LOCALE = "en-US";
+
+    private final StandInConfig config;
+    /**
+     * The translations held by Zanata, keyed by document id and then locale.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Map<String, Target>>> translations = new ConcurrentHashMap<String,
+            ConcurrentMap<String, Map<String, Target>>>();
+
+    public StandInDataset(final StandInConfig config) {
+        this.config = config;
+        reset();
+    }
+
+    /**
+     * Reset the Zanata translations back to their initial state, so that each tool run starts with the same data.
+     */
+    public void reset() {
+        translations.clear();
+        for (final String zanataId : getZanataIds(OLD_REVISION)) {
+            final ConcurrentMap<String, Map<String, Target>> localeTranslations = new ConcurrentHashMap<String, Map<String, Target>>();
+            for (final String locale : config.getLocales()) {
+                final Map<String, Target> targets = new LinkedHashMap<String, Target>();
+                for (final String resId : getResIds(zanataId)) {
+                    targets.put(resId, new Target(resId, "Translated", locale + " translation of " + resId));
+                }
+                localeTranslations.put(locale, targets);
+            }
+            translations.put(zanataId, localeTranslations);
+        }
+        for (final String zanataId : getZanataIds(NEW_REVISION)) {
+            translations.put(zanataId, new ConcurrentHashMap<String, Map<String, Target>>());
+        }
+    }
+
+    public StandInConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Get the Zanata document ids for a revision of the content spec.
+     */
+    public List<String> getZanataIds(final int contentSpecRevision) {
+        final List<String> zanataIds = new ArrayList<String>();
+        zanataIds.add("CS" + CONTENT_SPEC_ID + "-" + contentSpecRevision);
+        for (int topicId = 1; topicId <= config.getNumTopics(); topicId++) {
+            zanataIds.add(topicId + "-" + getTopicRevision(topicId, contentSpecRevision));
+        }
+
+        return zanataIds;
+    }
+
+    public boolean hasDocument(final String zanataId) {
+        return translations.containsKey(zanataId);
+    }
+
+    /**
+     * The text flow resource ids don't depend on the revision, so the translations can be copied between revisions.
+     */
+    private List<String> getResIds(final String zanataId) {
+        final String prefix = zanataId.startsWith("CS") ? "cs" : zanataId.split("-")[0];
+        final List<String> resIds = new ArrayList<String>(config.getNumTextFlows());
+        for (int i = 0; i < config.getNumTextFlows(); i++) {
+            resIds.add(prefix + "-tf" + i);
+        }
+
+        return resIds;
+    }
+
+    private static int getTopicRevision(final int topicId, final int contentSpecRevision) {
+        return topicId * 10 + (contentSpecRevision == NEW_REVISION ? 5 : 0);
+    }
+
+    /**
+     * Get the targets for a document and locale.
+     *
+     * @return The targets, or null if the document has no translations for the locale.
+     */
+    public Collection<Target> getTranslations(final String zanataId, final String locale) {
+        final Map<String, Map<String, Target>> localeTranslations = translations.get(zanataId);
+        final Map<String, Target> targets = localeTranslations == null ? null : localeTranslations.get(locale);
+        if (targets == null) {
+            return null;
+        }
+
+        synchronized (targets) {
+            return new ArrayList<Target>(targets.values());
+        }
+    }
+
+    /**
+     * Merge targets into a document, replacing any existing targets with the same resource id.
+     *
+     * @return False if the document doesn't exist, otherwise true.
+     */
+    public boolean putTranslations(final String zanataId, final String locale, final Collection<Target> newTargets) {
+        final ConcurrentMap<String, Map<String, Target>> localeTranslations = translations.get(zanataId);
+        if (localeTranslations == null) {
+            return false;
+        }
+
+        localeTranslations.putIfAbsent(locale, new LinkedHashMap<String, Target>());
+        final Map<String, Target> targets = localeTranslations.get(locale);
+        synchronized (targets) {
+            for (final Target target : newTargets) {
+                targets.put(target.getResId(), target);
+            }
+        }
+
+        return true;
+    }
+
+    public boolean deleteTranslations(final String zanataId, final String locale) {
+        final Map<String, Map<String, Target>> localeTranslations = translations.get(zanataId);
+        return localeTranslations != null && localeTranslations.remove(locale) != null;
+    }
+
+    /**
+     * Simulate CopyTrans, by filling in every untranslated text flow of a document for every locale.
+     */
+    public void copyTrans(final String zanataId) {
+        final List<Target> copiedTargets = new ArrayList<Target>();
+        for (final String resId : getResIds(zanataId)) {
+            copiedTargets.add(new Target(resId, "NeedReview", "Reused translation of " + resId));
+        }
+
+        for (final String locale : config.getLocales()) {
+            final Collection<Target> existingTargets = getTranslations(zanataId, locale);
+            final List<Target> missingTargets = new ArrayList<Target>(copiedTargets);
+            if (existingTargets != null) {
+                for (final Target existingTarget : existingTargets) {
+                    for (int i = missingTargets.size() - 1; i >= 0; i--) {
+                        if (missingTargets.get(i).getResId().equals(existingTarget.getResId())) {
+                            missingTargets.remove(i);
+                        }
+                    }
+                }
+            }
+            putTranslations(zanataId, locale, missingTargets);
+        }
+    }
+
+    /*
+     * PressGang REST v1 JSON representations. Every collection is returned fully expanded, regardless of the expand parameter.
+     */
+
+    public String getTopicJson(final int topicId, final Integer revision) {
+        final int latestRevision = getTopicRevision(topicId, NEW_REVISION);
+        final int topicRevision = revision == null ? latestRevision : revision;
+        final List<String> translatedTopics = new ArrayList<String>();
+        for (final String locale : config.getLocales()) {
+            translatedTopics.add(getTranslatedTopicJson(topicId, topicRevision, locale));
+        }
+        translatedTopics.add(getTranslatedTopicJson(topicId, topicRevision, SOURCE_LOCALE));
+
+        return "{\"id\":" + topicId + ",\"revision\":" + topicRevision + ",\"title\":\"Topic " + topicId + "\",\"locale\":\""
+                + SOURCE_LOCALE + "\",\"xml\":\"<section><title>Topic " + topicId + "</title></section>\","
+                + "\"translatedTopics_OTM\":" + getCollectionJson(translatedTopics) + "}";
+    }
+
+    private String getTranslatedTopicJson(final int topicId, final int topicRevision, final String locale) {
+        return "{\"id\":" + (topicId * 100 + topicRevision % 10) + ",\"topicId\":" + topicId + ",\"topicRevision\":" + topicRevision
+                + ",\"locale\":\"" + locale + "\",\"translationPercentage\":100}";
+    }
+
+    public String getTopicsJson(final List<Integer> topicIds) {
+        final List<String> topics = new ArrayList<String>();
+        for (final Integer topicId : topicIds) {
+            if (topicId >= 1 && topicId <= config.getNumTopics()) {
+                topics.add(getTopicJson(topicId, null));
+            }
+        }
+
+        return getCollectionJson(topics);
+    }
+
+    /**
+     * @return The JSON for a translated content spec, or null if it doesn't exist.
+     */
+    public String getTranslatedContentSpecJson(final int translatedContentSpecId) {
+        final int contentSpecRevision;
+        if (translatedContentSpecId == 1) {
+            contentSpecRevision = OLD_REVISION;
+        } else if (translatedContentSpecId == 2) {
+            contentSpecRevision = NEW_REVISION;
+        } else {
+            return null;
+        }
+
+        final List<String> nodes = new ArrayList<String>();
+        for (int topicId = 1; topicId <= config.getNumTopics(); topicId++) {
+            final String csNode = "{\"id\":" + topicId + ",\"revision\":" + contentSpecRevision + ",\"nodeType\":0,\"entityId\":" + topicId
+                    + ",\"entityRevision\":" + getTopicRevision(topicId, contentSpecRevision) + "}";
+            nodes.add("{\"id\":" + (translatedContentSpecId * 1000000 + topicId) + ",\"nodeId\":" + topicId + ",\"nodeRevision\":"
+                    + contentSpecRevision + ",\"CSNode\":" + csNode + "}");
+        }
+
+        return "{\"id\":" + translatedContentSpecId + ",\"revision\":" + translatedContentSpecId + ",\"contentSpecId\":"
+                + CONTENT_SPEC_ID + ",\"contentSpecRevision\":" + contentSpecRevision + ",\"contentSpec\":{\"id\":" + CONTENT_SPEC_ID
+                + ",\"revision\":" + contentSpecRevision + "},\"translatedNodes_OTM\":" + getCollectionJson(nodes) + "}";
+    }
+
+    public String getTranslatedContentSpecsJson() {
+        return getCollectionJson(Arrays.asList(getTranslatedContentSpecJson(1), getTranslatedContentSpecJson(2)));
+    }
+
+    public String getServerSettingsJson() {
+        final StringBuilder locales = new StringBuilder();
+        final List<String> localeItems = new ArrayList<String>();
+        for (final String locale : config.getLocales()) {
+            if (locales.length() > 0) locales.append(",");
+            locales.append("\"").append(locale).append("\"");
+            localeItems.add("{\"value\":\"" + locale + "\",\"translationValue\":\"" + locale + "\"}");
+        }
+        final String localesJson = config.isLegacyServerSettings() ? ("[" + locales + "]") : getCollectionJson(localeItems);
+
+        return "{\"locales\":" + localesJson + ",\"defaultLocale\":\"" + SOURCE_LOCALE + "\"}";
+    }
+
+    private static String getCollectionJson(final List<String> items) {
+        final StringBuilder json = new StringBuilder("{\"size\":").append(items.size()).append(",\"startExpandIndex\":0,\"endExpandIndex\":")
+                .append(items.size()).append(",\"items\":[");
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) json.append(",");
+            json.append("{\"item\":").append(items.get(i)).append(",\"state\":0}");
+        }
+
+        return json.append("]}").toString();
+    }
+
+    /*
+     * Zanata REST XML representations.
+     */
+
+    public String getTranslationsXml(final Collection<Target> targets) {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><translations xmlns=\"")
+                .append(ZANATA_NAMESPACE).append("\"><targets>");
+        for (final Target target : targets) {
+            xml.append("<text-flow-target res-id=\"").append(escape(target.getResId())).append("\" state=\"").append(target.getState())
+                    .append("\" revision=\"1\" text-flow-revision=\"1\"><content>").append(escape(target.getContent()))
+                    .append("</content></text-flow-target>");
+        }
+
+        return xml.append("</targets></translations>").toString();
+    }
+
+    public String getStatisticsXml(final String version, final Collection<String> locales) {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><containerTranslationStatistics xmlns=\"")
+                .append(ZANATA_NAMESPACE).append("\"><id>").append(escape(version)).append("</id><detailedStats>");
+        for (final String zanataId : translations.keySet()) {
+            xml.append("<containerTranslationStatistics><id>").append(escape(zanataId)).append("</id><stats>");
+            for (final String locale : locales.isEmpty() ? Arrays.asList(config.getLocales()) : locales) {
+                final Collection<Target> targets = getTranslations(zanataId, locale);
+                int translated = 0;
+                int needReview = 0;
+                if (targets != null) {
+                    for (final Target target : targets) {
+                        if (target.getState().equals("NeedReview")) {
+                            needReview++;
+                        } else if (!target.getState().equals("New")) {
+                            translated++;
+                        }
+                    }
+                }
+                final int total = config.getNumTextFlows();
+                xml.append("<stat locale=\"").append(escape(locale)).append("\" unit=\"MESSAGE\" total=\"").append(total)
+                        .append("\" translated=\"").append(translated).append("\" needReview=\"").append(needReview)
+                        .append("\" untranslated=\"").append(Math.max(0, total - translated - needReview)).append("\"/>");
+            }
+            xml.append("</stats></containerTranslationStatistics>");
+        }
+
+        return xml.append("</detailedStats></containerTranslationStatistics>").toString();
+    }
+
+    private static String escape(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * A single translated text flow.
+     */
+    public static class Target {
+        private final String resId;
+        private final String state;
+        private final String content;
+
+        public Target(final String resId, final String state, final String content) {
+            this.resId = resId;
+            this.state = state;
+            this.content = content;
+        }
+
+        public String getResId() {
+            return resId;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
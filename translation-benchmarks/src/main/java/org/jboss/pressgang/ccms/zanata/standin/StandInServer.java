@@ -0,0 +1,393 @@
+package org.jboss.pressgang.ccms.zanata.standin;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * A local HTTP server that stands in for both PressGang and Zanata, so the tools can be load tested without touching the shared
+ * servers. Only the endpoints that the tools use are implemented:
+ * <ul>
+ * <li>PressGang: getting topics, topic revisions and translated content specs, querying topics and translated content specs, and
+ * getting the server settings.</li>
+ * <li>Zanata: getting, pushing and deleting translations, running CopyTrans and getting the CopyTrans status, getting the
+ * project version statistics and getting the server version.</li>
+ * </ul>
+ */
+public class StandInServer {
+    public static final String PRESSGANG_CONTEXT = "/pressgang-ccms/rest";
+    public static final String ZANATA_CONTEXT = "/zanata";
+
+    private static final Pattern TOPIC_PATTERN = Pattern.compile("/1/topic/get/json/(\\d+)(?:/r/(\\d+))?");
+    private static final Pattern TOPICS_PATTERN = Pattern.compile("/1/topics/get/json/query;(.*)");
+    private static final Pattern TRANSLATED_CONTENT_SPEC_PATTERN = Pattern.compile("/1/translatedcontentspec/get/json/(\\d+)(?:/r/(\\d+))?");
+    private static final Pattern TRANSLATED_CONTENT_SPECS_PATTERN = Pattern.compile("/1/translatedcontentspecs/get/json/.*");
+    private static final Pattern SETTINGS_PATTERN = Pattern.compile("/1/settings/get/json.*");
+    private static final Pattern TRANSLATIONS_PATTERN = Pattern.compile(
+            "/rest/projects/p/[^/]+/iterations/i/[^/]+/r/([^/]+)/translations/([^/]+)");
+    private static final Pattern COPY_TRANS_PATTERN = Pattern.compile("/rest/copytrans/proj/[^/]+/iter/[^/]+/doc/([^/]+)");
+    private static final Pattern STATISTICS_PATTERN = Pattern.compile("/rest/stats/proj/[^/]+/iter/([^/]+)");
+    private static final Pattern TOPIC_IDS_PATTERN = Pattern.compile("topicIds=([0-9,]+)");
+    private static final Pattern LOCALE_PARAM_PATTERN = Pattern.compile("(?:^|&)locale=([^&]+)");
+
+    private final StandInConfig config;
+    private final StandInDataset dataset;
+    private final Random random = new Random();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    /**
+     * The time each CopyTrans run will complete at, keyed by document id.
+     */
+    private final Map<String, Long> copyTransRuns = new ConcurrentHashMap<String, Long>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public StandInServer(final StandInConfig config) {
+        this.config = config;
+        dataset = new StandInDataset(config);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", config.getPort()), 0);
+        server.createContext(PRESSGANG_CONTEXT, new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                handleRequest(exchange, false);
+            }
+        });
+        server.createContext(ZANATA_CONTEXT, new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                handleRequest(exchange, true);
+            }
+        });
+        // Use daemon threads, so that the server can't keep the JVM alive if a tool fails
+        executor = Executors.newFixedThreadPool(config.getServerThreads(), new ThreadFactory() {
+            private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = defaultFactory.newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String getPressGangUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PRESSGANG_CONTEXT + "/";
+    }
+
+    public String getZanataUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + ZANATA_CONTEXT + "/";
+    }
+
+    public StandInDataset getDataset() {
+        return dataset;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getThrottledRequests() {
+        return throttledRequests.get();
+    }
+
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    /**
+     * @return The number of requests that were sent with a gzip compressed body.
+     */
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    /**
+     * Reset the dataset and request counters, so that each tool run starts from the same state.
+     */
+    public void reset() {
+        dataset.reset();
+        copyTransRuns.clear();
+        requests.set(0);
+        throttledRequests.set(0);
+        failedRequests.set(0);
+        compressedRequests.set(0);
+    }
+
+    protected void handleRequest(final HttpExchange exchange, final boolean zanata) throws IOException {
+        try {
+            requests.incrementAndGet();
+            simulateLatency();
+
+            final String method = exchange.getRequestMethod();
+            final String contextPath = zanata ? ZANATA_CONTEXT : PRESSGANG_CONTEXT;
+            final String path = URLDecoder.decode(exchange.getRequestURI().getRawPath(), "UTF-8").substring(contextPath.length());
+            final String query = exchange.getRequestURI().getRawQuery();
+
+            if (method.equals("HEAD")) {
+                // Used to check that the servers exist
+                send(exchange, 200, null, null);
+            } else if (zanata && random.nextDouble() < config.getThrottleRate()) {
+                throttledRequests.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", Integer.toString(config.getRetryAfterSeconds()));
+                send(exchange, 429, null, null);
+            } else if (zanata && random.nextDouble() < config.getErrorRate()) {
+                failedRequests.incrementAndGet();
+                send(exchange, 500, null, null);
+            } else if (zanata) {
+                handleZanataRequest(exchange, method, path, query);
+            } else {
+                handlePressGangRequest(exchange, method, path);
+            }
+        } catch (Exception e) {
+            failedRequests.incrementAndGet();
+            try {
+                send(exchange, 500, "text/plain", e.toString());
+            } catch (IOException ex) {
+                // The response has already been started, so there is nothing else that can be done
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    protected void handlePressGangRequest(final HttpExchange exchange, final String method, final String path) throws IOException {
+        Matcher matcher;
+        if (!method.equals("GET")) {
+            send(exchange, 405, null, null);
+        } else if ((matcher = TOPIC_PATTERN.matcher(path)).matches()) {
+            final int topicId = Integer.parseInt(matcher.group(1));
+            final Integer revision = matcher.group(2) == null ? null : Integer.parseInt(matcher.group(2));
+            if (topicId < 1 || topicId > config.getNumTopics()) {
+                send(exchange, 404, null, null);
+            } else {
+                sendJson(exchange, dataset.getTopicJson(topicId, revision));
+            }
+        } else if ((matcher = TOPICS_PATTERN.matcher(path)).matches()) {
+            final List<Integer> topicIds = new ArrayList<Integer>();
+            final Matcher topicIdsMatcher = TOPIC_IDS_PATTERN.matcher(matcher.group(1));
+            if (topicIdsMatcher.find()) {
+                for (final String topicId : topicIdsMatcher.group(1).split(",")) {
+                    topicIds.add(Integer.parseInt(topicId));
+                }
+            }
+            sendJson(exchange, dataset.getTopicsJson(topicIds));
+        } else if ((matcher = TRANSLATED_CONTENT_SPEC_PATTERN.matcher(path)).matches()) {
+            final String json = dataset.getTranslatedContentSpecJson(Integer.parseInt(matcher.group(1)));
+            if (json == null) {
+                send(exchange, 404, null, null);
+            } else {
+                sendJson(exchange, json);
+            }
+        } else if (TRANSLATED_CONTENT_SPECS_PATTERN.matcher(path).matches()) {
+            sendJson(exchange, dataset.getTranslatedContentSpecsJson());
+        } else if (SETTINGS_PATTERN.matcher(path).matches()) {
+            sendJson(exchange, dataset.getServerSettingsJson());
+        } else {
+            send(exchange, 404, null, null);
+        }
+    }
+
+    protected void handleZanataRequest(final HttpExchange exchange, final String method, final String path,
+            final String query) throws Exception {
+        Matcher matcher;
+        if (path.equals("/rest/version")) {
+            sendXml(exchange, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><versionInfo xmlns=\"" + StandInDataset.ZANATA_NAMESPACE
+                    + "\"><versionNo>3.0.0</versionNo><buildTimeStamp>unknown</buildTimeStamp></versionInfo>");
+        } else if ((matcher = TRANSLATIONS_PATTERN.matcher(path)).matches()) {
+            final String zanataId = matcher.group(1).replace(',', '/');
+            final String locale = matcher.group(2);
+            if (!dataset.hasDocument(zanataId)) {
+                send(exchange, 404, null, null);
+            } else if (method.equals("GET")) {
+                final Collection<StandInDataset.Target> targets = dataset.getTranslations(zanataId, locale);
+                if (targets == null) {
+                    send(exchange, 404, null, null);
+                } else {
+                    sendXml(exchange, dataset.getTranslationsXml(targets));
+                }
+            } else if (method.equals("PUT")) {
+                if (isCompressed(exchange) && config.isRejectCompressedRequests()) {
+                    send(exchange, 415, "text/plain", "Unsupported Content-Encoding: gzip");
+                } else {
+                    dataset.putTranslations(zanataId, locale, parseTargets(getRequestBody(exchange)));
+                    send(exchange, 200, "text/plain", "");
+                }
+            } else if (method.equals("DELETE")) {
+                dataset.deleteTranslations(zanataId, locale);
+                send(exchange, 200, null, null);
+            } else {
+                send(exchange, 405, null, null);
+            }
+        } else if ((matcher = COPY_TRANS_PATTERN.matcher(path)).matches()) {
+            final String zanataId = matcher.group(1).replace(',', '/');
+            if (!dataset.hasDocument(zanataId)) {
+                send(exchange, 404, null, null);
+            } else if (method.equals("POST")) {
+                copyTransRuns.put(zanataId, System.currentTimeMillis() + config.getCopyTransMillis());
+                sendCopyTransStatus(exchange, zanataId);
+            } else if (method.equals("GET")) {
+                sendCopyTransStatus(exchange, zanataId);
+            } else {
+                send(exchange, 405, null, null);
+            }
+        } else if ((matcher = STATISTICS_PATTERN.matcher(path)).matches()) {
+            final List<String> locales = new ArrayList<String>();
+            if (query != null) {
+                final Matcher localeMatcher = LOCALE_PARAM_PATTERN.matcher(query);
+                while (localeMatcher.find()) {
+                    locales.add(URLDecoder.decode(localeMatcher.group(1), "UTF-8"));
+                }
+            }
+            sendXml(exchange, dataset.getStatisticsXml(matcher.group(1), locales));
+        } else {
+            send(exchange, 404, null, null);
+        }
+    }
+
+    private void sendCopyTransStatus(final HttpExchange exchange, final String zanataId) throws IOException {
+        final Long completionTime = copyTransRuns.get(zanataId);
+        final boolean inProgress = completionTime != null && completionTime > System.currentTimeMillis();
+        if (completionTime != null && !inProgress && copyTransRuns.remove(zanataId) != null) {
+            dataset.copyTrans(zanataId);
+        }
+
+        final long remaining = inProgress ? completionTime - System.currentTimeMillis() : 0;
+        final int percentComplete = inProgress ? (int) (100 - remaining * 100 / Math.max(1, config.getCopyTransMillis())) : 100;
+        sendXml(exchange, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><copyTransStatus xmlns=\"" + StandInDataset.ZANATA_NAMESPACE
+                + "\"><percentageComplete>" + percentComplete + "</percentageComplete><inProgress>" + inProgress
+                + "</inProgress></copyTransStatus>");
+    }
+
+    private static boolean isCompressed(final HttpExchange exchange) {
+        final String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        return contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    /**
+     * Get the body of a request, decompressing it if the client gzip compressed it.
+     */
+    private InputStream getRequestBody(final HttpExchange exchange) throws IOException {
+        if (isCompressed(exchange)) {
+            compressedRequests.incrementAndGet();
+            return new GZIPInputStream(exchange.getRequestBody());
+        }
+
+        return exchange.getRequestBody();
+    }
+
+    private static List<StandInDataset.Target> parseTargets(final InputStream body) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        // Parse a copy of the body, as the parser closes the stream it reads from
+        final ByteArrayOutputStream bodyCopy = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            bodyCopy.write(buffer, 0, read);
+        }
+        final Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(bodyCopy.toByteArray()));
+
+        final List<StandInDataset.Target> targets = new ArrayList<StandInDataset.Target>();
+        final NodeList targetElements = document.getElementsByTagNameNS("*", "text-flow-target");
+        for (int i = 0; i < targetElements.getLength(); i++) {
+            final Element targetElement = (Element) targetElements.item(i);
+            final NodeList contentElements = targetElement.getElementsByTagNameNS("*", "content");
+            final String content = contentElements.getLength() == 0 ? "" : contentElements.item(0).getTextContent();
+            targets.add(new StandInDataset.Target(targetElement.getAttribute("res-id"), targetElement.getAttribute("state"), content));
+        }
+
+        return targets;
+    }
+
+    private void simulateLatency() {
+        long latency = config.getLatencyMillis();
+        if (config.getLatencyJitterMillis() > 0) {
+            latency += (long) (random.nextDouble() * config.getLatencyJitterMillis());
+        }
+
+        if (latency > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void sendJson(final HttpExchange exchange, final String json) throws IOException {
+        send(exchange, 200, "application/json", json);
+    }
+
+    private static void sendXml(final HttpExchange exchange, final String xml) throws IOException {
+        send(exchange, 200, "application/xml", xml);
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String contentType,
+            final String body) throws IOException {
+        // Make sure the request has been fully read, so the connection can be reused
+        drain(exchange.getRequestBody());
+
+        if (body == null || exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            final byte[] bytes = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            final OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.flush();
+        }
+    }
+
+    private static void drain(final InputStream in) {
+        final byte[] buffer = new byte[4096];
+        try {
+            while (in.read(buffer) != -1) {
+                // Discard the data
+            }
+        } catch (IOException e) {
+            // The request body has already been closed
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.jboss.pressgang.ccms.zanata.standin;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
+import org.jboss.pressgang.ccms.zanata.ZanataConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the translation tools against a {@link StandInServer} and reports the wall time, requests per second and peak heap usage of
+ * each run. Each tool is loaded from its standalone jar in its own class loader, since the tools contain different versions of the
+ * same classes.
+ * <p/>
+ * Usage: ToolHarness [options], where the options are:
+ * <pre>
+ *   --copy-jar &lt;jar&gt;          The translation-copy jar to run.
+ *   --copytrans-jar &lt;jars&gt;    The translation-copytrans jar to run, along with its dependencies as a classpath.
+ *   --fix-jar &lt;jar&gt;           The translation-fix jar to run.
+ *   --copy-args &lt;args&gt;        Extra arguments to pass to the translation copy tool (eg "--threads 4 --diff").
+ *   --copytrans-args &lt;args&gt;   Extra arguments to pass to the CopyTrans tool.
+ *   --fix-args &lt;args&gt;         Extra leading options to pass to the fix tool.
+ *   --topics &lt;n&gt;             The number of topics in the content spec.
+ *   --text-flows &lt;n&gt;         The number of text flows in each document.
+ *   --locales &lt;a,b,c&gt;        The locales to translate.
+ *   --latency &lt;ms&gt;           The latency added to every request.
+ *   --jitter &lt;ms&gt;            The maximum random latency added on top of the fixed latency.
+ *   --error-rate &lt;fraction&gt;  The fraction of Zanata requests that fail.
+ *   --throttle-rate &lt;fraction&gt; The fraction of Zanata requests that are throttled.
+ *   --retry-after &lt;seconds&gt;  The Retry-After value sent with throttled responses.
+ *   --copytrans-time &lt;ms&gt;    How long each CopyTrans run takes.
+ *   --call-interval &lt;seconds&gt; The minimum Zanata call interval passed to the tools.
+ *   --compression &lt;mode&gt;      Whether the translation copy tool compresses its pushes: on (the default), off, or both to run
+ *                              it once each way.
+ *   --reject-compression &lt;true|false&gt; Reject gzip compressed pushes with a 415, to test the uncompressed fallback.
+ * </pre>
+ */
+public class ToolHarness {
+    private static final Logger log = LoggerFactory.getLogger(ToolHarness.class);
+    private static final String PROJECT = "standin-project";
+    private static final String VERSION = "standin-version";
+
+    private final StandInServer server;
+    private final double callInterval;
+
+    public ToolHarness(final StandInServer server, final double callInterval) {
+        this.server = server;
+        this.callInterval = callInterval;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final StandInConfig config = new StandInConfig();
+        String copyJar = null, copyTransJar = null, fixJar = null;
+        String copyArgs = "", copyTransArgs = "", fixArgs = "";
+        double callInterval = 0;
+        String compression = "on";
+        for (int i = 0; i < args.length - 1; i += 2) {
+            final String name = args[i];
+            final String value = args[i + 1];
+            if (name.equals("--copy-jar")) {
+                copyJar = value;
+            } else if (name.equals("--copytrans-jar")) {
+                copyTransJar = value;
+            } else if (name.equals("--fix-jar")) {
+                fixJar = value;
+            } else if (name.equals("--copy-args")) {
+                copyArgs = value;
+            } else if (name.equals("--copytrans-args")) {
+                copyTransArgs = value;
+            } else if (name.equals("--fix-args")) {
+                fixArgs = value;
+            } else if (name.equals("--topics")) {
+                config.setNumTopics(Integer.parseInt(value));
+            } else if (name.equals("--text-flows")) {
+                config.setNumTextFlows(Integer.parseInt(value));
+            } else if (name.equals("--locales")) {
+                config.setLocales(value.split("\\s*,\\s*"));
+            } else if (name.equals("--latency")) {
+                config.setLatencyMillis(Long.parseLong(value));
+            } else if (name.equals("--jitter")) {
+                config.setLatencyJitterMillis(Long.parseLong(value));
+            } else if (name.equals("--error-rate")) {
+                config.setErrorRate(Double.parseDouble(value));
+            } else if (name.equals("--throttle-rate")) {
+                config.setThrottleRate(Double.parseDouble(value));
+            } else if (name.equals("--retry-after")) {
+                config.setRetryAfterSeconds(Integer.parseInt(value));
+            } else if (name.equals("--copytrans-time")) {
+                config.setCopyTransMillis(Long.parseLong(value));
+            } else if (name.equals("--call-interval")) {
+                callInterval = Double.parseDouble(value);
+            } else if (name.equals("--compression") && Arrays.asList("on", "off", "both").contains(value)) {
+                compression = value;
+            } else if (name.equals("--reject-compression")) {
+                config.setRejectCompressedRequests(Boolean.parseBoolean(value));
+            } else {
+                log.error("Unknown option " + name);
+                System.exit(1);
+            }
+        }
+
+        if (copyJar == null && copyTransJar == null && fixJar == null) {
+            log.error("At least one of --copy-jar, --copytrans-jar or --fix-jar must be specified");
+            System.exit(1);
+        }
+
+        final StandInServer server = new StandInServer(config);
+        server.start();
+        log.info("Stand-in PressGang server: " + server.getPressGangUrl());
+        log.info("Stand-in Zanata server:    " + server.getZanataUrl());
+
+        final ToolHarness harness = new ToolHarness(server, callInterval);
+        final List<Result> results = new ArrayList<Result>();
+        try {
+            final String locales = join(config.getLocales());
+            if (copyJar != null) {
+                config.setLegacyServerSettings(false);
+                final String[] copyToolArgs = concat(new String[]{"CS1-200", "--langs", locales, "--old-contentspecs", "CS1-100"},
+                        split(copyArgs));
+                if (!compression.equals("off")) {
+                    results.add(harness.run("translation-copy", copyJar, copyToolArgs));
+                }
+                if (!compression.equals("on")) {
+                    results.add(harness.run("translation-copy (no gzip)", copyJar, concat(copyToolArgs,
+                            new String[]{"--disable-compression"})));
+                }
+            }
+            if (copyTransJar != null) {
+                config.setLegacyServerSettings(true);
+                results.add(harness.run("translation-copytrans", copyTransJar, concat(new String[]{"CS1-200"}, split(copyTransArgs))));
+            }
+            if (fixJar != null) {
+                config.setLegacyServerSettings(true);
+                results.add(harness.run("translation-fix", fixJar, concat(split(fixArgs), new String[]{"1-200"})));
+            }
+        } finally {
+            server.stop();
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-26s %10s %10s %10s %10s %8s %9s %12s %s", "Tool", "Wall (ms)", "Requests", "Req/s",
+                "Throttled", "Errors", "Gzip PUTs", "Peak heap", "Result"));
+        for (final Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * Run a tool against the stand-in server.
+     *
+     * @param name     The name of the tool.
+     * @param jar      The path to the tools standalone jar, or a classpath made up of the tools jar and its dependencies.
+     * @param toolArgs The arguments to pass to the tools main method.
+     * @return The measurements for the run.
+     */
+    public Result run(final String name, final String jar, final String[] toolArgs) throws Exception {
+        log.info("Running " + name + " " + Arrays.toString(toolArgs));
+        server.reset();
+        setSystemProperties();
+
+        // Load the tool in its own class loader, that only shares the JDK classes with the harness
+        final String[] paths = jar.split(File.pathSeparator);
+        final URL[] urls = new URL[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            urls[i] = new File(paths[i]).toURI().toURL();
+        }
+        final URLClassLoader classLoader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+        final Method main = classLoader.loadClass("Main").getMethod("main", String[].class);
+
+        // Measure the peak heap for just this run. The stand-in server runs in the same JVM, so its data is included.
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        final Thread thread = Thread.currentThread();
+        final ClassLoader originalClassLoader = thread.getContextClassLoader();
+        final SecurityManager originalSecurityManager = System.getSecurityManager();
+        String status = "OK";
+        final long startTime = System.nanoTime();
+        try {
+            thread.setContextClassLoader(classLoader);
+            trapExit();
+            main.invoke(null, (Object) toolArgs);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ExitTrappedException) {
+                status = "exit(" + ((ExitTrappedException) cause).getStatus() + ")";
+            } else {
+                status = "failed: " + cause;
+                log.error("The " + name + " run failed", cause);
+            }
+        } finally {
+            restoreSecurityManager(originalSecurityManager);
+            thread.setContextClassLoader(originalClassLoader);
+        }
+        final long wallTime = (System.nanoTime() - startTime) / 1000000;
+
+        long peakHeap = 0;
+        for (final MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        return new Result(name, wallTime, server.getRequests(), server.getThrottledRequests(), server.getFailedRequests(),
+                server.getCompressedRequests(), peakHeap, status);
+    }
+
+    private void setSystemProperties() {
+        System.setProperty(CommonConstants.PRESS_GANG_REST_SERVER_SYSTEM_PROPERTY, server.getPressGangUrl());
+        System.setProperty(ZanataConstants.ZANATA_SERVER_PROPERTY, server.getZanataUrl());
+        System.setProperty(ZanataConstants.ZANATA_USERNAME_PROPERTY, "standin");
+        System.setProperty(ZanataConstants.ZANATA_TOKEN_PROPERTY, "standin");
+        System.setProperty(ZanataConstants.ZANATA_PROJECT_PROPERTY, PROJECT);
+        System.setProperty(ZanataConstants.ZANATA_PROJECT_VERSION_PROPERTY, VERSION);
+        System.setProperty(ZanataConstants.MIN_ZANATA_CALL_INTERNAL_PROPERTY, Double.toString(callInterval));
+    }
+
+    /**
+     * The tools call System.exit() when they fail, so trap the exit to be able to carry on with the next tool.
+     */
+    private static void trapExit() {
+        try {
+            System.setSecurityManager(new SecurityManager() {
+                @Override
+                public void checkExit(int status) {
+                    throw new ExitTrappedException(status);
+                }
+
+                @Override
+                public void checkPermission(Permission perm) {
+                    // Allow everything else
+                }
+
+                @Override
+                public void checkPermission(Permission perm, Object context) {
+                    // Allow everything else
+                }
+            });
+        } catch (UnsupportedOperationException e) {
+            log.warn("Unable to trap System.exit(), so a failing tool will stop the harness");
+        }
+    }
+
+    private static void restoreSecurityManager(final SecurityManager securityManager) {
+        try {
+            System.setSecurityManager(securityManager);
+        } catch (UnsupportedOperationException e) {
+            // The security manager couldn't be installed in the first place
+        }
+    }
+
+    private static String[] split(final String args) {
+        return args.trim().isEmpty() ? new String[0] : args.trim().split("\\s+");
+    }
+
+    private static String[] concat(final String[] first, final String[] second) {
+        final String[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static String join(final String[] values) {
+        final StringBuilder result = new StringBuilder();
+        for (final String value : values) {
+            if (result.length() > 0) result.append(",");
+            result.append(value);
+        }
+
+        return result.toString();
+    }
+
+    private static class ExitTrappedException extends SecurityException {
+        private final int status;
+
+        ExitTrappedException(final int status) {
+            super("System.exit(" + status + ") was called");
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * The measurements for a single tool run.
+     */
+    public static class Result {
+        private final String name;
+        private final long wallTimeMillis;
+        private final long requests;
+        private final long throttledRequests;
+        private final long failedRequests;
+        private final long compressedRequests;
+        private final long peakHeapBytes;
+        private final String status;
+
+        Result(final String name, final long wallTimeMillis, final long requests, final long throttledRequests,
+                final long failedRequests, final long compressedRequests, final long peakHeapBytes, final String status) {
+            this.name = name;
+            this.wallTimeMillis = wallTimeMillis;
+            this.requests = requests;
+            this.throttledRequests = throttledRequests;
+            this.failedRequests = failedRequests;
+            this.compressedRequests = compressedRequests;
+            this.peakHeapBytes = peakHeapBytes;
+            this.status = status;
+        }
+
+        public double getRequestsPerSecond() {
+            return wallTimeMillis == 0 ? 0 : requests * 1000.0 / wallTimeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-26s %10d %10d %10.1f %10d %8d %9d %9.1f MB %s", name, wallTimeMillis, requests,
+                    getRequestsPerSecond(), throttledRequests, failedRequests, compressedRequests, peakHeapBytes / (1024.0 * 1024.0),
+                    status);
+        }
+    }
+}
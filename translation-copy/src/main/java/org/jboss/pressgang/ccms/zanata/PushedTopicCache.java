@@ -0,0 +1,173 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.pressgang.ccms.wrapper.TranslatedCSNodeWrapper;
+
+/**
+ * A bounded, in memory cache of the pushed translated topics found during discovery, keyed by the topic id and revision. The least
+ * recently used entries are evicted once the cache is full.
+ * <p/>
+ * Each entry holds the topic pushed without a condition, along with any topics that were pushed for a specific translated content
+ * spec node, so a topic revision only has to be downloaded once no matter how many translated content specs use it. Only a Zanata
+ * id and a revision is kept for each pushed topic, so many more topics can be cached than if the topics themselves were kept.
+ */
+public class PushedTopicCache {
+    private final int maxSize;
+    private final Map<Key, Entry> pushedTopics;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PushedTopicCache(final int maxSize) {
+        this.maxSize = maxSize;
+        pushedTopics = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > PushedTopicCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the pushed translated topic for a topic from the cache.
+     *
+     * @param topicId          The id of the topic.
+     * @param topicRevision    The revision of the topic, or null for the latest topic.
+     * @param translatedCSNode The translated content spec node the topic is used in.
+     * @return The cached pushed topic, {@link PushedTopic#NOT_PUSHED} if the topic is known to have no pushed translation, or null
+     *         if it isn't in the cache.
+     */
+    public PushedTopic get(final Integer topicId, final Integer topicRevision, final TranslatedCSNodeWrapper translatedCSNode) {
+        final Entry entry;
+        synchronized (pushedTopics) {
+            entry = pushedTopics.get(new Key(topicId, topicRevision));
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        } else {
+            hits.incrementAndGet();
+            return entry.get(translatedCSNode);
+        }
+    }
+
+    /**
+     * Check if the pushed translated topics for a topic are in the cache, without affecting the eviction order or counters.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision of the topic, or null for the latest topic.
+     * @return True if the pushed topics are cached, otherwise false.
+     */
+    public boolean contains(final Integer topicId, final Integer topicRevision) {
+        synchronized (pushedTopics) {
+            return pushedTopics.containsKey(new Key(topicId, topicRevision));
+        }
+    }
+
+    /**
+     * Add the pushed translated topics for a topic to the cache.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision the topic was requested with, or null if the latest topic was requested.
+     * @param entry         The pushed topics for the topic.
+     */
+    public void put(final Integer topicId, final Integer topicRevision, final Entry entry) {
+        synchronized (pushedTopics) {
+            pushedTopics.put(new Key(topicId, topicRevision), entry);
+        }
+    }
+
+    /**
+     * Remove all the pushed topics from the cache.
+     */
+    public void clear() {
+        synchronized (pushedTopics) {
+            pushedTopics.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (pushedTopics) {
+            return pushedTopics.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses();
+    }
+
+    /**
+     * The pushed translated topics for a topic revision.
+     */
+    public static class Entry {
+        private final PushedTopic pushedTopic;
+        private final Map<Integer, PushedTopic> conditionalPushedTopics;
+
+        /**
+         * @param pushedTopic             The topic pushed without a condition, or {@link PushedTopic#NOT_PUSHED} if there isn't one.
+         * @param conditionalPushedTopics The topics pushed for a specific translated content spec node, mapped by the node id.
+         */
+        public Entry(final PushedTopic pushedTopic, final Map<Integer, PushedTopic> conditionalPushedTopics) {
+            this.pushedTopic = pushedTopic;
+            // Most topics aren't pushed with a condition, so don't hold on to an empty map for each of them
+            this.conditionalPushedTopics = conditionalPushedTopics.isEmpty() ? Collections.<Integer, PushedTopic>emptyMap() :
+                    conditionalPushedTopics;
+        }
+
+        /**
+         * Get the pushed topic for a translated content spec node, which is the topic pushed for the node if the node applies a
+         * condition, otherwise the topic pushed without a condition.
+         *
+         * @param translatedCSNode The translated content spec node the topic is used in.
+         * @return The pushed topic, or {@link PushedTopic#NOT_PUSHED} if the topic has no pushed translation.
+         */
+        public PushedTopic get(final TranslatedCSNodeWrapper translatedCSNode) {
+            if (translatedCSNode != null && translatedCSNode.getId() != null) {
+                final PushedTopic conditionalPushedTopic = conditionalPushedTopics.get(translatedCSNode.getId());
+                if (conditionalPushedTopic != null) {
+                    return conditionalPushedTopic;
+                }
+            }
+
+            return pushedTopic;
+        }
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int revision;
+
+        Key(final Integer id, final Integer revision) {
+            this.id = id;
+            // Revisions start at 1, so -1 can be used to represent the latest topic
+            this.revision = revision == null ? -1 : revision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+            return id == key.id && revision == key.revision;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + revision;
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package org.jboss.pressgang.ccms.zanata;
 
 import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.beust.jcommander.IVariableArity;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.internal.Lists;
-import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.provider.RESTProviderFactory;
 import org.jboss.pressgang.ccms.provider.RESTTopicProvider;
 import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
@@ -31,6 +38,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zanata.common.LocaleId;
 import org.zanata.rest.client.ITranslatedDocResource;
+import org.zanata.common.ContentState;
+import org.zanata.rest.dto.resource.TextFlowTarget;
 import org.zanata.rest.dto.resource.TranslationsResource;
 
 public class TranslationCopyTool implements IVariableArity {
@@ -39,6 +48,18 @@ public class TranslationCopyTool implements IVariableArity {
      * The Default amount of time that should be waited between Zanata REST API Calls.
      */
     private static final Double DEFAULT_ZANATA_CALL_INTERVAL = 0.2;
+    /**
+     * The number of times a push should be retried when Zanata is throttling requests.
+     */
+    private static final int MAX_THROTTLED_RETRIES = 3;
+    /**
+     * The name of the tool that is recorded in work plans and metrics.
+     */
+    private static final String TOOL_NAME = "translation-copy";
+    /**
+     * The maximum number of content specs to resolve at the same time. Each content spec also downloads its topics concurrently.
+     */
+    private static final int MAX_CONCURRENT_CONTENT_SPECS = 4;
 
     private static final String PRESSGANG_SERVER = System.getProperty(CommonConstants.PRESS_GANG_REST_SERVER_SYSTEM_PROPERTY);
     private static final String ZANATA_SERVER = System.getProperty(ZanataConstants.ZANATA_SERVER_PROPERTY);
@@ -55,7 +76,8 @@ public class TranslationCopyTool implements IVariableArity {
     private String locales;
 
     @Parameter(names = "--old-contentspecs", variableArity = true,
-            description = "A list of old content spec zanata ids to get the " + "translations from")
+            description = "A list of old content spec zanata ids to get the translations from. When more than one content spec "
+                    + "has a translation for the same text, the translation from the most recently revised content spec is used.")
     private List<String> oldContentSpecs = Lists.newLinkedList();
 
     @Parameter(names = "--overwrite", description = "Overwrite any existing translations")
@@ -65,9 +87,90 @@ public class TranslationCopyTool implements IVariableArity {
             description = "Disable the SSL Certificate verification. Note: Extreme care should be taken " + "using this option.")
     private Boolean disableSSLCert = false;
 
-    private ZanataInterface zanataInterface;
+    @Parameter(names = "--cache", description = "Cache the Zanata document ids of frozen content specs in " + "~/.zanata-tools/cache")
+    private Boolean cache = false;
+
+    @Parameter(names = "--cache-dir", description = "Cache the Zanata document ids of frozen content specs in the specified directory")
+    private String cacheDir;
+
+    @Parameter(names = "--threads", description = "The number of translations to copy concurrently")
+    private Integer threads = 1;
+
+    @Parameter(names = "--resume", description = "A journal file to record the completed translation copies in. Any copies already "
+            + "recorded in the journal will be skipped.")
+    private String resumeJournal;
+
+    @Parameter(names = "--time-budget", description = "The maximum number of minutes to spend copying translations, before stopping "
+            + "cleanly so the run can be resumed later")
+    private Integer timeBudget;
+
+    @Parameter(names = "--diff", description = "Only push the translations that differ from the translations already in the new "
+            + "document. With --overwrite, pushes are still skipped when nothing has changed, but the full translations are pushed "
+            + "otherwise.")
+    private Boolean diff = false;
+
+    @Parameter(names = "--prefilter", description = "Use the Zanata translation statistics to skip copying from documents that "
+            + "have no translations")
+    private Boolean prefilter = false;
+
+    @Parameter(names = "--plan", description = "Only discover the translations to be copied, and write them to the specified file "
+            + "as a work plan along with the number of REST calls needed and a projected duration")
+    private String plan;
+
+    @Parameter(names = "--execute-plan", description = "Copy the translations listed in a work plan created by --plan, instead of "
+            + "discovering them again")
+    private String executePlan;
+
+    @Parameter(names = "--metrics", description = "Write the REST call metrics for the run to the specified directory, as JSON and "
+            + "in the Prometheus text format")
+    private String metricsDir;
+
+    @Parameter(names = "--metrics-interval", description = "How often in seconds to write the REST call metrics during the run. By "
+            + "default they are only written at the end of the run.")
+    private Integer metricsInterval = 0;
+
+    @Parameter(names = "--max-connections", description = "The maximum number of HTTP connections to keep open to the PressGang and "
+            + "Zanata servers")
+    private Integer maxConnections = ZanataTransport.DEFAULT_MAX_CONNECTIONS;
+
+    @Parameter(names = "--max-connections-per-server", description = "The maximum number of HTTP connections to keep open to each "
+            + "server")
+    private Integer maxConnectionsPerServer = ZanataTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    @Parameter(names = "--disable-compression", description = "Don't gzip compress the translations sent to and received from "
+            + "Zanata")
+    private Boolean disableCompression = false;
+
+    @Parameter(names = "--keep-alive", description = "The number of seconds to keep idle HTTP connections open for, when the server "
+            + "doesn't specify how long")
+    private Integer keepAlive = ZanataTransport.DEFAULT_KEEP_ALIVE_SECONDS;
+
+    @Parameter(names = "--download-threads", description = "The number of topic revisions to download from PressGang at the same "
+            + "time")
+    private Integer downloadThreads = RevisionTopicFetcher.DEFAULT_PARALLELISM;
+
+    /**
+     * Each worker thread gets its own Zanata interface, as the underlying REST client shouldn't be shared between threads.
+     */
+    private final ThreadLocal<ZanataInterface> zanataInterfaces = new ThreadLocal<ZanataInterface>() {
+        @Override
+        protected ZanataInterface initialValue() {
+            // Rate limiting is handled by the rate limiter, so disable the interfaces own call interval
+            return new ZanataInterface(0, disableSSLCert);
+        }
+    };
     private RESTProviderFactory providerFactory;
+    private RESTProviderFactory pushedTopicProviderFactory;
     private double zanataRESTCallInterval;
+    private ZanataRateLimiter rateLimiter;
+    private ZanataIdStore zanataIdStore;
+    private WorkJournal journal;
+    private long deadline = Long.MAX_VALUE;
+    private final AtomicInteger resolveFailures = new AtomicInteger(0);
+    private final AtomicInteger resumedWorkItems = new AtomicInteger(0);
+    private final AtomicInteger unfinishedWorkItems = new AtomicInteger(0);
+    private final AtomicInteger skippedPushes = new AtomicInteger(0);
+    private final AtomicInteger skippedTextFlowTargets = new AtomicInteger(0);
     private List<LocaleId> localeIds = new ArrayList<LocaleId>();
 
     public void process() {
@@ -79,51 +182,302 @@ public class TranslationCopyTool implements IVariableArity {
         // Initialise the factories
         init();
 
+        try {
+            doProcess();
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+            log.info("REST call metrics:\n{}", RunMetrics.getInstance());
+            if (metricsDir != null) {
+                RunMetrics.getInstance().finishExporting();
+            }
+            ZanataTransport.shutdown();
+        }
+    }
+
+    private void doProcess() {
+        // Copy the translations from a previously created plan, instead of discovering them again
+        if (executePlan != null) {
+            executePlan(new File(executePlan));
+            return;
+        }
+
         // validate the languages used
         log.info("Locales: " + CollectionUtilities.toSeperatedString(localeIds, ", "));
         Utilities.validateLanguages(providerFactory.getProvider(ServerSettingsProvider.class).getServerSettings(),
                 locales.split("\\s*,\\s*"));
 
-        // Check to make sure we have a content spec to copy translations to
-        if (!validateContentSpecId()) {
+        // Check to make sure we have at least one content spec to copy translations to
+        if (!validateContentSpecIds()) {
             System.exit(-1);
         }
 
+        // Get the old Zanata ids to copy from up front if they were specified, as they are shared by all the content specs
+        final Set<String> sharedOldZanataIds = oldContentSpecs.isEmpty() ? null : getOldZanataIds(oldContentSpecs);
+
+        // Collect the old ids for each content spec, and merge them so topics shared between content specs are only copied once
+        final Map<String, List<String>> mappedZanataIds = new LinkedHashMap<String, List<String>>();
+        int duplicateZanataIds = 0;
+        for (final Map<String, List<String>> contentSpecMappedZanataIds : resolveContentSpecs(ids, sharedOldZanataIds)) {
+            duplicateZanataIds += mergeMappedIds(mappedZanataIds, contentSpecMappedZanataIds);
+        }
+        log.info("Pushed topic cache usage: {}", Utilities.getPushedTopicCache());
+        if (ids.size() > 1) {
+            log.info("Merged the documents for {} content specs, skipping {} document(s) shared between content specs",
+                    ids.size(), duplicateZanataIds);
+        }
+
+        if (mappedZanataIds.isEmpty() && resolveFailures.get() > 0) {
+            System.exit(-1);
+        }
+
+        // Work out what needs to be copied
+        final List<TranslationCopyWorkItem> workItems = createWorkItems(mappedZanataIds, localeIds);
+
+        if (plan != null) {
+            // Only record the work to be done, so it can be reviewed and executed later
+            writePlan(workItems, new File(plan));
+        } else {
+            // Copy the translations
+            copyTranslations(workItems);
+        }
+
+        if (resolveFailures.get() > 0) {
+            log.error("Unable to copy the translations for {} content spec(s), as they couldn't be resolved", resolveFailures.get());
+        }
+    }
+
+    /**
+     * Resolve the content specs to copy translations for, mapping the new Zanata ids of each content spec to the old Zanata ids
+     * to copy from. If there is more than one content spec, then they are resolved concurrently.
+     *
+     * @param contentSpecIds     The content spec ids, optionally including a revision.
+     * @param sharedOldZanataIds The old Zanata ids to copy from for every content spec, or null if each content spec should copy
+     *                           from its previous revision.
+     * @return The mapped Zanata ids for each content spec that could be resolved, in the same order as the content spec ids.
+     */
+    protected List<Map<String, List<String>>> resolveContentSpecs(final List<String> contentSpecIds,
+            final Set<String> sharedOldZanataIds) {
+        final List<Map<String, List<String>>> retValue = new ArrayList<Map<String, List<String>>>();
+        if (contentSpecIds.size() == 1) {
+            final Map<String, List<String>> mappedZanataIds = resolveContentSpec(contentSpecIds.get(0), sharedOldZanataIds);
+            if (mappedZanataIds != null) {
+                retValue.add(mappedZanataIds);
+            }
+            return retValue;
+        }
+
+        log.info("Resolving {} content specs", contentSpecIds.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_CONTENT_SPECS, contentSpecIds.size()));
+        try {
+            // Submit all the content specs
+            final List<Future<Map<String, List<String>>>> results = new ArrayList<Future<Map<String, List<String>>>>();
+            for (final String contentSpecId : contentSpecIds) {
+                results.add(executor.submit(new Callable<Map<String, List<String>>>() {
+                    @Override
+                    public Map<String, List<String>> call() throws Exception {
+                        return resolveContentSpec(contentSpecId, sharedOldZanataIds);
+                    }
+                }));
+            }
+
+            // Collect the results for each content spec
+            for (int i = 0; i < contentSpecIds.size(); i++) {
+                try {
+                    final Map<String, List<String>> mappedZanataIds = results.get(i).get();
+                    if (mappedZanataIds != null) {
+                        retValue.add(mappedZanataIds);
+                    }
+                } catch (ExecutionException e) {
+                    log.error("Failed to resolve content spec " + contentSpecIds.get(i), e.getCause());
+                    resolveFailures.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while resolving the content specs");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return retValue;
+    }
+
+    /**
+     * Resolve a single content spec, mapping its new Zanata ids to the old Zanata ids to copy from.
+     *
+     * @param id                 The content spec id, optionally including a revision.
+     * @param sharedOldZanataIds The old Zanata ids to copy from, or null if the content spec should copy from its previous
+     *                           revision.
+     * @return The mapping of new zanata document ids to the old document ids to copy from, or null if the content spec couldn't be
+     *         resolved.
+     */
+    protected Map<String, List<String>> resolveContentSpec(final String id, final Set<String> sharedOldZanataIds) {
         // Get the content spec id/revision
-        final String[] zanataNameSplit = ids.get(0).replace("CS", "").split("-");
+        final String[] zanataNameSplit = id.replace("CS", "").split("-");
         final Integer contentSpecId = Integer.parseInt(zanataNameSplit[0]);
         final Integer contentSpecRevision = zanataNameSplit.length > 1 ? Integer.parseInt(zanataNameSplit[1]) : null;
 
         // Get the pushed translation for the specified id/revision
-        final TranslatedContentSpecWrapper pushedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(providerFactory,
+        final TranslatedContentSpecWrapper pushedContentSpec = Utilities.getClosestTranslatedContentSpecById(providerFactory,
                 contentSpecId, contentSpecRevision);
+        if (pushedContentSpec == null) {
+            log.error("No translations available for content spec {}", contentSpecId);
+            resolveFailures.incrementAndGet();
+            return null;
+        }
 
-        if (pushedContentSpec != null) {
-            // If the old content spec list is empty, then get the previous pushed content spec
-            if (oldContentSpecs.isEmpty()) {
-                try {
-                    final TranslatedContentSpecWrapper translatedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(
-                            providerFactory, contentSpecId, pushedContentSpec.getContentSpecRevision() - 1);
-                    if (translatedContentSpec != null) {
-                        oldContentSpecs.add(translatedContentSpec.getZanataId());
-                    }
-                } catch (NotFoundException e) {
-                    log.error("The content spec has no previous translations available");
-                    System.exit(-1);
+        // If no old content specs were specified, then get the previous pushed content spec
+        Set<String> oldZanataIds = sharedOldZanataIds;
+        if (oldZanataIds == null) {
+            try {
+                final TranslatedContentSpecWrapper translatedContentSpec = Utilities.getClosestTranslatedContentSpecById(
+                        providerFactory, contentSpecId, pushedContentSpec.getContentSpecRevision() - 1);
+                if (translatedContentSpec != null) {
+                    oldZanataIds = getOldZanataIds(Collections.singletonList(translatedContentSpec.getZanataId()));
                 }
+            } catch (NotFoundException e) {
+                log.error("Content spec {} has no previous translations available", contentSpecId);
+                resolveFailures.incrementAndGet();
+                return null;
             }
+        }
 
-            // Get the Zanata Ids we need to push to
-            log.info("Getting the Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
-            final Set<String> zanataIds = Utilities.getZanataIds(providerFactory, pushedContentSpec, true);
+        // Get the Zanata Ids we need to push to
+        log.info("Getting the Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
+        final Set<String> zanataIds = Utilities.getZanataIds(pushedTopicProviderFactory, pushedContentSpec, true, zanataIdStore);
 
-            // Collect all the old topic ids
-            final Map<String, String> mappedZanataIds = collectOldIds(zanataIds, pushedContentSpec);
+        // Collect all the old topic ids
+        return collectOldIds(zanataIds, pushedContentSpec, oldZanataIds);
+    }
 
-            // Copy the translations
-            copyTranslations(mappedZanataIds, localeIds);
+    /**
+     * Merge the mapped Zanata ids for a content spec into the mapped Zanata ids for the whole run. If a new Zanata id is shared
+     * with a content spec that has already been merged, then it is only copied once. The old ids are picked from the union of
+     * both mappings with the same rules as {@link #mapOldIds(Set, Set)}, so content specs are copied from every old id ordered
+     * by revision, and topics from the latest old id with a matching condition.
+     *
+     * @param mappedZanataIds            The mapped Zanata ids for the whole run.
+     * @param contentSpecMappedZanataIds The mapped Zanata ids for a single content spec.
+     * @return The number of new Zanata ids that were already in the mapped Zanata ids for the run.
+     */
+    protected static int mergeMappedIds(final Map<String, List<String>> mappedZanataIds,
+            final Map<String, List<String>> contentSpecMappedZanataIds) {
+        int duplicates = 0;
+        for (final Map.Entry<String, List<String>> entry : contentSpecMappedZanataIds.entrySet()) {
+            final List<String> existingOldZanataIds = mappedZanataIds.get(entry.getKey());
+            if (existingOldZanataIds == null) {
+                mappedZanataIds.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            duplicates++;
+            final Set<String> oldZanataIdSet = new LinkedHashSet<String>(existingOldZanataIds);
+            oldZanataIdSet.addAll(entry.getValue());
+            final ZanataDocumentIdIndex oldZanataIdIndex = new ZanataDocumentIdIndex(oldZanataIdSet);
+            final ZanataDocumentId newDocumentId = ZanataDocumentId.parse(entry.getKey());
+            if (newDocumentId.isContentSpec()) {
+                final List<String> oldZanataIds = new ArrayList<String>();
+                for (final ZanataDocumentId oldDocumentId : oldZanataIdIndex.getContentSpecs()) {
+                    oldZanataIds.add(oldDocumentId.toString());
+                }
+                mappedZanataIds.put(entry.getKey(), oldZanataIds);
+            } else {
+                mappedZanataIds.put(entry.getKey(), Collections.singletonList(oldZanataIdIndex.getLatest(newDocumentId).toString()));
+            }
+        }
+
+        return duplicates;
+    }
+
+    /**
+     * Copy the translations listed in a work plan.
+     *
+     * @param planFile The work plan file.
+     */
+    protected void executePlan(final File planFile) {
+        final WorkPlan workPlan;
+        try {
+            workPlan = WorkPlan.read(planFile);
+        } catch (IOException e) {
+            log.error("Unable to read the plan " + planFile, e);
+            System.exit(-1);
+            return;
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            System.exit(-1);
+            return;
+        }
+
+        if (!TOOL_NAME.equals(workPlan.getTool())) {
+            log.error("{} is a plan for {}, not {}", new Object[]{planFile, workPlan.getTool(), TOOL_NAME});
+            System.exit(-1);
+        }
+
+        log.info("Executing the plan in {}: {}", planFile, workPlan);
+        final List<TranslationCopyWorkItem> workItems = new ArrayList<TranslationCopyWorkItem>();
+        for (final WorkPlan.Step step : workPlan.getSteps(WorkPlan.Operation.COPY)) {
+            workItems.add(new TranslationCopyWorkItem(step.getSourceIds(), step.getDocumentId(), new LocaleId(step.getLocale())));
+        }
+
+        copyTranslations(workItems);
+    }
+
+    /**
+     * Write the work to be done to a work plan, along with the number of REST calls needed and a projected duration.
+     *
+     * @param workItems The work items to be copied.
+     * @param planFile  The file to write the plan to.
+     */
+    protected void writePlan(final List<TranslationCopyWorkItem> workItems, final File planFile) {
+        final WorkPlan workPlan = new WorkPlan(TOOL_NAME);
+        for (final TranslationCopyWorkItem workItem : workItems) {
+            workPlan.addCopy(workItem.getOldZanataIds(), workItem.getNewZanataId(), workItem.getLocale().toString(), diff);
+        }
+        workPlan.setPressGangGets(Utilities.getPressGangRequests());
+        workPlan.estimate(rateLimiter, threads == null || threads < 1 ? 1 : threads);
+
+        try {
+            workPlan.write(planFile);
+        } catch (IOException e) {
+            log.error("Unable to write the plan to " + planFile, e);
+            System.exit(-1);
+        }
+
+        log.info("Wrote the plan to {}: {}", planFile.getAbsolutePath(), workPlan);
+    }
+
+    /**
+     * Copy the translations for a list of work items, and report the outcome.
+     *
+     * @param workItems The work items to copy the translations for.
+     */
+    protected void copyTranslations(final List<TranslationCopyWorkItem> workItems) {
+        final List<TranslationCopyWorkItem> failedWorkItems;
+        if (threads == null || threads <= 1) {
+            failedWorkItems = copyTranslationsSequentially(workItems);
         } else {
-            log.error("No translations available for content spec {}", contentSpecId);
+            failedWorkItems = copyTranslationsConcurrently(workItems, threads);
+        }
+
+        if (!failedWorkItems.isEmpty()) {
+            log.error("Failed to copy {} translation(s):", failedWorkItems.size());
+            for (final TranslationCopyWorkItem failedWorkItem : failedWorkItems) {
+                log.error("\t{}", failedWorkItem);
+            }
+        }
+
+        if (diff) {
+            log.info("Skipped {} unchanged translation push(es) and {} unchanged text flow target(s)", skippedPushes.get(),
+                    skippedTextFlowTargets.get());
+        }
+        if (resumedWorkItems.get() > 0) {
+            log.info("Skipped {} translation(s) that were copied by a previous run", resumedWorkItems.get());
+        }
+        if (unfinishedWorkItems.get() > 0) {
+            log.warn("The time budget was used up before {} translation(s) could be copied. Run the tool again with --resume to "
+                    + "continue copying.", unfinishedWorkItems.get());
         }
     }
 
@@ -159,9 +513,17 @@ public class TranslationCopyTool implements IVariableArity {
      * Initialise the components required to copy the translations for a content spec.
      */
     private void init() {
-        // Initialise the PressGang provider factory
+        // Share a pool of keep-alive connections between all the PressGang and Zanata clients
+        ZanataTransport.install(maxConnections, maxConnectionsPerServer, keepAlive, disableSSLCert);
+        Utilities.setConcurrentDownloads(downloadThreads);
+        ZanataTransport.setCompression(!disableCompression);
+
+        // Initialise the PressGang provider factories
         providerFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
-        providerFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(true);
+        // The translations are needed to find the pushed topics, so the full translations are downloaded even though discovery
+        // only keeps their Zanata ids and revisions. Only the topic lookups for the Zanata ids use this factory.
+        pushedTopicProviderFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
+        pushedTopicProviderFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(true);
 
         // Parse the specified time from the System Variables. If no time is set or is invalid then use the default value
         try {
@@ -172,13 +534,41 @@ public class TranslationCopyTool implements IVariableArity {
             zanataRESTCallInterval = DEFAULT_ZANATA_CALL_INTERVAL;
         }
         log.info("Rate Limiting: " + zanataRESTCallInterval + " seconds per REST call");
+        rateLimiter = new ZanataRateLimiter(zanataRESTCallInterval);
         try {
-            zanataInterface = new ZanataInterface(zanataRESTCallInterval, disableSSLCert);
+            zanataInterfaces.set(new ZanataInterface(0, disableSSLCert));
         } catch (UnauthorizedException e) {
             log.error("Invalid Zanata credentials!");
             System.exit(-1);
         }
 
+        // Start recording the REST call metrics, if they should be exported
+        if (metricsDir != null) {
+            RunMetrics.getInstance().startExporting(new File(metricsDir), TOOL_NAME, metricsInterval == null ? 0 : metricsInterval);
+        }
+
+        // Setup the Zanata id cache, if one should be used
+        if (cacheDir != null) {
+            zanataIdStore = new ZanataIdStore(new File(cacheDir), PRESSGANG_SERVER);
+        } else if (cache) {
+            zanataIdStore = new ZanataIdStore(new File(ZanataIdStore.DEFAULT_DIRECTORY), PRESSGANG_SERVER);
+        }
+
+        // Open the journal of completed work, so completed work can be skipped
+        if (resumeJournal != null) {
+            try {
+                journal = new WorkJournal(new File(resumeJournal));
+            } catch (IOException e) {
+                log.error("Unable to open the journal " + resumeJournal, e);
+                System.exit(-1);
+            }
+        }
+
+        // Work out when the tool should stop copying translations
+        if (timeBudget != null) {
+            deadline = System.currentTimeMillis() + timeBudget * 60L * 1000L;
+        }
+
         // If the locales are empty then use all the locales configured on the server
         if (locales == null) {
             final ServerSettingsWrapper serverSettings = providerFactory.getProvider(ServerSettingsProvider.class).getServerSettings();
@@ -205,17 +595,14 @@ public class TranslationCopyTool implements IVariableArity {
     }
 
     /**
-     * Make sure the user input a content spec to copy translations for.
+     * Make sure the user input at least one content spec to copy translations for.
      *
      * @return True if the user entered information is enough, otherwise false.
      */
-    protected boolean validateContentSpecId() {
+    protected boolean validateContentSpecIds() {
         if (ids.isEmpty()) {
             log.error("No ID specified!");
             return false;
-        } else if (ids.size() > 1) {
-            log.error("Too many IDs specified!");
-            return false;
         } else {
             return true;
         }
@@ -225,74 +612,88 @@ public class TranslationCopyTool implements IVariableArity {
      * Collects all the old content spec Zanata Document Ids and maps them to their new Zanata Document Ids.
      *
      * @param contentSpecZanataIds The list of new content spec Zanata Document Ids.
-     * @return A map of old zanata document ids to new document ids.
+     * @param pushedContentSpec    The content spec being copied to.
+     * @param oldZanataIds         The Zanata Document Ids of the old content specs, or null if there are no old content specs.
+     * @return A map of new zanata document ids to the old document ids to copy from, sorted least recently revised first.
      */
-    protected Map<String, String> collectOldIds(final Set<String> contentSpecZanataIds,
-            final TranslatedContentSpecWrapper pushedContentSpec) {
-        final Map<String, String> retValue = new LinkedHashMap<String, String>();
+    protected Map<String, List<String>> collectOldIds(final Set<String> contentSpecZanataIds,
+            final TranslatedContentSpecWrapper pushedContentSpec, final Set<String> oldZanataIds) {
+        if (oldZanataIds != null) {
+            return mapOldIds(contentSpecZanataIds, oldZanataIds);
+        }
+
+        // This will happen when a spec isn't frozen
+        log.info("Getting the old Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
+        return mapOldIds(contentSpecZanataIds, Utilities.getZanataIds(pushedTopicProviderFactory, pushedContentSpec, false, zanataIdStore));
+    }
 
-        // 1. Get all the Zanata Ids for the specified old content specs
+    /**
+     * Get all the Zanata Document Ids for the specified old content specs.
+     *
+     * @param oldContentSpecIds The old content spec ids, optionally including a revision.
+     * @return The Zanata Document Ids of the old content specs.
+     */
+    protected Set<String> getOldZanataIds(final List<String> oldContentSpecIds) {
         final Set<String> oldZanataIds = new LinkedHashSet<String>();
-        if (!oldContentSpecs.isEmpty()) {
-            for (final String oldContentSpecId : oldContentSpecs) {
-                // Get the content spec id/revision
-                final String[] zanataNameSplit = oldContentSpecId.replace("CS", "").split("-");
-                final Integer contentSpecId = Integer.parseInt(zanataNameSplit[0]);
-                final Integer contentSpecRevision = zanataNameSplit.length > 1 ? Integer.parseInt(zanataNameSplit[1]) : null;
+        for (final String oldContentSpecId : oldContentSpecIds) {
+            // Get the content spec id/revision
+            final String[] zanataNameSplit = oldContentSpecId.replace("CS", "").split("-");
+            final Integer contentSpecId = Integer.parseInt(zanataNameSplit[0]);
+            final Integer contentSpecRevision = zanataNameSplit.length > 1 ? Integer.parseInt(zanataNameSplit[1]) : null;
 
-                final TranslatedContentSpecWrapper translatedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(providerFactory,
-                        contentSpecId, contentSpecRevision);
+            final TranslatedContentSpecWrapper translatedContentSpec = Utilities.getClosestTranslatedContentSpecById(providerFactory,
+                    contentSpecId, contentSpecRevision);
 
-                if (translatedContentSpec != null) {
-                    log.info("Getting the Zanata document ids for content spec {}", translatedContentSpec.getZanataId());
-                    oldZanataIds.addAll(Utilities.getZanataIds(providerFactory, translatedContentSpec, false));
-                } else {
-                    log.error("Skipping content spec {} as their are no translations available", contentSpecId);
-                }
+            if (translatedContentSpec != null) {
+                log.info("Getting the Zanata document ids for content spec {}", translatedContentSpec.getZanataId());
+                oldZanataIds.addAll(Utilities.getZanataIds(pushedTopicProviderFactory, translatedContentSpec, false, zanataIdStore));
+            } else {
+                log.error("Skipping content spec {} as their are no translations available", contentSpecId);
             }
-        } else {
-            // This will happen when a spec isn't frozen
-            log.info("Getting the old Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
-            oldZanataIds.addAll(Utilities.getZanataIds(providerFactory, pushedContentSpec, false));
         }
 
-        // 2. Break the Zanata Ids up based on their id
-        final Map<String, Set<String>> oldZanataIdMap = new HashMap<String, Set<String>>();
-        for (final String oldZanataId : oldZanataIds) {
-            final String[] zanataNameSplit = oldZanataId.split("-");
-            final String id = oldZanataId.startsWith("CS") ? "CS" : zanataNameSplit[0];
+        return oldZanataIds;
+    }
 
-            if (!oldZanataIdMap.containsKey(id)) {
-                // Sort the ids, so the newest is the last element
-                oldZanataIdMap.put(id, new TreeSet<String>(new ZanataIdSort()));
-            }
-            oldZanataIdMap.get(id).add(oldZanataId);
-        }
+    /**
+     * Map each new Zanata id to the old Zanata ids that its translations should be copied from.
+     *
+     * @param contentSpecZanataIds The new Zanata ids.
+     * @param oldZanataIds         All the old Zanata ids.
+     * @return The mapping of new zanata document ids to the old document ids to copy from, sorted least recently revised first.
+     */
+    protected static Map<String, List<String>> mapOldIds(final Set<String> contentSpecZanataIds, final Set<String> oldZanataIds) {
+        final Map<String, List<String>> retValue = new LinkedHashMap<String, List<String>>();
+
+        // 1. Index the Zanata Ids based on their id, so the newest id for each topic can be looked up
+        final ZanataDocumentIdIndex oldZanataIdIndex = new ZanataDocumentIdIndex(oldZanataIds);
 
-        // 3. Map the old zanata ids to the new zanata ids
+        // 2. Map the old zanata ids to the new zanata ids
         for (final String newZanataId : contentSpecZanataIds) {
-            final String[] zanataNameSplit = newZanataId.split("-");
-            final String id = newZanataId.startsWith("CS") ? "CS" : zanataNameSplit[0];
-
-            if (oldZanataIdMap.containsKey(id)) {
-                final LinkedList<String> oldZanataIdsForId = new LinkedList<String>(oldZanataIdMap.get(id));
-                if (id.equals("CS")) {
-                    // For content specs copy from all sources, unless it is itself
-                    for (final String oldZanataId : oldZanataIdsForId) {
-                        if (!newZanataId.equals(oldZanataId)) {
-                            retValue.put(oldZanataId, newZanataId);
-                        } else {
-                            log.warn("Skipping {} as there is no previous translations", newZanataId);
-                        }
+            final ZanataDocumentId newDocumentId = ZanataDocumentId.parse(newZanataId);
+
+            if (newDocumentId.isContentSpec()) {
+                // For content specs copy from all sources (least recently revised first), unless it is itself
+                final List<String> oldZanataIdsForId = new ArrayList<String>();
+                for (final ZanataDocumentId oldDocumentId : oldZanataIdIndex.getContentSpecs()) {
+                    if (!newDocumentId.equals(oldDocumentId)) {
+                        oldZanataIdsForId.add(oldDocumentId.toString());
                     }
+                }
+
+                if (!oldZanataIdsForId.isEmpty()) {
+                    retValue.put(newZanataId, oldZanataIdsForId);
                 } else {
-                    // The topic might not have changed so check that the zanata ids are different
-                    if (!newZanataId.equals(oldZanataIdsForId.getLast())) {
-                        retValue.put(oldZanataIdsForId.getLast(), newZanataId);
-                    }
+                    log.warn("Skipping {} as there is no previous translations", newZanataId);
                 }
             } else {
-                log.warn("Skipping {} as there is no previous translations", newZanataId);
+                final ZanataDocumentId latestOldDocumentId = oldZanataIdIndex.getLatest(newDocumentId);
+                if (latestOldDocumentId == null) {
+                    log.warn("Skipping {} as there is no previous translations", newZanataId);
+                } else if (!newDocumentId.equals(latestOldDocumentId)) {
+                    // The topic might not have changed so check that the zanata ids are different
+                    retValue.put(newZanataId, Collections.singletonList(latestOldDocumentId.toString()));
+                }
             }
         }
 
@@ -300,49 +701,323 @@ public class TranslationCopyTool implements IVariableArity {
     }
 
     /**
-     * Copy the translations from an old source into a new source for all the locales.
+     * Create the work items to copy the translations from the old sources into the new sources for all the locales.
      *
-     * @param mappedZanataIds The mapping of old zanata document ids to their new document ids.
+     * @param mappedZanataIds The mapping of new zanata document ids to the old document ids to copy from, sorted least recently revised first.
      * @param localeIds       The locales to copy translations for.
+     * @return The work items to be copied.
      */
-    protected void copyTranslations(final Map<String, String> mappedZanataIds, final List<LocaleId> localeIds) {
-        for (final Map.Entry<String, String> entry : mappedZanataIds.entrySet()) {
-            final String oldZanataId = entry.getKey();
-            final String newZanataId = entry.getValue();
-            log.info("Copying translations for {} from {}", new Object[]{newZanataId, oldZanataId});
-
+    protected List<TranslationCopyWorkItem> createWorkItems(final Map<String, List<String>> mappedZanataIds,
+            final List<LocaleId> localeIds) {
+        // Build up the list of work to be done
+        final ZanataStatistics statistics = prefilter ? ZanataStatistics.fetch(getZanataInterface(), rateLimiter, ZANATA_PROJECT,
+                ZANATA_VERSION, localeIds) : null;
+        final List<TranslationCopyWorkItem> workItems = new ArrayList<TranslationCopyWorkItem>();
+        int filteredWorkItems = 0;
+        for (final Map.Entry<String, List<String>> entry : mappedZanataIds.entrySet()) {
             for (final LocaleId locale : localeIds) {
-                copyTranslation(oldZanataId, newZanataId, locale);
+                // Only copy from the old documents that have something to copy
+                final List<String> oldZanataIds = new ArrayList<String>();
+                for (final String oldZanataId : entry.getValue()) {
+                    if (statistics != null && !statistics.hasTranslations(oldZanataId, locale)) {
+                        statistics.addAvoidedCalls(1);
+                    } else {
+                        oldZanataIds.add(oldZanataId);
+                    }
+                }
+
+                if (!oldZanataIds.isEmpty()) {
+                    workItems.add(new TranslationCopyWorkItem(oldZanataIds, entry.getValue(), entry.getKey(), locale));
+                } else {
+                    // There is nothing to copy, so don't bother fetching the translations
+                    filteredWorkItems++;
+                    if (diff && statistics != null) {
+                        statistics.addAvoidedCalls(1);
+                    }
+                }
+            }
+        }
+
+        if (statistics != null) {
+            log.info("Skipping {} translation(s) that have nothing to copy, avoiding {} Zanata REST call(s)", filteredWorkItems,
+                    statistics.getAvoidedCalls());
+        }
+
+        return workItems;
+    }
+
+    /**
+     * Copy the translations for a list of work items, one after the other.
+     *
+     * @param workItems The work items to copy the translations for.
+     * @return The list of work items that failed to copy.
+     */
+    protected List<TranslationCopyWorkItem> copyTranslationsSequentially(final List<TranslationCopyWorkItem> workItems) {
+        final List<TranslationCopyWorkItem> failedWorkItems = new ArrayList<TranslationCopyWorkItem>();
+        for (final TranslationCopyWorkItem workItem : workItems) {
+            if (!processWorkItem(workItem)) {
+                failedWorkItems.add(workItem);
+            }
+        }
+
+        return failedWorkItems;
+    }
+
+    /**
+     * Copy the translations for a list of work items using a fixed size pool of worker threads. The Zanata REST call interval is
+     * shared by all the workers, so the servers don't see any more calls than they would for a sequential copy.
+     *
+     * @param workItems  The work items to copy the translations for.
+     * @param numThreads The number of worker threads to use.
+     * @return The list of work items that failed to copy.
+     */
+    protected List<TranslationCopyWorkItem> copyTranslationsConcurrently(final List<TranslationCopyWorkItem> workItems,
+            final int numThreads) {
+        log.info("Copying {} translations using {} threads", workItems.size(), numThreads);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final List<TranslationCopyWorkItem> failedWorkItems = new ArrayList<TranslationCopyWorkItem>();
+        try {
+            // Submit all the work items
+            final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (final TranslationCopyWorkItem workItem : workItems) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return processWorkItem(workItem);
+                    }
+                }));
             }
 
-            log.info("Successfully copied translations for {} from {}", new Object[]{newZanataId, oldZanataId});
+            // Collect the results for each work item
+            for (int i = 0; i < workItems.size(); i++) {
+                final TranslationCopyWorkItem workItem = workItems.get(i);
+                try {
+                    if (!results.get(i).get()) {
+                        failedWorkItems.add(workItem);
+                    }
+                } catch (ExecutionException e) {
+                    log.debug("Failed to copy the translations for " + workItem, e.getCause());
+                    failedWorkItems.add(workItem);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while copying translations");
+        } finally {
+            executor.shutdownNow();
         }
+
+        return failedWorkItems;
     }
 
     /**
-     * Copy a specific translation for a document from it's old file into the new file.
+     * Process a single work item. The work item is skipped if it was completed by a previous run, or if the time budget has been
+     * used up.
      *
-     * @param oldZanataId The old Zanata Document Id.
-     * @param newZanataId The new Zanata Document Id.
-     * @param locale
+     * @param workItem The work item to process.
+     * @return False if the work item failed, otherwise true.
      */
-    protected void copyTranslation(final String oldZanataId, final String newZanataId, final LocaleId locale) {
-        log.info("\tCopying translations for locale {}", locale.toString());
-        // Get the old version
-        final TranslationsResource translatedResource = zanataInterface.getTranslations(oldZanataId, locale);
+    protected boolean processWorkItem(final TranslationCopyWorkItem workItem) {
+        final String journalKey = workItem.getJournalKey();
+        if (journal != null && journal.isComplete(journalKey)) {
+            resumedWorkItems.incrementAndGet();
+            return true;
+        } else if (System.currentTimeMillis() >= deadline) {
+            unfinishedWorkItems.incrementAndGet();
+            return true;
+        }
+
+        final boolean success = copyTranslation(workItem.getOldZanataIds(), workItem.getNewZanataId(), workItem.getLocale());
+        if (success && journal != null) {
+            journal.markComplete(journalKey);
+        }
+
+        return success;
+    }
+
+    /**
+     * Copy a specific translation for a document from it's old files into the new file. If there is more than one old file, then
+     * the translations are merged and pushed in a single call.
+     *
+     * @param oldZanataIds The old Zanata Document Ids, sorted least recently revised first.
+     * @param newZanataId  The new Zanata Document Id.
+     * @param locale       The locale to copy the translation for.
+     * @return True if the translation was copied or there was nothing to copy, otherwise false.
+     */
+    protected boolean copyTranslation(final List<String> oldZanataIds, final String newZanataId, final LocaleId locale) {
+        log.info("Copying translations for {} from {} for locale {}", new Object[]{newZanataId,
+                CollectionUtilities.toSeperatedString(oldZanataIds, ", "), locale.toString()});
+        // Get the old versions
+        final List<TranslationsResource> translatedResources = new ArrayList<TranslationsResource>();
+        for (final String oldZanataId : oldZanataIds) {
+            final TranslationsResource translatedResource = getTranslations(oldZanataId, locale);
+            if (translatedResource != null) {
+                translatedResources.add(translatedResource);
+            }
+        }
+        final TranslationsResource translatedResource = mergeTranslations(translatedResources);
 
         if (translatedResource != null) {
+            // Only push the text flow targets that have changed, if requested
+            final TranslationsResource pushResource;
+            if (diff) {
+                final TranslationsResource existingResource = getTranslations(newZanataId, locale);
+                final TranslationsResource changedResource = createChangedTranslations(translatedResource, existingResource);
+                if (changedResource == null) {
+                    log.info("\tSkipping {} locale {} as the translations haven't changed", newZanataId, locale.toString());
+                    skippedPushes.incrementAndGet();
+                    skippedTextFlowTargets.addAndGet(getTargetCount(translatedResource));
+                    return true;
+                } else if (overwrite) {
+                    // An import resets any targets that are missing from the push, so overwriting has to push all the translations
+                    pushResource = translatedResource;
+                } else {
+                    pushResource = changedResource;
+                    skippedTextFlowTargets.addAndGet(getTargetCount(translatedResource) - getTargetCount(changedResource));
+                }
+            } else {
+                pushResource = translatedResource;
+            }
+
             // Push the old version to the new version
-            if (!pushTranslation(newZanataId, locale, translatedResource)) {
-                log.error("\tFailed to copy translations for locale {}", locale.toString());
+            if (!pushTranslation(newZanataId, locale, pushResource)) {
+                log.error("\tFailed to copy translations for {} locale {}", newZanataId, locale.toString());
+                return false;
             }
         } else {
-            log.warn("\tSkipping locale {} as there were no previous translations", locale.toString());
+            log.warn("\tSkipping {} locale {} as there were no previous translations", newZanataId, locale.toString());
         }
+
+        return true;
     }
 
     /**
-     * Push a translation resource using the Zanata REST API.
+     * Get the translations for a document using the Zanata REST API.
+     *
+     * @param zanataId The Zanata Document Id.
+     * @param locale   The locale to get the translations for.
+     * @return The translations, or null if the document has no translations for the locale.
+     */
+    protected TranslationsResource getTranslations(final String zanataId, final LocaleId locale) {
+        rateLimiter.acquire(ZanataRateLimiter.CallType.READ);
+        final long startTime = System.nanoTime();
+        final TranslationsResource translatedResource = getZanataInterface().getTranslations(zanataId, locale);
+        if (translatedResource == null) {
+            // The interface returns null for errors as well as missing translations, so don't treat it as a healthy response
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_TRANSLATIONS, RunMetrics.EMPTY, startTime);
+        } else {
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_TRANSLATIONS, RunMetrics.OK, startTime);
+            rateLimiter.onSuccess(ZanataRateLimiter.CallType.READ, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+
+        return translatedResource;
+    }
+
+    /**
+     * Merge the translations from multiple sources into a single translation resource. The sources are applied in order, so for
+     * each text flow the target from the last (ie most recently revised) source that has a translation wins.
+     *
+     * @param translatedResources The translations to merge, sorted least recently revised first.
+     * @return The merged translations, or null if there are no translations to merge.
+     */
+    protected static TranslationsResource mergeTranslations(final List<TranslationsResource> translatedResources) {
+        if (translatedResources.isEmpty()) {
+            return null;
+        } else if (translatedResources.size() == 1) {
+            return translatedResources.get(0);
+        }
+
+        final Map<String, TextFlowTarget> mergedTargets = new LinkedHashMap<String, TextFlowTarget>();
+        for (final TranslationsResource translatedResource : translatedResources) {
+            if (translatedResource.getTextFlowTargets() == null) continue;
+
+            for (final TextFlowTarget target : translatedResource.getTextFlowTargets()) {
+                // Don't let an untranslated target replace an older translation
+                if (!isEmptyTarget(target) || !mergedTargets.containsKey(target.getResId())) {
+                    mergedTargets.put(target.getResId(), target);
+                }
+            }
+        }
+
+        // Use the newest source for the extensions (ie the PO header) and revision
+        final TranslationsResource newestResource = translatedResources.get(translatedResources.size() - 1);
+        final TranslationsResource mergedResource = new TranslationsResource();
+        mergedResource.getTextFlowTargets().addAll(mergedTargets.values());
+        if (newestResource.getExtensions() != null) {
+            mergedResource.getExtensions(true).addAll(newestResource.getExtensions());
+        }
+        mergedResource.setRevision(newestResource.getRevision());
+
+        return mergedResource;
+    }
+
+    /**
+     * Create a translation resource that only contains the text flow targets that differ from the existing translations. Targets
+     * that are empty or untranslated are dropped, as are targets that already have the same content and state in the existing
+     * translations.
+     *
+     * @param resource         The translations to be pushed.
+     * @param existingResource The translations that already exist in the document being pushed to, or null if there are none.
+     * @return A new translation resource containing only the changed text flow targets, or null if nothing has changed.
+     */
+    protected static TranslationsResource createChangedTranslations(final TranslationsResource resource,
+            final TranslationsResource existingResource) {
+        // Index the existing targets by their resource id
+        final Map<String, TextFlowTarget> existingTargets = new HashMap<String, TextFlowTarget>();
+        if (existingResource != null && existingResource.getTextFlowTargets() != null) {
+            for (final TextFlowTarget existingTarget : existingResource.getTextFlowTargets()) {
+                existingTargets.put(existingTarget.getResId(), existingTarget);
+            }
+        }
+
+        final TranslationsResource changedResource = new TranslationsResource();
+        if (resource.getTextFlowTargets() != null) {
+            for (final TextFlowTarget target : resource.getTextFlowTargets()) {
+                if (!isEmptyTarget(target) && !isSameTarget(target, existingTargets.get(target.getResId()))) {
+                    changedResource.getTextFlowTargets().add(target);
+                }
+            }
+        }
+
+        if (changedResource.getTextFlowTargets().isEmpty()) {
+            return null;
+        }
+
+        // Keep the extensions (ie the PO header) and revision from the original resource
+        if (resource.getExtensions() != null) {
+            changedResource.getExtensions(true).addAll(resource.getExtensions());
+        }
+        changedResource.setRevision(resource.getRevision());
+
+        return changedResource;
+    }
+
+    private static int getTargetCount(final TranslationsResource resource) {
+        return resource.getTextFlowTargets() == null ? 0 : resource.getTextFlowTargets().size();
+    }
+
+    private static boolean isEmptyTarget(final TextFlowTarget target) {
+        if (target.getState() == null || target.getState() == ContentState.New || target.getContents() == null) {
+            return true;
+        }
+
+        for (final String content : target.getContents()) {
+            if (content != null && !content.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isSameTarget(final TextFlowTarget target, final TextFlowTarget existingTarget) {
+        return existingTarget != null && target.getState() == existingTarget.getState() && target.getContents().equals(
+                existingTarget.getContents());
+    }
+
+    /**
+     * Push a translation resource using the Zanata REST API. If Zanata is throttling requests, then the push will be retried once
+     * the rate limiter has backed off.
      *
      * @param id       The Zanata Document Id to push to.
      * @param locale   The locale to push the translation for.
@@ -350,23 +1025,57 @@ public class TranslationCopyTool implements IVariableArity {
      * @return True if the translations were pushed successfully, otherwise false.
      */
     protected boolean pushTranslation(final String id, final LocaleId locale, final TranslationsResource resource) {
+        int throttledRetries = 0;
+        while (true) {
+            final int statusCode = doPushTranslation(id, locale, resource);
+            if (statusCode == Response.Status.OK.getStatusCode()) {
+                return true;
+            } else if (ZanataTransport.wasCompressionRejected()) {
+                // The server doesn't accept compressed translations, so resend the push uncompressed. This can only happen once
+                // per server, so it isn't counted as a throttled retry.
+                continue;
+            } else if (!isThrottledStatus(statusCode) || throttledRetries >= MAX_THROTTLED_RETRIES) {
+                return false;
+            }
+            throttledRetries++;
+        }
+    }
+
+    /**
+     * Push a translation resource using the Zanata REST API.
+     *
+     * @param id       The Zanata Document Id to push to.
+     * @param locale   The locale to push the translation for.
+     * @param resource The {@link TranslationsResource} object that contains the translations for the source strings.
+     * @return The HTTP status code of the push, or -1 if the push failed before a response was received.
+     */
+    protected int doPushTranslation(final String id, final LocaleId locale, final TranslationsResource resource) {
         ClientResponse<String> response = null;
+        rateLimiter.acquire(ZanataRateLimiter.CallType.WRITE);
+        final long startTime = System.nanoTime();
         try {
-            final ITranslatedDocResource client = zanataInterface.getProxyFactory().getTranslatedDocResource(ZANATA_PROJECT,
+            final ITranslatedDocResource client = ZanataTransport.getTranslatedDocResource(getZanataInterface(), ZANATA_PROJECT,
                     ZANATA_VERSION);
             response = client.putTranslations(id, locale, resource, null, overwrite ? "import" : "auto");
 
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_PUT_TRANSLATIONS, response.getStatus(), startTime);
             final Response.Status status = Response.Status.fromStatusCode(response.getStatus());
+            final Object retryAfter = response.getHeaders().getFirst("Retry-After");
+            rateLimiter.onResponse(ZanataRateLimiter.CallType.WRITE, response.getStatus(), retryAfter == null ? null : retryAfter.toString(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
 
             if (status == Response.Status.OK) {
                 final String entity = response.getEntity();
                 if (entity.trim().length() != 0) log.debug(entity);
-                return true;
             } else {
-                log.debug("REST call to putResource() did not complete successfully. HTTP response code was " + status.getStatusCode() +
-                        ". Reason was " + status.getReasonPhrase());
+                log.debug("REST call to putResource() did not complete successfully. HTTP response code was " + response.getStatus() +
+                        ". Reason was " + (status == null ? "unknown" : status.getReasonPhrase()));
             }
+            return response.getStatus();
         } catch (final Exception ex) {
+            if (response == null) {
+                RunMetrics.getInstance().record(RunMetrics.ZANATA_PUT_TRANSLATIONS, RunMetrics.ERROR, startTime);
+            }
             log.debug("Failed to push the Zanata Translation", ex);
         } finally {
             /*
@@ -374,16 +1083,22 @@ public class TranslationCopyTool implements IVariableArity {
              * explicitly need to release the connection.
              */
             if (response != null) response.releaseConnection();
+        }
 
-            // Sleep for a little so the servers aren't overloaded
-            try {
-                Thread.sleep((long) (zanataRESTCallInterval * 1000));
-            } catch (Exception e) {
+        return -1;
+    }
 
-            }
-        }
+    private static boolean isThrottledStatus(final int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
 
-        return false;
+    /**
+     * Get the Zanata interface that should be used by the current thread.
+     *
+     * @return The current threads Zanata interface.
+     */
+    protected ZanataInterface getZanataInterface() {
+        return zanataInterfaces.get();
     }
 
     @Override
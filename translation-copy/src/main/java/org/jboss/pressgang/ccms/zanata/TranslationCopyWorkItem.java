@@ -0,0 +1,93 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.utils.common.CollectionUtilities;
+import org.zanata.common.LocaleId;
+
+/**
+ * A single unit of work for the translation copy tool, which is to copy the translations for one locale from one or more old
+ * Zanata documents to a new Zanata document.
+ */
+public class TranslationCopyWorkItem {
+    private final List<String> oldZanataIds;
+    private final List<String> mappedOldZanataIds;
+    private final String newZanataId;
+    private final LocaleId locale;
+
+    public TranslationCopyWorkItem(final String oldZanataId, final String newZanataId, final LocaleId locale) {
+        this(Collections.singletonList(oldZanataId), newZanataId, locale);
+    }
+
+    /**
+     * @param oldZanataIds The old Zanata document ids to copy from, sorted least recently revised first.
+     * @param newZanataId  The new Zanata document id to copy to.
+     * @param locale       The locale to copy.
+     */
+    public TranslationCopyWorkItem(final List<String> oldZanataIds, final String newZanataId, final LocaleId locale) {
+        this(oldZanataIds, oldZanataIds, newZanataId, locale);
+    }
+
+    /**
+     * @param oldZanataIds       The old Zanata document ids to copy from, sorted least recently revised first.
+     * @param mappedOldZanataIds All the old Zanata document ids that were mapped to the new document, including any that were left
+     *                           out of the copy because they had nothing to copy. These identify the work item in the journal,
+     *                           so the key doesn't change when the translation statistics do.
+     * @param newZanataId        The new Zanata document id to copy to.
+     * @param locale             The locale to copy.
+     */
+    public TranslationCopyWorkItem(final List<String> oldZanataIds, final List<String> mappedOldZanataIds, final String newZanataId,
+            final LocaleId locale) {
+        this.oldZanataIds = Collections.unmodifiableList(new ArrayList<String>(oldZanataIds));
+        final List<String> sortedMappedOldZanataIds = new ArrayList<String>(mappedOldZanataIds);
+        Collections.sort(sortedMappedOldZanataIds, new ZanataIdSort());
+        this.mappedOldZanataIds = Collections.unmodifiableList(sortedMappedOldZanataIds);
+        this.newZanataId = newZanataId;
+        this.locale = locale;
+    }
+
+    public List<String> getOldZanataIds() {
+        return oldZanataIds;
+    }
+
+    public String getNewZanataId() {
+        return newZanataId;
+    }
+
+    public LocaleId getLocale() {
+        return locale;
+    }
+
+    /**
+     * Get the key that identifies this work item in a {@link WorkJournal}.
+     *
+     * @return The journal key for the work item.
+     */
+    public String getJournalKey() {
+        return "copy " + CollectionUtilities.toSeperatedString(mappedOldZanataIds, ",") + " " + newZanataId + " " + locale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TranslationCopyWorkItem)) return false;
+
+        final TranslationCopyWorkItem that = (TranslationCopyWorkItem) o;
+        return oldZanataIds.equals(that.oldZanataIds) && newZanataId.equals(that.newZanataId) && locale.equals(that.locale);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = oldZanataIds.hashCode();
+        result = 31 * result + newZanataId.hashCode();
+        result = 31 * result + locale.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return CollectionUtilities.toSeperatedString(oldZanataIds, ", ") + " -> " + newZanataId + " (" + locale + ")";
+    }
+}
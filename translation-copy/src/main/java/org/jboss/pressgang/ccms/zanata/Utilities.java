@@ -7,16 +7,19 @@ import javax.net.ssl.X509TrustManager;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.pressgang.ccms.contentspec.ContentSpec;
 import org.jboss.pressgang.ccms.contentspec.SpecTopic;
 import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.provider.DataProviderFactory;
 import org.jboss.pressgang.ccms.provider.TopicProvider;
-import org.jboss.pressgang.ccms.rest.v1.query.RESTTopicQueryBuilderV1;
 import org.jboss.pressgang.ccms.utils.common.CollectionUtilities;
 import org.jboss.pressgang.ccms.utils.structures.Pair;
 import org.jboss.pressgang.ccms.wrapper.CSInfoNodeWrapper;
@@ -33,7 +36,29 @@ import org.slf4j.LoggerFactory;
 
 public class Utilities {
     private static final Logger log = LoggerFactory.getLogger(Utilities.class);
-    private static final int MAX_DOWNLOAD_SIZE = 400;
+    private static final int MAX_CACHED_TOPICS = 2000;
+    private static final int MAX_CACHED_PUSHED_TOPICS = 100000;
+    /**
+     * The cache of topic revisions downloaded by the revision topic fetcher, which is shared between each request.
+     */
+    private static final TopicCache topicCache = new TopicCache(MAX_CACHED_TOPICS);
+    /**
+     * The pushed translated topics found during discovery, which are shared between each content spec that is processed. Once a
+     * topic has been downloaded only its pushed topics are kept, rather than the topic along with all of its translations.
+     */
+    private static final PushedTopicCache pushedTopicCache = new PushedTopicCache(MAX_CACHED_PUSHED_TOPICS);
+    /**
+     * Downloads the topic revisions, sharing any downloads that are already in progress.
+     */
+    private static final RevisionTopicFetcher revisionTopicFetcher = new RevisionTopicFetcher(topicCache);
+    /**
+     * The number of topic revisions to download at the same time.
+     */
+    private static volatile int concurrentDownloads = RevisionTopicFetcher.DEFAULT_PARALLELISM;
+    /**
+     * The number of requests made to PressGang for topics and translated content specs, so the cost of discovery can be reported.
+     */
+    private static final AtomicLong pressGangRequests = new AtomicLong();
 
     /**
      * Checks that a server exists at the specified URL by sending a request to get the headers from the URL.
@@ -100,7 +125,7 @@ public class Utilities {
         final List<SpecTopic> specTopics = contentSpec.getSpecTopics();
         final List<Integer> topicIds = new ArrayList<Integer>();
         final List<Pair<Integer, Integer>> revisionTopicIds = new ArrayList<Pair<Integer, Integer>>();
-        CollectionWrapper<TopicWrapper> topics = topicProvider.newTopicCollection();
+        final CollectionWrapper<TopicWrapper> topics = topicProvider.newTopicCollection();
 
         // populate the topicIds and revisionTopicIds
         for (final SpecTopic specTopic : specTopics) {
@@ -113,26 +138,9 @@ public class Utilities {
 
         // Check if a maximum revision was specified for processing
         if (!topicIds.isEmpty()) {
-            // Download the list of topics in one go to reduce I/O overhead
+            // Download the list of topics in chunks to reduce I/O overhead
             log.info("Attempting to download all the latest topics...");
-            final RESTTopicQueryBuilderV1 queryBuilder = new RESTTopicQueryBuilderV1();
-            if (topicIds.size() > MAX_DOWNLOAD_SIZE) {
-                int start = 0;
-                while (start < topicIds.size()) {
-                    final List<Integer> subList = topicIds.subList(start, Math.min(start + MAX_DOWNLOAD_SIZE, topicIds.size()));
-                    queryBuilder.setTopicIds(subList);
-                    final CollectionWrapper<TopicWrapper> tempTopics = topicProvider.getTopicsWithQuery(queryBuilder.getQuery());
-
-                    for (final TopicWrapper topic : tempTopics.getItems()) {
-                        topics.addItem(topic);
-                    }
-
-                    start += MAX_DOWNLOAD_SIZE;
-                }
-            } else {
-                queryBuilder.setTopicIds(topicIds);
-                topics = topicProvider.getTopicsWithQuery(queryBuilder.getQuery());
-            }
+            createTopicDownloader(topicProvider).download(topicIds, topics);
         }
 
         if (!revisionTopicIds.isEmpty()) {
@@ -150,23 +158,7 @@ public class Utilities {
     protected static void downloadRevisionTopics(final TopicProvider topicProvider,
             final List<Pair<Integer, Integer>> referencedRevisionTopicIds, final CollectionWrapper<TopicWrapper> topics) {
         log.info("Attempting to download all the revision topics...");
-
-        final int showPercent = 10;
-        final float total = referencedRevisionTopicIds.size();
-        float current = 0;
-        int lastPercent = 0;
-
-        for (final Pair<Integer, Integer> topicToRevision : referencedRevisionTopicIds) {
-            // If we want to update the revisions then we should get the latest topic and not the revision
-            topics.addItem(topicProvider.getTopic(topicToRevision.getFirst(), topicToRevision.getSecond()));
-
-            ++current;
-            final int percent = Math.round(current / total * 100);
-            if (percent - lastPercent >= showPercent) {
-                lastPercent = percent;
-                log.info(String.format("\tDownloading revision topics %d%% Done", percent));
-            }
-        }
+        revisionTopicFetcher.fetch(topicProvider, referencedRevisionTopicIds, topics);
     }
 
     /**
@@ -179,7 +171,19 @@ public class Utilities {
      */
     public static Set<String> getZanataIds(final DataProviderFactory providerFactory,
             final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation) {
-        final TopicProvider topicProvider = providerFactory.getProvider(TopicProvider.class);
+        return getZanataIds(providerFactory.getProvider(TopicProvider.class), translatedContentSpec, latestTranslation);
+    }
+
+    /**
+     * Get the Zanata IDs that represent a Collection of Content Specs and their Topics.
+     *
+     * @param topicProvider         The topic provider to look up the topics with.
+     * @param translatedContentSpec
+     * @param latestTranslation     Whether or not the translated content spec is the latest available translation or not.
+     * @return The Set of Zanata IDs that represent the content specs and topics.
+     */
+    protected static Set<String> getZanataIds(final TopicProvider topicProvider,
+            final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation) {
         final Set<String> zanataIds = new LinkedHashSet<String>();
 
         // Get the zanata ids
@@ -187,6 +191,12 @@ public class Utilities {
 
         final CollectionWrapper<TranslatedCSNodeWrapper> translatedCSNodes = translatedContentSpec.getTranslatedNodes();
 
+        // Download all the topics up front, instead of one at a time
+        prefetchTopics(topicProvider, translatedCSNodes.getItems());
+        if (!latestTranslation) {
+            prefetchPreviousTopics(topicProvider, translatedCSNodes.getItems());
+        }
+
         final int showPercent = 10;
         final float total = translatedCSNodes.size();
         float current = 0;
@@ -196,7 +206,7 @@ public class Utilities {
             final CSNodeWrapper csNode = translatedCSNode.getCSNode();
             // Make sure the node is a topic
             if (EntityUtilities.isNodeATopic(csNode)) {
-                final TranslatedTopicWrapper pushedTopic = getTranslatedTopic(topicProvider, csNode.getEntityId(),
+                final PushedTopic pushedTopic = getTranslatedTopic(topicProvider, csNode.getEntityId(),
                         csNode.getEntityRevision(), translatedCSNode, latestTranslation);
 
                 // If a pushed topic was found then add it
@@ -208,7 +218,7 @@ public class Utilities {
             // Add the info topic if one exists
             if (csNode.getInfoTopicNode() != null) {
                 final CSInfoNodeWrapper csNodeInfo = csNode.getInfoTopicNode();
-                final TranslatedTopicWrapper pushedTopic = getTranslatedTopic(topicProvider, csNodeInfo.getTopicId(),
+                final PushedTopic pushedTopic = getTranslatedTopic(topicProvider, csNodeInfo.getTopicId(),
                         csNodeInfo.getTopicRevision(), translatedCSNode, latestTranslation);
 
                 // If a pushed topic was found then add it
@@ -225,19 +235,166 @@ public class Utilities {
             }
         }
 
+        log.debug("Pushed topic cache: {}", pushedTopicCache);
+
         return zanataIds;
     }
 
-    protected static TranslatedTopicWrapper getTranslatedTopic(final TopicProvider topicProvider, final Integer topicId,
-            final Integer topicRevision, final TranslatedCSNodeWrapper translatedCSNode, boolean latestTranslation) {
-        final TopicWrapper topic = topicProvider.getTopic(topicId, topicRevision);
+    /**
+     * Get the Zanata IDs that represent a Collection of Content Specs and their Topics. If the ids have been looked up in a previous
+     * run then they are loaded from the Zanata id store instead, and if they can't change then they are saved for later runs.
+     *
+     * @param providerFactory
+     * @param translatedContentSpec
+     * @param latestTranslation     Whether or not the translated content spec is the latest available translation or not.
+     * @param zanataIdStore         The store to load and save the ids from, or null if the ids shouldn't be stored.
+     * @return The Set of Zanata IDs that represent the content specs and topics.
+     */
+    public static Set<String> getZanataIds(final DataProviderFactory providerFactory,
+            final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation, final ZanataIdStore zanataIdStore) {
+        if (zanataIdStore == null) {
+            return getZanataIds(providerFactory, translatedContentSpec, latestTranslation);
+        }
 
-        // Try and see if it was pushed with a condition
-        TranslatedTopicWrapper pushedTopic = EntityUtilities.returnPushedTranslatedTopic(topic, translatedCSNode);
-        // If pushed topic is null then it means no condition was used
-        if (pushedTopic == null) {
-            pushedTopic = EntityUtilities.returnPushedTranslatedTopic(topic);
+        final Set<String> storedZanataIds = zanataIdStore.get(translatedContentSpec, latestTranslation);
+        if (storedZanataIds != null) {
+            log.info("Using the cached Zanata document ids for content spec {}", translatedContentSpec.getZanataId());
+            return storedZanataIds;
+        }
+
+        final Set<String> zanataIds = getZanataIds(providerFactory, translatedContentSpec, latestTranslation);
+        if (isFrozen(translatedContentSpec)) {
+            zanataIdStore.put(translatedContentSpec, latestTranslation, zanataIds);
+        }
+
+        return zanataIds;
+    }
+
+    /**
+     * Check if all the topics in a translated content spec are fixed to a revision, in which case the Zanata ids for the
+     * translated content spec can never change.
+     *
+     * @param translatedContentSpec The translated content spec to check.
+     * @return True if every topic in the translated content spec has a revision, otherwise false.
+     */
+    protected static boolean isFrozen(final TranslatedContentSpecWrapper translatedContentSpec) {
+        for (final TranslatedCSNodeWrapper translatedCSNode : translatedContentSpec.getTranslatedNodes().getItems()) {
+            final CSNodeWrapper csNode = translatedCSNode.getCSNode();
+            if (EntityUtilities.isNodeATopic(csNode) && csNode.getEntityRevision() == null) {
+                return false;
+            }
+            if (csNode.getInfoTopicNode() != null && csNode.getInfoTopicNode().getTopicRevision() == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Set the number of topic revisions, or chunks of latest topics, that should be downloaded from PressGang at the same time.
+     *
+     * @param downloads The number of downloads, which must be at least one.
+     */
+    public static void setConcurrentDownloads(final int downloads) {
+        revisionTopicFetcher.setParallelism(downloads);
+        concurrentDownloads = downloads;
+    }
+
+    /**
+     * Get the cache of topics that have been downloaded while looking up Zanata ids.
+     *
+     * @return The shared topic cache.
+     */
+    public static TopicCache getTopicCache() {
+        return topicCache;
+    }
+
+    /**
+     * Get the cache of pushed translated topics that have been found while looking up Zanata ids.
+     *
+     * @return The shared pushed topic cache.
+     */
+    public static PushedTopicCache getPushedTopicCache() {
+        return pushedTopicCache;
+    }
+
+    /**
+     * Get the number of requests that have been made to PressGang for topics and translated content specs.
+     *
+     * @return The number of PressGang requests.
+     */
+    public static long getPressGangRequests() {
+        return pressGangRequests.get();
+    }
+
+    /**
+     * Get the translated content spec closest to a content spec revision, and record the request.
+     *
+     * @param providerFactory     The provider factory to look up the translated content spec with.
+     * @param contentSpecId       The id of the content spec.
+     * @param contentSpecRevision The revision of the content spec, or null for the latest revision.
+     * @return The translated content spec, or null if the content spec has no translations.
+     */
+    public static TranslatedContentSpecWrapper getClosestTranslatedContentSpecById(final DataProviderFactory providerFactory,
+            final Integer contentSpecId, final Integer contentSpecRevision) {
+        pressGangRequests.incrementAndGet();
+        final long startTime = System.nanoTime();
+        try {
+            final TranslatedContentSpecWrapper translatedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(
+                    providerFactory, contentSpecId, contentSpecRevision);
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_GET_TRANSLATED_CONTENT_SPEC, RunMetrics.OK, startTime);
+            return translatedContentSpec;
+        } catch (RuntimeException e) {
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_GET_TRANSLATED_CONTENT_SPEC, RunMetrics.ERROR, startTime);
+            throw e;
+        }
+    }
+
+    /**
+     * Download a topic from PressGang, and record the request.
+     *
+     * @param topicProvider The topic provider to download the topic with.
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision of the topic, or null for the latest revision.
+     * @return The topic.
+     */
+    protected static TopicWrapper downloadTopic(final TopicProvider topicProvider, final Integer topicId, final Integer topicRevision) {
+        pressGangRequests.incrementAndGet();
+        final long startTime = System.nanoTime();
+        try {
+            final TopicWrapper topic = topicProvider.getTopic(topicId, topicRevision);
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_GET_TOPIC, RunMetrics.OK, startTime);
+            return topic;
+        } catch (RuntimeException e) {
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_GET_TOPIC, RunMetrics.ERROR, startTime);
+            throw e;
         }
+    }
+
+    /**
+     * Download the topics that match a query from PressGang, and record the request.
+     *
+     * @param topicProvider The topic provider to download the topics with.
+     * @param query         The topic query.
+     * @return The matching topics.
+     */
+    protected static CollectionWrapper<TopicWrapper> queryTopics(final TopicProvider topicProvider, final String query) {
+        pressGangRequests.incrementAndGet();
+        final long startTime = System.nanoTime();
+        try {
+            final CollectionWrapper<TopicWrapper> topics = topicProvider.getTopicsWithQuery(query);
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_QUERY_TOPICS, RunMetrics.OK, startTime);
+            return topics;
+        } catch (RuntimeException e) {
+            RunMetrics.getInstance().record(RunMetrics.PRESSGANG_QUERY_TOPICS, RunMetrics.ERROR, startTime);
+            throw e;
+        }
+    }
+
+    protected static PushedTopic getTranslatedTopic(final TopicProvider topicProvider, final Integer topicId,
+            final Integer topicRevision, final TranslatedCSNodeWrapper translatedCSNode, boolean latestTranslation) {
+        final PushedTopic pushedTopic = getTranslatedTopic(topicProvider, topicId, topicRevision, translatedCSNode);
 
         // If the topic revision is null and we aren't getting the latest translations, then find the translation before the one that
         // was found
@@ -248,6 +405,181 @@ public class Utilities {
         }
     }
 
+    /**
+     * Get the pushed translated topic for a topic from the pushed topic cache, or download the topic if it isn't cached.
+     *
+     * @return The pushed topic, or null if the topic hasn't been pushed.
+     */
+    protected static PushedTopic getTranslatedTopic(final TopicProvider topicProvider, final Integer topicId,
+            final Integer topicRevision, final TranslatedCSNodeWrapper translatedCSNode) {
+        PushedTopic pushedTopic = pushedTopicCache.get(topicId, topicRevision, translatedCSNode);
+        if (pushedTopic == null) {
+            final TopicWrapper topic = downloadTopic(topicProvider, topicId, topicRevision);
+            pushedTopic = cachePushedTopics(topicId, topicRevision, topic).get(translatedCSNode);
+        }
+
+        return pushedTopic == PushedTopic.NOT_PUSHED ? null : pushedTopic;
+    }
+
+    /**
+     * Find the pushed translated topics for a topic that has been downloaded, and add them to the pushed topic cache so that the
+     * topic itself doesn't need to be kept. Along with the topic pushed without a condition, the topics pushed for a specific
+     * translated content spec node are kept, so the entry can be used for any translated content spec the topic is in.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision the topic was requested with, or null if the latest topic was requested.
+     * @param topic         The downloaded topic.
+     * @return The pushed topics for the topic.
+     */
+    protected static PushedTopicCache.Entry cachePushedTopics(final Integer topicId, final Integer topicRevision,
+            final TopicWrapper topic) {
+        final Map<Integer, PushedTopic> conditionalPushedTopics = new HashMap<Integer, PushedTopic>();
+        final CollectionWrapper<TranslatedTopicWrapper> translatedTopics = topic.getTranslatedTopics();
+        if (translatedTopics != null) {
+            for (final TranslatedTopicWrapper translatedTopic : translatedTopics.getItems()) {
+                final TranslatedCSNodeWrapper translatedCSNode = translatedTopic.getTranslatedCSNode();
+                if (translatedCSNode != null && translatedCSNode.getId() != null
+                        && !conditionalPushedTopics.containsKey(translatedCSNode.getId())) {
+                    // Try and see if it was pushed with a condition for the node
+                    final TranslatedTopicWrapper pushedTopic = EntityUtilities.returnPushedTranslatedTopic(topic, translatedCSNode);
+                    if (pushedTopic != null) {
+                        conditionalPushedTopics.put(translatedCSNode.getId(), PushedTopic.from(pushedTopic));
+                    }
+                }
+            }
+        }
+
+        final PushedTopicCache.Entry entry = new PushedTopicCache.Entry(PushedTopic.from(
+                EntityUtilities.returnPushedTranslatedTopic(topic)), conditionalPushedTopics);
+        pushedTopicCache.put(topicId, topicRevision, entry);
+        return entry;
+    }
+
+    protected static String getTopicKey(final Integer topicId, final Integer topicRevision) {
+        return topicRevision == null ? topicId.toString() : (topicId + "-" + topicRevision);
+    }
+
+    /**
+     * Find the pushed translated topics for all the topics referenced by a set of translated content spec nodes, and add them to
+     * the pushed topic cache. Topics without a revision are downloaded in bulk using a query and topics with a revision are
+     * downloaded concurrently by the revision topic fetcher. Each topic is dropped as soon as its pushed topics have been found,
+     * and topics whose pushed topics are already cached are skipped.
+     *
+     * @param topicProvider     The topic provider to download the topics with.
+     * @param translatedCSNodes The translated content spec nodes to download the topics for.
+     */
+    protected static void prefetchTopics(final TopicProvider topicProvider,
+            final List<TranslatedCSNodeWrapper> translatedCSNodes) {
+        final Set<Integer> topicIds = new LinkedHashSet<Integer>();
+        final Map<String, Pair<Integer, Integer>> revisionTopicIds = new LinkedHashMap<String, Pair<Integer, Integer>>();
+
+        // Collect all the topic ids and revisions
+        for (final TranslatedCSNodeWrapper translatedCSNode : translatedCSNodes) {
+            final CSNodeWrapper csNode = translatedCSNode.getCSNode();
+            if (EntityUtilities.isNodeATopic(csNode)) {
+                addTopicId(csNode.getEntityId(), csNode.getEntityRevision(), topicIds, revisionTopicIds);
+            }
+            if (csNode.getInfoTopicNode() != null) {
+                final CSInfoNodeWrapper csNodeInfo = csNode.getInfoTopicNode();
+                addTopicId(csNodeInfo.getTopicId(), csNodeInfo.getTopicRevision(), topicIds, revisionTopicIds);
+            }
+        }
+
+        // Download the latest topics in bulk
+        if (!topicIds.isEmpty()) {
+            createTopicDownloader(topicProvider).download(new ArrayList<Integer>(topicIds), new TopicDownloader.ChunkHandler() {
+                @Override
+                public void onTopics(final CollectionWrapper<TopicWrapper> latestTopics) {
+                    for (final TopicWrapper topic : latestTopics.getItems()) {
+                        cachePushedTopics(topic.getId(), null, topic);
+                    }
+                }
+            });
+        }
+
+        // Download the revision topics concurrently, sharing any downloads that are already in progress
+        prefetchRevisionTopics(topicProvider, revisionTopicIds);
+    }
+
+    /**
+     * Download the topic revisions before the currently pushed translations for all the latest topics in a set of translated
+     * content spec nodes. These are the topics that will be needed when looking up the previous translations.
+     */
+    protected static void prefetchPreviousTopics(final TopicProvider topicProvider,
+            final List<TranslatedCSNodeWrapper> translatedCSNodes) {
+        final Map<String, Pair<Integer, Integer>> revisionTopicIds = new LinkedHashMap<String, Pair<Integer, Integer>>();
+        for (final TranslatedCSNodeWrapper translatedCSNode : translatedCSNodes) {
+            final CSNodeWrapper csNode = translatedCSNode.getCSNode();
+            if (EntityUtilities.isNodeATopic(csNode) && csNode.getEntityRevision() == null) {
+                addPreviousTopicId(csNode.getEntityId(), translatedCSNode, revisionTopicIds);
+            }
+            if (csNode.getInfoTopicNode() != null && csNode.getInfoTopicNode().getTopicRevision() == null) {
+                addPreviousTopicId(csNode.getInfoTopicNode().getTopicId(), translatedCSNode, revisionTopicIds);
+            }
+        }
+
+        prefetchRevisionTopics(topicProvider, revisionTopicIds);
+    }
+
+    private static void addPreviousTopicId(final Integer topicId, final TranslatedCSNodeWrapper translatedCSNode,
+            final Map<String, Pair<Integer, Integer>> revisionTopicIds) {
+        final PushedTopic pushedTopic = pushedTopicCache.get(topicId, null, translatedCSNode);
+        if (pushedTopic != null && pushedTopic != PushedTopic.NOT_PUSHED) {
+            final Integer previousRevision = pushedTopic.getTopicRevision() - 1;
+            if (!pushedTopicCache.contains(topicId, previousRevision)) {
+                revisionTopicIds.put(getTopicKey(topicId, previousRevision), new Pair<Integer, Integer>(topicId, previousRevision));
+            }
+        }
+    }
+
+    private static void addTopicId(final Integer topicId, final Integer topicRevision, final Set<Integer> topicIds,
+            final Map<String, Pair<Integer, Integer>> revisionTopicIds) {
+        if (pushedTopicCache.contains(topicId, topicRevision)) {
+            return;
+        } else if (topicRevision == null) {
+            topicIds.add(topicId);
+        } else {
+            revisionTopicIds.put(getTopicKey(topicId, topicRevision), new Pair<Integer, Integer>(topicId, topicRevision));
+        }
+    }
+
+    /**
+     * Create a downloader for the latest revisions of topics, that downloads as many chunks at the same time as topic revisions.
+     *
+     * @param topicProvider The topic provider to download the topics with.
+     * @return The downloader.
+     */
+    public static TopicDownloader createTopicDownloader(final TopicProvider topicProvider) {
+        return new TopicDownloader(topicProvider, concurrentDownloads);
+    }
+
+    /**
+     * Download a set of topic revisions using the shared revision topic fetcher, and add their pushed translated topics to the pushed
+     * topic cache. Any topics that fail to download are left out of the cache, so that they are downloaded (and any errors
+     * reported) when they are actually used.
+     *
+     * @param topicProvider    The topic provider to download the topics with.
+     * @param revisionTopicIds The topic ids and revisions to download, mapped by their topic key.
+     */
+    protected static void prefetchRevisionTopics(final TopicProvider topicProvider,
+            final Map<String, Pair<Integer, Integer>> revisionTopicIds) {
+        if (revisionTopicIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            revisionTopicFetcher.fetch(topicProvider, new ArrayList<Pair<Integer, Integer>>(revisionTopicIds.values()),
+                    new RevisionTopicFetcher.TopicHandler() {
+                        @Override
+                        public void onTopic(final Integer topicId, final Integer topicRevision, final TopicWrapper topic) {
+                            cachePushedTopics(topicId, topicRevision, topic);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.debug("Failed to download the revision topics", e);
+        }
+    }
+
     /**
      * Validate that a Language is a valid language as defined by the server.
      *
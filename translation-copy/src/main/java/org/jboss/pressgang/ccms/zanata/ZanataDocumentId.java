@@ -0,0 +1,182 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.Comparator;
+
+/**
+ * A parsed Zanata document id. Topic documents have ids in the form of {@code <id>-<revision>[-<condition>]} and content spec
+ * documents have ids in the form of {@code CS<id>-<revision>[-<condition>]}, where the condition is the id of the translated
+ * content spec node the document was pushed for.
+ * <p/>
+ * Ids are ordered by their id, then their revision and then their condition, where a missing segment sorts before any value.
+ */
+public final class ZanataDocumentId implements Comparable<ZanataDocumentId> {
+    private static final String CONTENT_SPEC_PREFIX = "CS";
+    /**
+     * The value used for a segment that isn't in the id. Ids, revisions and conditions are never negative.
+     */
+    public static final int NONE = -1;
+    /**
+     * Orders ids by their revision, and then by their natural order. PressGang revision numbers are shared by every entity and
+     * only ever increase, so this orders documents by when they were revised, with the most recently revised document last.
+     */
+    public static final Comparator<ZanataDocumentId> REVISION_ORDER = new Comparator<ZanataDocumentId>() {
+        @Override
+        public int compare(final ZanataDocumentId zanataId1, final ZanataDocumentId zanataId2) {
+            if (zanataId1.revision != zanataId2.revision) {
+                return zanataId1.revision < zanataId2.revision ? -1 : 1;
+            }
+            return zanataId1.compareTo(zanataId2);
+        }
+    };
+
+    private final String zanataId;
+    private final boolean contentSpec;
+    private final int id;
+    private final int revision;
+    private final int condition;
+
+    private ZanataDocumentId(final String zanataId) {
+        this.zanataId = zanataId;
+        contentSpec = zanataId.startsWith(CONTENT_SPEC_PREFIX);
+        id = getSegment(zanataId, 0);
+        revision = getSegment(zanataId, 1);
+        condition = getSegment(zanataId, 2);
+        if (id == NONE) {
+            throw new NumberFormatException("\"" + zanataId + "\" is not a valid Zanata document id");
+        }
+    }
+
+    /**
+     * Parse a Zanata document id.
+     *
+     * @param zanataId The Zanata document id.
+     * @return The parsed id.
+     * @throws NumberFormatException Thrown if the id isn't a valid Zanata document id.
+     */
+    public static ZanataDocumentId parse(final String zanataId) {
+        return new ZanataDocumentId(zanataId);
+    }
+
+    public boolean isContentSpec() {
+        return contentSpec;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The revision, or {@link #NONE} if the id has no revision.
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return The condition, or {@link #NONE} if the id has no condition.
+     */
+    public int getCondition() {
+        return condition;
+    }
+
+    @Override
+    public int compareTo(final ZanataDocumentId zanataId) {
+        if (id != zanataId.id) {
+            return id < zanataId.id ? -1 : 1;
+        } else if (revision != zanataId.revision) {
+            return revision < zanataId.revision ? -1 : 1;
+        } else if (condition != zanataId.condition) {
+            return condition < zanataId.condition ? -1 : 1;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Compare two unparsed Zanata document ids, using the same ordering as {@link #compareTo(ZanataDocumentId)}. The ids are
+     * compared in place, so no objects are allocated.
+     *
+     * @param zanataId1 The first Zanata document id.
+     * @param zanataId2 The second Zanata document id.
+     * @return A negative number, zero or a positive number if the first id is less than, equal to or greater than the second id.
+     */
+    public static int compare(final String zanataId1, final String zanataId2) {
+        for (int i = 0; i < 3; i++) {
+            final int segment1 = getSegment(zanataId1, i);
+            final int segment2 = getSegment(zanataId2, i);
+            if (segment1 != segment2) {
+                return segment1 < segment2 ? -1 : 1;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the numeric value of a segment of an unparsed Zanata document id.
+     *
+     * @param zanataId The Zanata document id.
+     * @param index    The index of the segment, where 0 is the id, 1 is the revision and 2 is the condition.
+     * @return The value of the segment, or {@link #NONE} if the id doesn't have the segment.
+     * @throws NumberFormatException Thrown if the segment isn't a number.
+     */
+    protected static int getSegment(final String zanataId, final int index) {
+        final int length = zanataId.length();
+        int pos = zanataId.startsWith(CONTENT_SPEC_PREFIX) ? CONTENT_SPEC_PREFIX.length() : 0;
+
+        // Skip to the start of the segment
+        for (int i = 0; i < index; i++) {
+            while (pos < length && zanataId.charAt(pos) != '-') {
+                pos++;
+            }
+            if (pos >= length) {
+                return NONE;
+            }
+            pos++;
+        }
+
+        // Parse the segment
+        final int start = pos;
+        int value = 0;
+        while (pos < length && zanataId.charAt(pos) != '-') {
+            final char c = zanataId.charAt(pos);
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                throw new NumberFormatException("\"" + zanataId + "\" is not a valid Zanata document id");
+            }
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+
+        if (pos == start) {
+            throw new NumberFormatException("\"" + zanataId + "\" is not a valid Zanata document id");
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ZanataDocumentId)) return false;
+
+        final ZanataDocumentId that = (ZanataDocumentId) o;
+        return contentSpec == that.contentSpec && id == that.id && revision == that.revision && condition == that.condition;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = contentSpec ? 1 : 0;
+        result = 31 * result + id;
+        result = 31 * result + revision;
+        result = 31 * result + condition;
+        return result;
+    }
+
+    /**
+     * @return The original Zanata document id.
+     */
+    @Override
+    public String toString() {
+        return zanataId;
+    }
+}
@@ -0,0 +1,125 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable index of Zanata document ids, that groups the topic documents by their topic id. The documents are held in a
+ * single sorted array, so looking up the documents for a topic is a binary search over the topic ids and doesn't allocate.
+ * <p/>
+ * Content spec documents are all kept in a single group, as a content spec can be copied from any other content spec. They are
+ * ordered by revision rather than by id, as a content spec with a higher id isn't necessarily the most recently revised.
+ */
+public class ZanataDocumentIdIndex {
+    private final ZanataDocumentId[] documentIds;
+    /**
+     * The distinct topic ids, sorted in ascending order.
+     */
+    private final int[] topicIds;
+    /**
+     * The index into {@link #documentIds} where the documents for each topic id start. There is an extra element at the end, so
+     * the documents for a topic are always between {@code starts[i]} and {@code starts[i + 1]}.
+     */
+    private final int[] starts;
+    private final List<ZanataDocumentId> contentSpecIds;
+
+    public ZanataDocumentIdIndex(final Collection<String> zanataIds) {
+        final List<ZanataDocumentId> topicDocumentIds = new ArrayList<ZanataDocumentId>(zanataIds.size());
+        final List<ZanataDocumentId> contentSpecDocumentIds = new ArrayList<ZanataDocumentId>();
+        for (final String zanataId : zanataIds) {
+            final ZanataDocumentId documentId = ZanataDocumentId.parse(zanataId);
+            if (documentId.isContentSpec()) {
+                contentSpecDocumentIds.add(documentId);
+            } else {
+                topicDocumentIds.add(documentId);
+            }
+        }
+
+        // Sort the documents, so that the documents for each topic are next to each other with the newest last
+        documentIds = topicDocumentIds.toArray(new ZanataDocumentId[topicDocumentIds.size()]);
+        Arrays.sort(documentIds);
+        Collections.sort(contentSpecDocumentIds, ZanataDocumentId.REVISION_ORDER);
+        contentSpecIds = Collections.unmodifiableList(contentSpecDocumentIds);
+
+        // Find where each topic starts
+        int numTopics = 0;
+        final int[] allTopicIds = new int[documentIds.length];
+        final int[] allStarts = new int[documentIds.length + 1];
+        for (int i = 0; i < documentIds.length; i++) {
+            if (i == 0 || documentIds[i].getId() != documentIds[i - 1].getId()) {
+                allTopicIds[numTopics] = documentIds[i].getId();
+                allStarts[numTopics] = i;
+                numTopics++;
+            }
+        }
+        allStarts[numTopics] = documentIds.length;
+
+        topicIds = Arrays.copyOf(allTopicIds, numTopics);
+        starts = Arrays.copyOf(allStarts, numTopics + 1);
+    }
+
+    /**
+     * Get the newest document for a topic.
+     *
+     * @param topicId The topic id.
+     * @return The newest document for the topic, or null if the index has no documents for the topic.
+     */
+    public ZanataDocumentId getLatest(final int topicId) {
+        final int i = Arrays.binarySearch(topicIds, topicId);
+        return i < 0 ? null : documentIds[starts[i + 1] - 1];
+    }
+
+    /**
+     * Get the newest document for the same topic as a document, preferring documents that were pushed with the same condition.
+     *
+     * @param documentId The document to find the newest document for.
+     * @return The newest document for the topic with the same condition, otherwise the newest document for the topic, or null if
+     *         the index has no documents for the topic.
+     */
+    public ZanataDocumentId getLatest(final ZanataDocumentId documentId) {
+        final int i = Arrays.binarySearch(topicIds, documentId.getId());
+        if (i < 0) {
+            return null;
+        }
+
+        for (int j = starts[i + 1] - 1; j >= starts[i]; j--) {
+            if (documentIds[j].getCondition() == documentId.getCondition()) {
+                return documentIds[j];
+            }
+        }
+
+        return documentIds[starts[i + 1] - 1];
+    }
+
+    /**
+     * Get all the documents for a topic.
+     *
+     * @param topicId The topic id.
+     * @return The documents for the topic sorted oldest first, or an empty list if the index has no documents for the topic.
+     */
+    public List<ZanataDocumentId> getDocuments(final int topicId) {
+        final int i = Arrays.binarySearch(topicIds, topicId);
+        if (i < 0) {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(documentIds).subList(starts[i], starts[i + 1]));
+    }
+
+    /**
+     * @return The content spec documents sorted by revision, with the most recently revised last.
+     */
+    public List<ZanataDocumentId> getContentSpecs() {
+        return contentSpecIds;
+    }
+
+    /**
+     * @return The number of distinct topics in the index.
+     */
+    public int getTopicCount() {
+        return topicIds.length;
+    }
+}
@@ -0,0 +1,263 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A rate limiter for calls made to the Zanata REST API. Each type of call has its own token bucket, so that reads, writes and
+ * CopyTrans runs are budgeted separately. The buckets allow short bursts of calls and adapt their rate to how the server is
+ * responding, backing off when the server is throttling or overloaded and ramping back up while responses are healthy.
+ */
+public class ZanataRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(ZanataRateLimiter.class);
+
+    /**
+     * The types of calls that have their own budget.
+     */
+    public static enum CallType {
+        READ, WRITE, COPY_TRANS
+    }
+
+    /**
+     * The number of calls that can be made in a burst, once a bucket has filled up.
+     */
+    private static final int DEFAULT_BURST_SIZE = 5;
+    /**
+     * How far above the configured rate a bucket is allowed to ramp up to.
+     */
+    private static final double MAX_RATE_MULTIPLIER = 4.0;
+    /**
+     * How far below the configured rate a bucket is allowed to back off to.
+     */
+    private static final double MIN_RATE_MULTIPLIER = 0.05;
+    /**
+     * CopyTrans is one of the most expensive operations on the server, so it gets a smaller budget than other calls.
+     */
+    private static final double COPY_TRANS_RATE_MULTIPLIER = 0.25;
+    /**
+     * Responses faster than this are considered healthy and allow the rate to increase.
+     */
+    private static final long HEALTHY_LATENCY_MILLIS = 1000;
+    /**
+     * Responses slower than this are a sign the server is struggling and cause the rate to decrease.
+     */
+    private static final long SLOW_LATENCY_MILLIS = 5000;
+    /**
+     * The time to pause a bucket for, when the server is throttling and didn't say how long to wait.
+     */
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 5000;
+
+    private final Map<CallType, TokenBucket> buckets = new EnumMap<CallType, TokenBucket>(CallType.class);
+
+    /**
+     * Create a rate limiter from the minimum interval that should be waited between Zanata REST calls.
+     *
+     * @param callInterval The minimum call interval in seconds. An interval of zero or less disables rate limiting.
+     */
+    public ZanataRateLimiter(final double callInterval) {
+        this(callInterval <= 0 ? 0 : 1.0 / callInterval, DEFAULT_BURST_SIZE);
+    }
+
+    /**
+     * @param callsPerSecond The initial number of calls per second allowed for reads and writes. Zero or less disables rate limiting.
+     * @param burstSize      The maximum number of calls that can be made in a burst.
+     */
+    public ZanataRateLimiter(final double callsPerSecond, final int burstSize) {
+        buckets.put(CallType.READ, new TokenBucket(callsPerSecond, burstSize));
+        buckets.put(CallType.WRITE, new TokenBucket(callsPerSecond, burstSize));
+        buckets.put(CallType.COPY_TRANS, new TokenBucket(callsPerSecond * COPY_TRANS_RATE_MULTIPLIER, Math.max(1, burstSize / 2)));
+    }
+
+    /**
+     * Wait until a call of the specified type is allowed to be made.
+     *
+     * @param type The type of call to be made.
+     */
+    public void acquire(final CallType type) {
+        final long waitTime = reserve(type);
+        if (waitTime > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reserve a call of the specified type, without waiting for it to be allowed.
+     *
+     * @param type The type of call to be made.
+     * @return The time in nanoseconds that the caller has to wait, before the call can be made.
+     */
+    protected long reserve(final CallType type) {
+        return buckets.get(type).reserve();
+    }
+
+    /**
+     * Let the rate limiter know how a call went, so it can adapt the rate calls are made at.
+     *
+     * @param type          The type of call that was made.
+     * @param statusCode    The HTTP status code of the response.
+     * @param retryAfter    The value of the responses Retry-After header, or null if it wasn't set.
+     * @param latencyMillis How long the call took in milliseconds.
+     */
+    public void onResponse(final CallType type, final int statusCode, final String retryAfter, final long latencyMillis) {
+        if (statusCode == 429 || statusCode == 503) {
+            onThrottled(type, parseRetryAfter(retryAfter));
+        } else {
+            onSuccess(type, latencyMillis);
+        }
+    }
+
+    /**
+     * Let the rate limiter know that a call completed, so it can adapt the rate based on the latency of the call.
+     *
+     * @param type          The type of call that was made.
+     * @param latencyMillis How long the call took in milliseconds.
+     */
+    public void onSuccess(final CallType type, final long latencyMillis) {
+        final TokenBucket bucket = buckets.get(type);
+        if (latencyMillis <= HEALTHY_LATENCY_MILLIS) {
+            bucket.increaseRate();
+        } else if (latencyMillis >= SLOW_LATENCY_MILLIS) {
+            bucket.decreaseRate(0.9);
+        }
+    }
+
+    /**
+     * Let the rate limiter know that the server is throttling or is unavailable, so that calls are paused and the rate is reduced.
+     *
+     * @param type             The type of call that was throttled.
+     * @param retryAfterMillis How long the server asked us to wait, in milliseconds.
+     */
+    public void onThrottled(final CallType type, final long retryAfterMillis) {
+        log.debug("Zanata is throttling {} calls, backing off for {} ms", type, retryAfterMillis);
+        final TokenBucket bucket = buckets.get(type);
+        bucket.decreaseRate(0.5);
+        bucket.pause(retryAfterMillis);
+    }
+
+    /**
+     * Get the current rate of calls per second for a type of call.
+     *
+     * @param type The type of call.
+     * @return The current number of calls per second allowed, or zero if the rate isn't limited.
+     */
+    public double getRate(final CallType type) {
+        return buckets.get(type).getRate();
+    }
+
+    /**
+     * Parse a Retry-After header value, which can either be a number of seconds or a HTTP date.
+     *
+     * @param retryAfter The header value.
+     * @return The number of milliseconds to wait.
+     */
+    protected static long parseRetryAfter(final String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                final Date date = format.parse(retryAfter.trim());
+                return Math.max(0, date.getTime() - System.currentTimeMillis());
+            } catch (ParseException ex) {
+                return DEFAULT_RETRY_AFTER_MILLIS;
+            }
+        }
+    }
+
+    /**
+     * A token bucket that refills at an adjustable rate. Tokens are reserved ahead of time, so waiting for a token happens
+     * outside of the lock and concurrent callers are queued up fairly.
+     */
+    private static class TokenBucket {
+        private final double initialRate;
+        private final double minRate;
+        private final double maxRate;
+        private final double capacity;
+        private double rate;
+        private double tokens;
+        private long lastRefillTime;
+        private long pausedUntil;
+
+        TokenBucket(final double rate, final int capacity) {
+            this.initialRate = rate;
+            this.minRate = rate * MIN_RATE_MULTIPLIER;
+            this.maxRate = rate * MAX_RATE_MULTIPLIER;
+            this.capacity = capacity;
+            this.rate = rate;
+            this.tokens = capacity;
+            this.lastRefillTime = System.nanoTime();
+            this.pausedUntil = lastRefillTime;
+        }
+
+        /**
+         * Reserve a token from the bucket.
+         *
+         * @return The time in nanoseconds that the caller has to wait, before the reserved token can be used.
+         */
+        synchronized long reserve() {
+            if (rate <= 0) {
+                return 0;
+            }
+
+            final long now = System.nanoTime();
+            refill(now);
+            tokens -= 1;
+
+            // Any debt is paid off after the pause is over, so the callers that queued up during a pause are spread out rather than
+            // all waking up when it ends
+            final long pauseTime = Math.max(0, pausedUntil - now);
+            return pauseTime + (long) (Math.max(0, -tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized void increaseRate() {
+            if (rate > 0) {
+                // Additive increase, so it takes a while of healthy responses to get back up to full speed
+                rate = Math.min(maxRate, rate + initialRate * 0.05);
+            }
+        }
+
+        synchronized void decreaseRate(final double factor) {
+            if (rate > 0) {
+                refill(System.nanoTime());
+                rate = Math.max(minRate, rate * factor);
+            }
+        }
+
+        synchronized void pause(final long millis) {
+            final long now = System.nanoTime();
+            refill(now);
+            pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(millis));
+            // Don't let a burst of calls hit the server as soon as the pause is over
+            tokens = Math.min(tokens, 0);
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        private void refill(final long now) {
+            if (now > lastRefillTime) {
+                // No tokens are added while the bucket is paused
+                final long refillFrom = Math.max(lastRefillTime, Math.min(pausedUntil, now));
+                tokens = Math.min(capacity, tokens + (now - refillFrom) * rate / TimeUnit.SECONDS.toNanos(1));
+                lastRefillTime = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedCSNodeWrapper;
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.jboss.pressgang.ccms.zanata.PushedTopic;
+import org.jboss.pressgang.ccms.zanata.PushedTopicCache;
+import org.jboss.pressgang.ccms.zanata.Utilities;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PushedTopicCacheTest extends Utilities {
+    @Before
+    public void setUp() {
+        getPushedTopicCache().clear();
+    }
+
+    @Test
+    public void shouldUseTheConditionalPushedTopicForItsNode() {
+        // Given a topic that was pushed without a condition, and pushed with a condition for node 7
+        final PushedTopic pushedTopic = new PushedTopic("5-10", 10);
+        final PushedTopic conditionalPushedTopic = new PushedTopic("5-10-7", 10);
+        final Map<Integer, PushedTopic> conditionalPushedTopics = new HashMap<Integer, PushedTopic>();
+        conditionalPushedTopics.put(7, conditionalPushedTopic);
+        final PushedTopicCache cache = new PushedTopicCache(10);
+        cache.put(5, 10, new PushedTopicCache.Entry(pushedTopic, conditionalPushedTopics));
+
+        // When
+        final PushedTopic nodePushedTopic = cache.get(5, 10, createTranslatedCSNode(7));
+        final PushedTopic otherNodePushedTopic = cache.get(5, 10, createTranslatedCSNode(8));
+
+        // Then
+        assertThat(nodePushedTopic, is(conditionalPushedTopic));
+        assertThat(otherNodePushedTopic, is(pushedTopic));
+        assertNull(cache.get(5, null, createTranslatedCSNode(7)));
+        assertTrue(cache.contains(5, 10));
+        assertFalse(cache.contains(5, 11));
+    }
+
+    @Test
+    public void shouldOnlyDownloadATopicOnceForDifferentTranslatedContentSpecs() {
+        // Given two translated content specs, whose translated nodes for the same topic revision have different ids
+        final AtomicInteger downloads = new AtomicInteger();
+        final TopicProvider topicProvider = createTopicProvider(downloads);
+        final TranslatedCSNodeWrapper firstNode = createTranslatedCSNode(100);
+        final TranslatedCSNodeWrapper secondNode = createTranslatedCSNode(200);
+
+        // When
+        final PushedTopic firstPushedTopic = getTranslatedTopic(topicProvider, 5, 10, firstNode);
+        final PushedTopic secondPushedTopic = getTranslatedTopic(topicProvider, 5, 10, secondNode);
+
+        // Then the second content spec should reuse the first download
+        assertThat(downloads.get(), is(1));
+        assertThat(secondPushedTopic, is(firstPushedTopic));
+        assertThat(getPushedTopicCache().size(), is(1));
+    }
+
+    private static TranslatedCSNodeWrapper createTranslatedCSNode(final Integer id) {
+        return createProxy(TranslatedCSNodeWrapper.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getId")) {
+                    return id;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static TopicProvider createTopicProvider(final AtomicInteger downloads) {
+        return createProxy(TopicProvider.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getTopic") && args.length == 2) {
+                    downloads.incrementAndGet();
+                    return createTopic((Integer) args[0], (Integer) args[1]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TopicWrapper createTopic(final Integer id, final Integer revision) {
+        final List<TranslatedTopicWrapper> translatedTopics = new ArrayList<TranslatedTopicWrapper>();
+        final CollectionWrapper<TranslatedTopicWrapper> translatedTopicCollection = createProxy(CollectionWrapper.class,
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (method.getName().equals("getItems")) {
+                            return translatedTopics;
+                        } else if (method.getName().equals("size")) {
+                            return translatedTopics.size();
+                        }
+                        return null;
+                    }
+                });
+        return createProxy(TopicWrapper.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getId")) {
+                    return id;
+                } else if (method.getName().equals("getRevision")) {
+                    return revision;
+                } else if (method.getName().equals("getTranslatedTopics")) {
+                    return translatedTopicCollection;
+                }
+                return null;
+            }
+        });
+    }
+
+    private static <T> T createProxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(PushedTopicCacheTest.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
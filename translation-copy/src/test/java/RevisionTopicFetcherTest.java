@@ -0,0 +1,200 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.utils.structures.Pair;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.jboss.pressgang.ccms.zanata.RevisionTopicFetcher;
+import org.jboss.pressgang.ccms.zanata.TopicCache;
+import org.junit.Test;
+
+public class RevisionTopicFetcherTest {
+    @Test(timeout = 5000)
+    public void shouldOnlyDownloadADuplicateRevisionOnce() {
+        // Given
+        final FakeTopicProvider topicProvider = new FakeTopicProvider(null);
+        final RevisionTopicFetcher fetcher = new RevisionTopicFetcher(null);
+        final CollectionWrapper<TopicWrapper> topics = createTopicCollection();
+
+        // When
+        fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10, 2, 20, 1, 10), topics);
+
+        // Then each topic should still be listed in the order it was requested
+        assertThat(topicProvider.getDownloads(), is(2));
+        assertThat(getTopicKeys(topics), is(Arrays.asList("1-10", "2-20", "1-10")));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldShareADownloadThatIsAlreadyInFlight() throws InterruptedException {
+        // Given a download that is waiting on the server
+        final CountDownLatch release = new CountDownLatch(1);
+        final FakeTopicProvider topicProvider = new FakeTopicProvider(release);
+        final RevisionTopicFetcher fetcher = new RevisionTopicFetcher(null);
+        final CollectionWrapper<TopicWrapper> firstTopics = createTopicCollection();
+        final Thread first = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10), firstTopics);
+            }
+        });
+        first.start();
+        topicProvider.awaitDownloads(1);
+
+        // When another thread asks for the same revision
+        final CollectionWrapper<TopicWrapper> secondTopics = createTopicCollection();
+        final Thread second = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10), secondTopics);
+            }
+        });
+        second.start();
+        Thread.sleep(100);
+        release.countDown();
+        first.join();
+        second.join();
+
+        // Then both threads should get the topic from the one download
+        assertThat(topicProvider.getDownloads(), is(1));
+        assertThat(getTopicKeys(firstTopics), is(Arrays.asList("1-10")));
+        assertThat(getTopicKeys(secondTopics), is(Arrays.asList("1-10")));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldNotDownloadACachedRevision() {
+        // Given
+        final FakeTopicProvider topicProvider = new FakeTopicProvider(null);
+        final RevisionTopicFetcher fetcher = new RevisionTopicFetcher(new TopicCache(10));
+        fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10), createTopicCollection());
+
+        // When
+        final CollectionWrapper<TopicWrapper> topics = createTopicCollection();
+        fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10), topics);
+
+        // Then
+        assertThat(topicProvider.getDownloads(), is(1));
+        assertThat(getTopicKeys(topics), is(Arrays.asList("1-10")));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldPassEachTopicToTheHandlerInOrder() {
+        // Given
+        final FakeTopicProvider topicProvider = new FakeTopicProvider(null);
+        final RevisionTopicFetcher fetcher = new RevisionTopicFetcher(null);
+        final List<String> handledTopics = new ArrayList<String>();
+
+        // When
+        fetcher.fetch(topicProvider.getProxy(), revisionTopicIds(1, 10, 2, 20, 3, 30), new RevisionTopicFetcher.TopicHandler() {
+            @Override
+            public void onTopic(final Integer topicId, final Integer topicRevision, final TopicWrapper topic) {
+                handledTopics.add(topicId + "-" + topicRevision + "=" + topic.getId() + "-" + topic.getRevision());
+            }
+        });
+
+        // Then
+        assertThat(handledTopics, is(Arrays.asList("1-10=1-10", "2-20=2-20", "3-30=3-30")));
+    }
+
+    private static List<Pair<Integer, Integer>> revisionTopicIds(final Integer... idsAndRevisions) {
+        final List<Pair<Integer, Integer>> revisionTopicIds = new ArrayList<Pair<Integer, Integer>>();
+        for (int i = 0; i < idsAndRevisions.length; i += 2) {
+            revisionTopicIds.add(new Pair<Integer, Integer>(idsAndRevisions[i], idsAndRevisions[i + 1]));
+        }
+        return revisionTopicIds;
+    }
+
+    private static List<String> getTopicKeys(final CollectionWrapper<TopicWrapper> topics) {
+        final List<String> keys = new ArrayList<String>();
+        for (final TopicWrapper topic : topics.getItems()) {
+            keys.add(topic.getId() + "-" + topic.getRevision());
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CollectionWrapper<TopicWrapper> createTopicCollection() {
+        final List<TopicWrapper> items = new ArrayList<TopicWrapper>();
+        return createProxy(CollectionWrapper.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("addItem")) {
+                    items.add((TopicWrapper) args[0]);
+                    return null;
+                } else if (method.getName().equals("getItems")) {
+                    return items;
+                } else if (method.getName().equals("size")) {
+                    return items.size();
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static TopicWrapper createTopic(final Integer id, final Integer revision) {
+        return createProxy(TopicWrapper.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getId")) {
+                    return id;
+                } else if (method.getName().equals("getRevision")) {
+                    return revision;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static <T> T createProxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(RevisionTopicFetcherTest.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * A topic provider that counts the topic revisions it downloads, and can hold the downloads until it's released.
+     */
+    private static class FakeTopicProvider implements InvocationHandler {
+        private final CountDownLatch release;
+        private final AtomicInteger downloads = new AtomicInteger();
+
+        private FakeTopicProvider(final CountDownLatch release) {
+            this.release = release;
+        }
+
+        public TopicProvider getProxy() {
+            return createProxy(TopicProvider.class, this);
+        }
+
+        public int getDownloads() {
+            return downloads.get();
+        }
+
+        public void awaitDownloads(final int count) throws InterruptedException {
+            while (downloads.get() < count) {
+                Thread.sleep(10);
+            }
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws InterruptedException {
+            if (method.getName().equals("getTopic") && args.length == 2) {
+                downloads.incrementAndGet();
+                if (release != null) {
+                    assertTrue(release.await(2, TimeUnit.SECONDS));
+                }
+                return createTopic((Integer) args[0], (Integer) args[1]);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
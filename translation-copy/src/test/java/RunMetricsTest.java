@@ -0,0 +1,82 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.jboss.pressgang.ccms.zanata.RunMetrics;
+import org.junit.Test;
+
+public class RunMetricsTest {
+    @Test
+    public void shouldReportQuantilesWithinTheHistogramPrecision() {
+        // Given
+        final RunMetrics.LatencyHistogram histogram = new RunMetrics.LatencyHistogram();
+
+        // When 1ms to 1000ms are each recorded once
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        // Then
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMax(), is(1000000L));
+        assertWithinPrecision(histogram.getValueAtQuantile(0.5), 500000L);
+        assertWithinPrecision(histogram.getValueAtQuantile(0.99), 990000L);
+        assertThat(histogram.getValueAtQuantile(1.0), is(1000000L));
+    }
+
+    @Test
+    public void shouldReportSmallValuesExactly() {
+        // Given
+        final RunMetrics.LatencyHistogram histogram = new RunMetrics.LatencyHistogram();
+
+        // When
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(100);
+
+        // Then
+        assertThat(histogram.getValueAtQuantile(0.0), is(3L));
+        assertThat(histogram.getValueAtQuantile(0.5), is(7L));
+        assertThat(histogram.getValueAtQuantile(0.9), is(100L));
+        assertThat(histogram.getSum(), is(110L));
+    }
+
+    @Test
+    public void shouldReturnZeroForAnEmptyHistogram() {
+        assertThat(new RunMetrics.LatencyHistogram().getValueAtQuantile(0.99), is(0L));
+    }
+
+    @Test
+    public void shouldExportRecordedCallsAsAPrometheusSummary() {
+        // Given
+        final long startTime = System.nanoTime();
+        RunMetrics.getInstance().record("test_endpoint", 201, startTime);
+        RunMetrics.getInstance().record("test_endpoint", 201, startTime);
+
+        // When
+        final String text = RunMetrics.getInstance().toPrometheus("test");
+
+        // Then
+        assertThat(text.contains("# TYPE zanata_tools_request_duration_seconds summary\n"), is(true));
+        assertThat(text.contains("zanata_tools_request_duration_seconds_count{tool=\"test\",endpoint=\"test_endpoint\",status=\"201\"} 2\n"),
+                is(true));
+    }
+
+    @Test
+    public void shouldExportCountersAsPrometheusCounters() {
+        // Given
+        RunMetrics.getInstance().increment("test_bytes", 100);
+        RunMetrics.getInstance().increment("test_bytes", 28);
+
+        // When
+        final String text = RunMetrics.getInstance().toPrometheus("test");
+
+        // Then
+        assertThat(RunMetrics.getInstance().getCounter("test_bytes"), is(128L));
+        assertThat(RunMetrics.getInstance().getCounter("test_missing"), is(0L));
+        assertThat(text.contains("zanata_tools_test_bytes_total{tool=\"test\"} 128\n"), is(true));
+    }
+
+    private static void assertWithinPrecision(final long actual, final long expected) {
+        assertThat("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.016, is(true));
+    }
+}
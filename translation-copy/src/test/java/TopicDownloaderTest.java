@@ -0,0 +1,107 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.jboss.pressgang.ccms.zanata.TopicDownloader;
+import org.junit.Test;
+
+public class TopicDownloaderTest {
+    @Test
+    public void shouldGrowTheChunksWhenTheServerIsFast() {
+        // Given a server that takes a quarter of a millisecond per topic, and a target of 200 milliseconds per chunk
+        final RecordingTopicDownloader downloader = new RecordingTopicDownloader(200, 0.25);
+
+        // When
+        downloader.download(createTopicIds(1, 2000), new NoopHandler());
+
+        // Then the chunks after the first should grow to fill the target
+        final List<Integer> chunkSizes = downloader.getChunkSizes();
+        assertThat(chunkSizes.get(0), is(TopicDownloader.INITIAL_CHUNK_SIZE));
+        assertTrue(chunkSizes.get(1) > TopicDownloader.INITIAL_CHUNK_SIZE && chunkSizes.get(1) <= 800);
+        assertThat(downloader.getTopicIds(), is(createTopicIds(1, 2000)));
+    }
+
+    @Test
+    public void shouldShrinkTheChunksWhenTheServerIsSlow() {
+        // Given a server that takes half a millisecond per topic, and a target of 100 milliseconds per chunk
+        final RecordingTopicDownloader downloader = new RecordingTopicDownloader(100, 0.5);
+
+        // When
+        downloader.download(createTopicIds(1, 800), new NoopHandler());
+
+        // Then the chunks after the first should take no more than the target
+        final List<Integer> chunkSizes = downloader.getChunkSizes();
+        assertThat(chunkSizes.get(0), is(TopicDownloader.INITIAL_CHUNK_SIZE));
+        assertTrue(chunkSizes.get(1) <= 200);
+        assertThat(downloader.getTopicIds(), is(createTopicIds(1, 800)));
+    }
+
+    @Test
+    public void shouldLimitTheLengthOfTheIdsInAQuery() {
+        // Given topic ids that take up 8 characters each in the query
+        final RecordingTopicDownloader downloader = new RecordingTopicDownloader(TopicDownloader.DEFAULT_TARGET_CHUNK_MILLIS, 0);
+
+        // When
+        downloader.download(createTopicIds(1000000, 3000), new NoopHandler());
+
+        // Then the chunks should be capped at 4000 characters
+        assertThat(downloader.getChunkSizes(), is(Arrays.asList(TopicDownloader.INITIAL_CHUNK_SIZE, 500, 500, 500, 500, 500,
+                100)));
+    }
+
+    private static List<Integer> createTopicIds(final int firstId, final int count) {
+        final List<Integer> topicIds = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            topicIds.add(firstId + i);
+        }
+        return topicIds;
+    }
+
+    /**
+     * A downloader that records the chunks it queries, instead of querying PressGang.
+     */
+    private static class RecordingTopicDownloader extends TopicDownloader {
+        private final double millisPerTopic;
+        private final List<Integer> chunkSizes = new ArrayList<Integer>();
+        private final List<Integer> topicIds = new ArrayList<Integer>();
+
+        private RecordingTopicDownloader(final long targetChunkMillis, final double millisPerTopic) {
+            super(null, 1, targetChunkMillis);
+            this.millisPerTopic = millisPerTopic;
+        }
+
+        @Override
+        protected CollectionWrapper<TopicWrapper> queryTopics(final List<Integer> chunk) {
+            synchronized (this) {
+                chunkSizes.add(chunk.size());
+                topicIds.addAll(chunk);
+            }
+            try {
+                Thread.sleep((long) (chunk.size() * millisPerTopic));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        }
+
+        public synchronized List<Integer> getChunkSizes() {
+            return new ArrayList<Integer>(chunkSizes);
+        }
+
+        public synchronized List<Integer> getTopicIds() {
+            return new ArrayList<Integer>(topicIds);
+        }
+    }
+
+    private static class NoopHandler implements TopicDownloader.ChunkHandler {
+        @Override
+        public void onTopics(final CollectionWrapper<TopicWrapper> topics) {
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.zanata.TranslationCopyTool;
+import org.junit.Test;
+
+public class TranslationCopyToolTest extends TranslationCopyTool {
+    @Test
+    public void shouldMergeTheOldIdsForSharedDocuments() {
+        // Given the old ids already mapped for the run, and the old ids for another content spec
+        final Map<String, List<String>> mappedZanataIds = new LinkedHashMap<String, List<String>>();
+        mappedZanataIds.put("5-300-7", Arrays.asList("5-100-7"));
+        mappedZanataIds.put("CS20-400", Arrays.asList("CS9-100"));
+        final Map<String, List<String>> contentSpecMappedZanataIds = new LinkedHashMap<String, List<String>>();
+        contentSpecMappedZanataIds.put("5-300-7", Arrays.asList("5-200-3"));
+        contentSpecMappedZanataIds.put("CS20-400", Arrays.asList("CS5-50", "CS5-200"));
+        contentSpecMappedZanataIds.put("6-300", Arrays.asList("6-100"));
+
+        // When
+        final int duplicates = mergeMappedIds(mappedZanataIds, contentSpecMappedZanataIds);
+
+        // Then topics should keep the latest id with the same condition, and content specs should be ordered by revision
+        assertThat(duplicates, is(2));
+        assertThat(mappedZanataIds.get("5-300-7"), is(Arrays.asList("5-100-7")));
+        assertThat(mappedZanataIds.get("CS20-400"), is(Arrays.asList("CS5-50", "CS9-100", "CS5-200")));
+        assertThat(mappedZanataIds.get("6-300"), is(Arrays.asList("6-100")));
+    }
+}
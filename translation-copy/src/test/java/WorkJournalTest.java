@@ -0,0 +1,74 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.jboss.pressgang.ccms.zanata.WorkJournal;
+import org.junit.Test;
+
+public class WorkJournalTest {
+    @Test
+    public void shouldResumeTheCompletedWorkItems() throws IOException {
+        // Given
+        final File file = createJournalFile("");
+        final WorkJournal journal = new WorkJournal(file);
+        journal.markComplete("copytrans 123");
+        journal.markComplete("delete 1-10 fr");
+        journal.close();
+
+        // When
+        final WorkJournal resumedJournal = new WorkJournal(file);
+
+        // Then
+        assertThat(resumedJournal.isComplete("copytrans 123"), is(true));
+        assertThat(resumedJournal.isComplete("delete 1-10 fr"), is(true));
+        assertThat(resumedJournal.isComplete("delete 1-10 de"), is(false));
+        resumedJournal.close();
+    }
+
+    @Test
+    public void shouldDiscardAPartiallyWrittenEntry() throws IOException {
+        // Given a run that died while writing "copytrans 123"
+        final File file = createJournalFile("delete 1-10 fr\ncopytrans 12");
+
+        // When
+        final WorkJournal journal = new WorkJournal(file);
+
+        // Then
+        assertThat(journal.isComplete("delete 1-10 fr"), is(true));
+        assertThat(journal.isComplete("copytrans 12"), is(false));
+        journal.close();
+        assertThat(file.length(), is((long) "delete 1-10 fr\n".length()));
+    }
+
+    @Test
+    public void shouldNotResumeAPartiallyWrittenEntryAfterMoreWorkIsCompleted() throws IOException {
+        // Given
+        final File file = createJournalFile("delete 1-10 f");
+        final WorkJournal journal = new WorkJournal(file);
+
+        // When
+        journal.markComplete("delete 1-10 fr");
+        journal.close();
+        final WorkJournal resumedJournal = new WorkJournal(file);
+
+        // Then
+        assertThat(resumedJournal.isComplete("delete 1-10 fr"), is(true));
+        assertThat(resumedJournal.isComplete("delete 1-10 f"), is(false));
+        resumedJournal.close();
+    }
+
+    private static File createJournalFile(final String contents) throws IOException {
+        final File file = File.createTempFile("journal", ".log");
+        file.deleteOnExit();
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents.getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,126 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jboss.pressgang.ccms.zanata.WorkPlan;
+import org.jboss.pressgang.ccms.zanata.ZanataRateLimiter;
+import org.junit.Test;
+
+public class WorkPlanTest {
+    @Test
+    public void shouldCountTheCallsForEachStep() {
+        // Given
+        final WorkPlan plan = new WorkPlan("test");
+
+        // When
+        plan.addCopy(Arrays.asList("1-10", "1-15"), "1-20", "de", true);
+        plan.addCopy(Collections.singletonList("2-10"), "2-20", "de", false);
+        plan.addDelete("3-10", "fr");
+        plan.addCopyTrans("3-10");
+
+        // Then
+        assertThat(plan.getSteps().size(), is(4));
+        assertThat(plan.getZanataGets(), is(4L));
+        assertThat(plan.getZanataPuts(), is(2L));
+        assertThat(plan.getZanataDeletes(), is(1L));
+        assertThat(plan.getCopyTransRuns(), is(1L));
+        assertThat(plan.getSteps(WorkPlan.Operation.COPY).size(), is(2));
+    }
+
+    @Test
+    public void shouldReadBackAWrittenPlan() throws IOException {
+        // Given
+        final WorkPlan plan = new WorkPlan("test");
+        plan.addCopy(Arrays.asList("CS1-10", "CS1-\"15\""), "CS1-20", "zh-Hans", false);
+        plan.addDelete("3-10", "fr");
+        plan.addCopyTrans("3-10");
+        plan.setPressGangGets(7);
+        final File file = File.createTempFile("plan", ".jsonl");
+        file.deleteOnExit();
+
+        // When
+        plan.write(file);
+        final WorkPlan readPlan = WorkPlan.read(file);
+
+        // Then
+        assertThat(readPlan.getTool(), is("test"));
+        assertThat(readPlan.getPressGangGets(), is(7L));
+        assertThat(readPlan.getZanataGets(), is(2L));
+        assertThat(readPlan.getSteps().size(), is(3));
+        final WorkPlan.Step copyStep = readPlan.getSteps().get(0);
+        assertThat(copyStep.getOperation(), is(WorkPlan.Operation.COPY));
+        assertThat(copyStep.getDocumentId(), is("CS1-20"));
+        assertThat(copyStep.getLocale(), is("zh-Hans"));
+        assertThat(copyStep.getSourceIds(), is(Arrays.asList("CS1-10", "CS1-\"15\"")));
+        final WorkPlan.Step copyTransStep = readPlan.getSteps().get(2);
+        assertThat(copyTransStep.getOperation(), is(WorkPlan.Operation.COPY_TRANS));
+        assertThat(copyTransStep.getLocale() == null, is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectAFileThatIsNotAPlan() throws IOException {
+        // Given
+        final File file = File.createTempFile("plan", ".jsonl");
+        file.deleteOnExit();
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("{\"type\":\"copy\",\"document\":\"1-20\"}\n".getBytes("UTF-8"));
+        outputStream.close();
+
+        // When
+        WorkPlan.read(file);
+    }
+
+    @Test
+    public void shouldProjectTheDurationFromTheRateLimit() {
+        // Given 100 reads and 100 writes, at 2 calls per second for each type of call
+        final WorkPlan plan = new WorkPlan("test");
+        for (int i = 0; i < 100; i++) {
+            plan.addCopy(Collections.singletonList(i + "-10"), i + "-20", "de", false);
+        }
+
+        // When
+        final double projectedSeconds = plan.estimate(new ZanataRateLimiter(2.0, 5), 8);
+
+        // Then reads and writes are limited separately, so they overlap
+        assertThat(projectedSeconds, is(50.0));
+    }
+
+    @Test
+    public void shouldProjectTheDurationFromTheCallTimeWhenNotRateLimited() {
+        // Given
+        final WorkPlan plan = new WorkPlan("test");
+        for (int i = 0; i < 100; i++) {
+            plan.addCopy(Collections.singletonList(i + "-10"), i + "-20", "de", false);
+        }
+
+        // When
+        final double sequentialSeconds = plan.estimate(new ZanataRateLimiter(0), 1);
+        final double concurrentSeconds = plan.estimate(new ZanataRateLimiter(0), 4);
+
+        // Then
+        assertThat(sequentialSeconds, is(concurrentSeconds * 4));
+    }
+
+    @Test
+    public void shouldProjectTheDurationFromTheCopyTransWindow() {
+        // Given 10 documents with a deletion and a CopyTrans run each
+        final WorkPlan plan = new WorkPlan("test");
+        for (int i = 0; i < 10; i++) {
+            plan.addDelete(i + "-10", "de");
+            plan.addCopyTrans(i + "-10");
+        }
+
+        // When
+        final double singleWindowSeconds = plan.estimate(new ZanataRateLimiter(0), 4, 1);
+        final double wideWindowSeconds = plan.estimate(new ZanataRateLimiter(0), 4, 5);
+
+        // Then the CopyTrans runs should take longer than the deletions, so the window bounds the run time
+        assertThat(singleWindowSeconds, is(50.0));
+        assertThat(wideWindowSeconds, is(10.0));
+    }
+}
@@ -0,0 +1,96 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.jboss.pressgang.ccms.zanata.ZanataDocumentId;
+import org.jboss.pressgang.ccms.zanata.ZanataDocumentIdIndex;
+import org.junit.Test;
+
+public class ZanataDocumentIdTest {
+    @Test
+    public void shouldParseZanataIds() {
+        // Given a topic zanata id with a condition
+        final String zanataId = "33-75612-74628";
+
+        // When
+        final ZanataDocumentId documentId = ZanataDocumentId.parse(zanataId);
+
+        // Then
+        assertThat(documentId.isContentSpec(), is(false));
+        assertThat(documentId.getId(), is(33));
+        assertThat(documentId.getRevision(), is(75612));
+        assertThat(documentId.getCondition(), is(74628));
+        assertThat(documentId.toString(), is(zanataId));
+    }
+
+    @Test
+    public void shouldParseContentSpecZanataIds() {
+        // Given a content spec zanata id without a condition
+        final String zanataId = "CS12-345";
+
+        // When
+        final ZanataDocumentId documentId = ZanataDocumentId.parse(zanataId);
+
+        // Then
+        assertThat(documentId.isContentSpec(), is(true));
+        assertThat(documentId.getId(), is(12));
+        assertThat(documentId.getRevision(), is(345));
+        assertThat(documentId.getCondition(), is(ZanataDocumentId.NONE));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void shouldRejectInvalidZanataIds() {
+        ZanataDocumentId.parse("33-abc");
+    }
+
+    @Test
+    public void shouldCompareByIdRevisionAndCondition() {
+        assertThat(ZanataDocumentId.compare("33-10", "34-1") < 0, is(true));
+        assertThat(ZanataDocumentId.compare("33-10", "33-9") > 0, is(true));
+        assertThat(ZanataDocumentId.compare("33-10", "33-10-1") < 0, is(true));
+        assertThat(ZanataDocumentId.compare("33-10-2", "33-10-1") > 0, is(true));
+        assertThat(ZanataDocumentId.compare("33-10-2", "33-10-2"), is(0));
+    }
+
+    @Test
+    public void shouldFindTheLatestIdForATopic() {
+        // Given an index of old zanata ids
+        final ZanataDocumentIdIndex index = new ZanataDocumentIdIndex(Arrays.asList("33-56091", "CS5-20", "12-400", "33-90384",
+                "33-10234", "CS5-10"));
+
+        // When/Then
+        assertThat(index.getTopicCount(), is(2));
+        assertThat(index.getLatest(33).toString(), is("33-90384"));
+        assertThat(index.getLatest(12).toString(), is("12-400"));
+        assertThat(index.getLatest(40) == null, is(true));
+        assertThat(index.getDocuments(33).size(), is(3));
+        assertThat(index.getContentSpecs().get(0).toString(), is("CS5-10"));
+        assertThat(index.getContentSpecs().get(1).toString(), is("CS5-20"));
+    }
+
+    @Test
+    public void shouldSortContentSpecsByRevision() {
+        // Given an index where the content spec with the higher id was revised first
+        final ZanataDocumentIdIndex index = new ZanataDocumentIdIndex(Arrays.asList("CS9-100", "CS5-200", "CS5-50"));
+
+        // When/Then the most recently revised content spec should be last
+        assertThat(index.getContentSpecs().get(0).toString(), is("CS5-50"));
+        assertThat(index.getContentSpecs().get(1).toString(), is("CS9-100"));
+        assertThat(index.getContentSpecs().get(2).toString(), is("CS5-200"));
+    }
+
+    @Test
+    public void shouldPreferTheLatestIdWithTheSameCondition() {
+        // Given an index where the newest revision of topic 33 was pushed with a different condition
+        final ZanataDocumentIdIndex index = new ZanataDocumentIdIndex(Arrays.asList("33-56091", "33-56091-7", "33-90384-12",
+                "12-400-5"));
+
+        // When/Then
+        assertThat(index.getLatest(ZanataDocumentId.parse("33-95000-7")).toString(), is("33-56091-7"));
+        assertThat(index.getLatest(ZanataDocumentId.parse("33-95000")).toString(), is("33-56091"));
+        assertThat(index.getLatest(ZanataDocumentId.parse("33-95000-3")).toString(), is("33-90384-12"));
+        assertThat(index.getLatest(ZanataDocumentId.parse("12-500")).toString(), is("12-400-5"));
+        assertThat(index.getLatest(ZanataDocumentId.parse("40-500")) == null, is(true));
+    }
+}
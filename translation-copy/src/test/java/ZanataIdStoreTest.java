@@ -0,0 +1,60 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jboss.pressgang.ccms.wrapper.TranslatedContentSpecWrapper;
+import org.jboss.pressgang.ccms.zanata.ZanataIdStore;
+import org.junit.Test;
+
+public class ZanataIdStoreTest {
+    @Test
+    public void shouldKeepTheIdsForEachServerApart() throws IOException {
+        // Given ids stored for a translated content spec from the staging server
+        final File directory = createDirectory();
+        final Set<String> zanataIds = new LinkedHashSet<String>(Arrays.asList("CS10-5", "1-10", "2-20"));
+        new ZanataIdStore(directory, "http://staging.example.com/TopicIndex/").put(createTranslatedContentSpec(7, 100), true,
+                zanataIds);
+
+        // When the same translated content spec is looked up on each server
+        final Set<String> stagingIds = new ZanataIdStore(directory, "http://staging.example.com/TopicIndex").get(
+                createTranslatedContentSpec(7, 100), true);
+        final Set<String> productionIds = new ZanataIdStore(directory, "http://production.example.com/TopicIndex/").get(
+                createTranslatedContentSpec(7, 100), true);
+
+        // Then only the staging server should find the ids
+        assertThat(stagingIds, is(zanataIds));
+        assertNull(productionIds);
+    }
+
+    private static File createDirectory() throws IOException {
+        final File directory = File.createTempFile("zanata-id-store", "");
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    private static TranslatedContentSpecWrapper createTranslatedContentSpec(final Integer id, final Integer revision) {
+        return (TranslatedContentSpecWrapper) Proxy.newProxyInstance(ZanataIdStoreTest.class.getClassLoader(),
+                new Class<?>[]{TranslatedContentSpecWrapper.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (method.getName().equals("getId")) {
+                            return id;
+                        } else if (method.getName().equals("getRevision")) {
+                            return revision;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
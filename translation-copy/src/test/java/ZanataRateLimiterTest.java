@@ -0,0 +1,99 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.zanata.ZanataRateLimiter;
+import org.jboss.pressgang.ccms.zanata.ZanataRateLimiter.CallType;
+import org.junit.Test;
+
+public class ZanataRateLimiterTest {
+    @Test
+    public void shouldAllowBurstsWithoutWaiting() {
+        // Given a limiter that allows 1 call per second, with a burst of 5
+        final ZanataRateLimiter rateLimiter = new ZanataRateLimiter(1.0, 5);
+
+        // When
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.acquire(CallType.READ);
+        }
+
+        // Then
+        assertTrue(System.currentTimeMillis() - start < 500);
+    }
+
+    @Test
+    public void shouldBackOffWhenThrottled() {
+        // Given
+        final ZanataRateLimiter rateLimiter = new ZanataRateLimiter(10.0, 5);
+
+        // When
+        rateLimiter.onResponse(CallType.WRITE, 429, "0", 10);
+
+        // Then
+        assertThat(rateLimiter.getRate(CallType.WRITE), is(5.0));
+        assertThat(rateLimiter.getRate(CallType.READ), is(10.0));
+    }
+
+    @Test
+    public void shouldSpreadOutTheCallsThatQueueDuringAPause() {
+        // Given a limiter that is paused for a second, and backs off to 5 calls per second
+        final ReservingRateLimiter rateLimiter = new ReservingRateLimiter(10.0, 5);
+        rateLimiter.onThrottled(CallType.READ, 1000);
+
+        // When
+        final long firstWait = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve(CallType.READ));
+        final long secondWait = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve(CallType.READ));
+        final long thirdWait = TimeUnit.NANOSECONDS.toMillis(rateLimiter.reserve(CallType.READ));
+
+        // Then each call should wait for the pause, and then a fifth of a second more than the call before it
+        assertTrue(firstWait >= 1000 && firstWait <= 1200);
+        assertTrue(secondWait - firstWait >= 150 && secondWait - firstWait <= 250);
+        assertTrue(thirdWait - secondWait >= 150 && thirdWait - secondWait <= 250);
+    }
+
+    @Test
+    public void shouldRampUpWhenLatencyIsHealthy() {
+        // Given
+        final ZanataRateLimiter rateLimiter = new ZanataRateLimiter(10.0, 5);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.onSuccess(CallType.READ, 50);
+        }
+
+        // Then the rate should be capped
+        assertThat(rateLimiter.getRate(CallType.READ), is(40.0));
+    }
+
+    @Test
+    public void shouldNotLimitWhenIntervalIsZero() {
+        // Given
+        final ZanataRateLimiter rateLimiter = new ZanataRateLimiter(0.0);
+
+        // When
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.acquire(CallType.WRITE);
+        }
+
+        // Then
+        assertTrue(System.currentTimeMillis() - start < 500);
+    }
+
+    /**
+     * A rate limiter that lets the tests see how long each call would wait, without waiting.
+     */
+    private static class ReservingRateLimiter extends ZanataRateLimiter {
+        private ReservingRateLimiter(final double callsPerSecond, final int burstSize) {
+            super(callsPerSecond, burstSize);
+        }
+
+        @Override
+        public long reserve(final CallType type) {
+            return super.reserve(type);
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package org.jboss.pressgang.ccms.zanata;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.internal.Lists;
-import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.provider.RESTProviderFactory;
 import org.jboss.pressgang.ccms.provider.RESTTopicProvider;
 import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
@@ -20,6 +27,14 @@ public class CopyTransTool {
      * The Default amount of time that should be waited between Zanata REST API Calls.
      */
     private static final Double DEFAULT_ZANATA_CALL_INTERVAL = 0.2;
+    /**
+     * The name of the tool that is recorded in work plans and metrics.
+     */
+    private static final String TOOL_NAME = "translation-copytrans";
+    /**
+     * The maximum number of content specs to resolve at the same time. Each content spec also downloads its topics concurrently.
+     */
+    private static final int MAX_CONCURRENT_CONTENT_SPECS = 4;
 
     private static final String PRESSGANG_SERVER = System.getProperty(CommonConstants.PRESS_GANG_REST_SERVER_SYSTEM_PROPERTY);
     private static final String ZANATA_SERVER = System.getProperty(ZanataConstants.ZANATA_SERVER_PROPERTY);
@@ -35,9 +50,80 @@ public class CopyTransTool {
     @Parameter(names = "--disable-ssl-cert")
     private Boolean disableSSLCert = false;
 
-    private ZanataInterface zanataInterface;
+    @Parameter(names = "--cache", description = "Cache the Zanata document ids of frozen content specs in " + "~/.zanata-tools/cache")
+    private Boolean cache = false;
+
+    @Parameter(names = "--cache-dir", description = "Cache the Zanata document ids of frozen content specs in the specified directory")
+    private String cacheDir;
+
+    @Parameter(names = "--resume", description = "A journal file to record the documents CopyTrans has completed for in. Any "
+            + "documents already recorded in the journal will be skipped.")
+    private String resumeJournal;
+
+    @Parameter(names = "--time-budget", description = "The maximum number of minutes to spend running CopyTrans, before stopping "
+            + "cleanly so the run can be resumed later")
+    private Integer timeBudget;
+
+    @Parameter(names = "--prefilter", description = "Use the Zanata translation statistics to skip running CopyTrans on documents "
+            + "that are already fully translated")
+    private Boolean prefilter = false;
+
+    @Parameter(names = "--window", description = "The number of documents to run CopyTrans for at the same time. CopyTrans is "
+            + "started for each document in the window, and the next document is started as soon as one finishes.")
+    private Integer window = 1;
+
+    @Parameter(names = "--plan", description = "Only discover the documents to run CopyTrans for, and write them to the specified "
+            + "file as a work plan along with the number of REST calls needed and a projected duration")
+    private String plan;
+
+    @Parameter(names = "--execute-plan", description = "Run CopyTrans for the documents listed in a work plan created by --plan, "
+            + "instead of discovering them again")
+    private String executePlan;
+
+    @Parameter(names = "--max-connections", description = "The maximum number of HTTP connections to keep open to the PressGang and "
+            + "Zanata servers")
+    private Integer maxConnections = ZanataTransport.DEFAULT_MAX_CONNECTIONS;
+
+    @Parameter(names = "--max-connections-per-server", description = "The maximum number of HTTP connections to keep open to each "
+            + "server")
+    private Integer maxConnectionsPerServer = ZanataTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    @Parameter(names = "--keep-alive", description = "The number of seconds to keep idle HTTP connections open for, when the server "
+            + "doesn't specify how long")
+    private Integer keepAlive = ZanataTransport.DEFAULT_KEEP_ALIVE_SECONDS;
+
+    @Parameter(names = "--download-threads", description = "The number of topic revisions to download from PressGang at the same "
+            + "time")
+    private Integer downloadThreads = RevisionTopicFetcher.DEFAULT_PARALLELISM;
+
+    @Parameter(names = "--metrics", description = "Write the REST call metrics for the run to the specified directory, as JSON and "
+            + "in the Prometheus text format")
+    private String metricsDir;
+
+    @Parameter(names = "--metrics-interval", description = "How often in seconds to write the REST call metrics during the run. By "
+            + "default they are only written at the end of the run.")
+    private Integer metricsInterval = 0;
+
+    /**
+     * Each thread gets its own Zanata interface, as the underlying REST client shouldn't be shared with the CopyTrans poller.
+     */
+    private final ThreadLocal<ZanataInterface> zanataInterfaces = new ThreadLocal<ZanataInterface>() {
+        @Override
+        protected ZanataInterface initialValue() {
+            // Rate limiting is handled by the rate limiter, so disable the interfaces own call interval
+            return new ZanataInterface(0, disableSSLCert);
+        }
+    };
+    private CopyTransTracker copyTransTracker;
     private RESTProviderFactory providerFactory;
+    private RESTProviderFactory pushedTopicProviderFactory;
     private double zanataRESTCallInterval;
+    private ZanataRateLimiter rateLimiter;
+    private ZanataIdStore zanataIdStore;
+    private WorkJournal journal;
+    private long deadline = Long.MAX_VALUE;
+    private int unfinishedDocuments = 0;
+    private ZanataStatistics statistics;
 
     public void process() {
         // Check we have a zanata and pressgang server setup
@@ -48,32 +134,161 @@ public class CopyTransTool {
         // Initialise the factories
         init();
 
-        // Check to make sure we have a content spec to copy translations to
-        if (!validateContentSpecIds()) {
+        final boolean discovered;
+        try {
+            discovered = doProcess();
+        } finally {
+            finish();
+        }
+
+        // Exit with an error if some of the documents were never found, so scripts don't treat the run as complete
+        if (!discovered) {
             System.exit(-1);
         }
+    }
 
-        for (final String id : ids) {
-            // Get the content spec id/revision
-            final String[] zanataNameSplit = id.replace("CS", "").split("-");
-            final Integer contentSpecId = Integer.parseInt(zanataNameSplit[0]);
-            final Integer contentSpecRevision = zanataNameSplit.length > 1 ? Integer.parseInt(zanataNameSplit[1]) : null;
+    /**
+     * Run CopyTrans for the documents in the content specs or plan.
+     *
+     * @return True if all the documents were found, or false if some of the content specs couldn't be resolved.
+     */
+    private boolean doProcess() {
+        // Run CopyTrans for the documents in a previously created plan, instead of discovering them again
+        if (executePlan != null) {
+            executePlan(new File(executePlan));
+            return true;
+        }
 
-            // Get the pushed translation for the specified id/revision
-            final TranslatedContentSpecWrapper pushedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(providerFactory,
-                    contentSpecId, contentSpecRevision);
+        // Check to make sure we have a content spec to copy translations to
+        if (!validateContentSpecIds()) {
+            System.exit(-1);
+        }
 
-            if (pushedContentSpec != null) {
-                // Get the Zanata Ids we need to push to
-                log.info("Getting the Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
-                final Set<String> zanataIds = Utilities.getZanataIds(providerFactory, pushedContentSpec);
+        // Get the translation statistics for the whole project version up front
+        if (prefilter) {
+            statistics = ZanataStatistics.fetch(getZanataInterface(), rateLimiter, ZANATA_PROJECT, ZANATA_VERSION, null);
+        }
 
+        // Resolve the content specs in the background, and start on the documents as soon as they are found. Documents shared
+        // between content specs are only handed out once, so CopyTrans is only run once for them.
+        final ZanataIdStream zanataIds = streamContentSpecs(ids);
+        try {
+            if (plan != null) {
+                // Only record the documents, so the plan can be reviewed and executed later
+                final Set<String> plannedZanataIds = new LinkedHashSet<String>();
+                while (zanataIds.hasNext()) {
+                    plannedZanataIds.add(zanataIds.next());
+                }
+                // Don't write a plan that is missing documents, as executing it would never run CopyTrans for them
+                if (!zanataIds.hasFailed()) {
+                    final WorkPlan workPlan = new WorkPlan(TOOL_NAME);
+                    addToPlan(workPlan, plannedZanataIds);
+                    writePlan(workPlan, new File(plan));
+                }
+            } else {
                 // Run copytrans
                 runCopyTransForZanataSourceDocuments(zanataIds);
-            } else {
-                log.error("No translations available for content spec {}", contentSpecId);
             }
+        } finally {
+            zanataIds.close();
         }
+
+        if (ids.size() > 1) {
+            log.info("Found {} unique document(s) in {} content specs, avoiding {} duplicate CopyTrans run(s)", new Object[]{
+                    zanataIds.getCount(), ids.size(), zanataIds.getDuplicates()});
+        }
+
+        if (zanataIds.hasFailed()) {
+            log.error("Not all of the content specs could be resolved, so some documents were missed. Run the tool again to process "
+                    + "them.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Resolve the Zanata document ids for each content spec in the background, and hand them out as they are found. If there is
+     * more than one content spec, then they are resolved concurrently.
+     *
+     * @param contentSpecIds The content spec ids, optionally including a revision.
+     * @return The stream of unique Zanata document ids for all the content specs that could be resolved.
+     */
+    protected ZanataIdStream streamContentSpecs(final List<String> contentSpecIds) {
+        if (contentSpecIds.size() > 1) {
+            log.info("Resolving {} content specs", contentSpecIds.size());
+        }
+
+        final ZanataIdStream stream = new ZanataIdStream(ZanataIdStream.DEFAULT_CAPACITY, Math.min(MAX_CONCURRENT_CONTENT_SPECS,
+                contentSpecIds.size()));
+        for (final String contentSpecId : contentSpecIds) {
+            stream.submit("content spec " + contentSpecId, new ZanataIdStream.Producer() {
+                @Override
+                public void produce(final ZanataIdStream zanataIds) {
+                    streamContentSpec(contentSpecId, zanataIds);
+                }
+            });
+        }
+        stream.finishSubmitting();
+
+        return stream;
+    }
+
+    /**
+     * Resolve the Zanata document ids for a single content spec, and add them to a stream as they are found.
+     *
+     * @param id        The content spec id, optionally including a revision.
+     * @param zanataIds The stream to add the Zanata document ids to.
+     */
+    protected void streamContentSpec(final String id, final ZanataIdStream zanataIds) {
+        // Get the content spec id/revision
+        final String[] zanataNameSplit = id.replace("CS", "").split("-");
+        final Integer contentSpecId = Integer.parseInt(zanataNameSplit[0]);
+        final Integer contentSpecRevision = zanataNameSplit.length > 1 ? Integer.parseInt(zanataNameSplit[1]) : null;
+
+        // Get the pushed translation for the specified id/revision
+        final TranslatedContentSpecWrapper pushedContentSpec = Utilities.getClosestTranslatedContentSpecById(providerFactory,
+                contentSpecId, contentSpecRevision);
+
+        if (pushedContentSpec != null) {
+            // Get the Zanata Ids we need to push to
+            log.info("Getting the Zanata document ids for content spec {}", pushedContentSpec.getZanataId());
+            Utilities.streamZanataIds(pushedTopicProviderFactory, pushedContentSpec, zanataIdStore, zanataIds);
+        } else {
+            log.error("No translations available for content spec {}", contentSpecId);
+        }
+    }
+
+    /**
+     * Get the Zanata interface that should be used by the current thread.
+     *
+     * @return The current threads Zanata interface.
+     */
+    protected ZanataInterface getZanataInterface() {
+        return zanataInterfaces.get();
+    }
+
+    /**
+     * Log the outcome of the run and close the journal.
+     */
+    private void finish() {
+        if (journal != null) {
+            journal.close();
+        }
+        log.info("REST call metrics:\n{}", RunMetrics.getInstance());
+        if (metricsDir != null) {
+            RunMetrics.getInstance().finishExporting();
+        }
+        if (statistics != null) {
+            log.info("Skipped CopyTrans for {} fully translated document(s)", statistics.getAvoidedCalls());
+        }
+        if (unfinishedDocuments > 0) {
+            log.warn("The time budget was used up before CopyTrans could be run on {} document(s). Run the tool again with --resume to "
+                    + "continue.", unfinishedDocuments);
+        }
+        if (copyTransTracker != null) {
+            copyTransTracker.shutdown();
+        }
+        ZanataTransport.shutdown();
     }
 
     /**
@@ -103,9 +318,16 @@ public class CopyTransTool {
     }
 
     private void init() {
-        // Initialise the PressGang provider factory
+        // Share a pool of keep-alive connections between all the PressGang and Zanata clients
+        ZanataTransport.install(maxConnections, maxConnectionsPerServer, keepAlive, disableSSLCert);
+        Utilities.setConcurrentDownloads(downloadThreads);
+
+        // Initialise the PressGang provider factories
         providerFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
-        providerFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(true);
+        // The translations are needed to find the pushed topics, so the full translations are downloaded even though discovery
+        // only keeps their Zanata ids and revisions. Only the topic lookups for the Zanata ids use this factory.
+        pushedTopicProviderFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
+        pushedTopicProviderFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(true);
 
         // Parse the specified time from the System Variables. If no time is set or is invalid then use the default value
         try {
@@ -116,11 +338,114 @@ public class CopyTransTool {
             zanataRESTCallInterval = DEFAULT_ZANATA_CALL_INTERVAL;
         }
         log.info("Rate Limiting: " + zanataRESTCallInterval + " seconds per REST call");
+        rateLimiter = new ZanataRateLimiter(zanataRESTCallInterval);
         try {
-            zanataInterface = new ZanataInterface(zanataRESTCallInterval, disableSSLCert);
+            zanataInterfaces.set(new ZanataInterface(0, disableSSLCert));
+            copyTransTracker = new CopyTransTracker(zanataInterfaces, rateLimiter, ZANATA_PROJECT, ZANATA_VERSION);
         } catch (UnauthorizedException e) {
             log.error("Invalid Zanata credentials!");
         }
+
+        // Start recording the REST call metrics, if they should be exported
+        if (metricsDir != null) {
+            RunMetrics.getInstance().startExporting(new File(metricsDir), TOOL_NAME, metricsInterval == null ? 0 : metricsInterval);
+        }
+
+        // Setup the Zanata id cache, if one should be used
+        if (cacheDir != null) {
+            zanataIdStore = new ZanataIdStore(new File(cacheDir), PRESSGANG_SERVER);
+        } else if (cache) {
+            zanataIdStore = new ZanataIdStore(new File(ZanataIdStore.DEFAULT_DIRECTORY), PRESSGANG_SERVER);
+        }
+
+        // Open the journal of completed work, so completed work can be skipped
+        if (resumeJournal != null) {
+            try {
+                journal = new WorkJournal(new File(resumeJournal));
+            } catch (IOException e) {
+                log.error("Unable to open the journal " + resumeJournal, e);
+                System.exit(-1);
+            }
+        }
+
+        // Work out when the tool should stop running CopyTrans
+        if (timeBudget != null) {
+            deadline = System.currentTimeMillis() + timeBudget * 60L * 1000L;
+        }
+    }
+
+    /**
+     * Add the documents that need CopyTrans to be run to a work plan. Documents that are already in the plan are only added once.
+     *
+     * @param workPlan  The plan to add the documents to.
+     * @param zanataIds The documents to run CopyTrans for.
+     */
+    protected void addToPlan(final WorkPlan workPlan, final Set<String> zanataIds) {
+        final Set<String> plannedZanataIds = new HashSet<String>();
+        for (final WorkPlan.Step step : workPlan.getSteps(WorkPlan.Operation.COPY_TRANS)) {
+            plannedZanataIds.add(step.getDocumentId());
+        }
+
+        for (final String zanataId : zanataIds) {
+            if (statistics != null && statistics.isFullyTranslated(zanataId)) {
+                statistics.addAvoidedCalls(1);
+            } else if (plannedZanataIds.add(zanataId)) {
+                workPlan.addCopyTrans(zanataId);
+            }
+        }
+    }
+
+    /**
+     * Write a work plan to a file, along with the number of REST calls needed and a projected duration.
+     *
+     * @param workPlan The plan to write.
+     * @param planFile The file to write the plan to.
+     */
+    protected void writePlan(final WorkPlan workPlan, final File planFile) {
+        workPlan.setPressGangGets(Utilities.getPressGangRequests());
+        workPlan.estimate(rateLimiter, window == null || window < 1 ? 1 : window);
+
+        try {
+            workPlan.write(planFile);
+        } catch (IOException e) {
+            log.error("Unable to write the plan to " + planFile, e);
+            System.exit(-1);
+        }
+
+        log.info("Wrote the plan to {}: {}", planFile.getAbsolutePath(), workPlan);
+    }
+
+    /**
+     * Run CopyTrans for the documents listed in a work plan.
+     *
+     * @param planFile The work plan file.
+     */
+    protected void executePlan(final File planFile) {
+        final WorkPlan workPlan;
+        try {
+            workPlan = WorkPlan.read(planFile);
+        } catch (IOException e) {
+            log.error("Unable to read the plan " + planFile, e);
+            System.exit(-1);
+            return;
+        } catch (IllegalArgumentException e) {
+            log.error(e.getMessage());
+            System.exit(-1);
+            return;
+        }
+
+        if (!TOOL_NAME.equals(workPlan.getTool())) {
+            log.error("{} is a plan for {}, not {}", new Object[]{planFile, workPlan.getTool(), TOOL_NAME});
+            System.exit(-1);
+        }
+
+        log.info("Executing the plan in {}: {}", planFile, workPlan);
+        final Set<String> zanataIds = new LinkedHashSet<String>();
+        for (final WorkPlan.Step step : workPlan.getSteps(WorkPlan.Operation.COPY_TRANS)) {
+            zanataIds.add(step.getDocumentId());
+        }
+
+        runCopyTransForZanataSourceDocuments(zanataIds.iterator());
     }
 
     protected boolean validateContentSpecIds() {
@@ -133,23 +458,140 @@ public class CopyTransTool {
     }
 
     /**
-     * Run CopyTrans against a set of topics.
+     * Run CopyTrans against a set of topics. The documents are worked through as they are read, so CopyTrans can be started while
+     * the rest of the documents are still being discovered.
      *
-     * @param zanataIds The collection of topics to run copytrans for.
+     * @param zanataIds The topics to run copytrans for.
      * @return True if copytrans runs fine for all topics otherwise false.
      */
-    protected boolean runCopyTransForZanataSourceDocuments(final Set<String> zanataIds) {
+    protected boolean runCopyTransForZanataSourceDocuments(final Iterator<String> zanataIds) {
+        if (window != null && window > 1) {
+            return runCopyTransWindowed(zanataIds, window);
+        }
+
         boolean error = false;
-        for (final String zanataId : zanataIds) {
-            if (!runCopyTransForZanataSourceDocument(zanataId)) {
+        while (zanataIds.hasNext()) {
+            final String zanataId = zanataIds.next();
+            if (!needsCopyTrans(zanataId)) {
+                continue;
+            } else if (System.currentTimeMillis() >= deadline) {
+                unfinishedDocuments++;
+            } else if (!runCopyTransForZanataSourceDocument(zanataId)) {
                 log.error("Failed running CopyTrans on {}", zanataId);
                 error = true;
+            } else if (journal != null) {
+                journal.markComplete(getJournalKey(zanataId));
             }
         }
 
         return !error;
     }
 
+    /**
+     * Check if CopyTrans needs to be run for a document, or if it can be skipped.
+     *
+     * @param zanataId The id of the document.
+     * @return True if CopyTrans should be run, or false if it was run by a previous run or the document is fully translated.
+     */
+    private boolean needsCopyTrans(final String zanataId) {
+        if (journal != null && journal.isComplete(getJournalKey(zanataId))) {
+            log.info("Skipping {} as CopyTrans was run by a previous run", zanataId);
+            return false;
+        } else if (statistics != null && statistics.isFullyTranslated(zanataId)) {
+            log.info("Skipping {} as it is already fully translated", zanataId);
+            statistics.addAvoidedCalls(1);
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Run CopyTrans against a set of documents, keeping up to a window of documents running at the same time. CopyTrans is
+     * started for each document without waiting for it to finish, and the next document is started as each one finishes. Any
+     * failures are reported once all the documents have finished.
+     *
+     * @param zanataIds  The documents to run CopyTrans for, which are read as there is room in the window.
+     * @param windowSize The maximum number of documents to run CopyTrans for at the same time.
+     * @return True if CopyTrans ran fine for all the documents, otherwise false.
+     */
+    protected boolean runCopyTransWindowed(final Iterator<String> zanataIds, final int windowSize) {
+        log.info("Running CopyTrans for the documents {} at a time", windowSize);
+        final BlockingQueue<CopyTransTracker.Tracked> finishedCopyTrans = new LinkedBlockingQueue<CopyTransTracker.Tracked>();
+        final CopyTransTracker.CompletionHandler completionHandler = new CopyTransTracker.CompletionHandler() {
+            @Override
+            public void onCompletion(final CopyTransTracker.Tracked tracked) {
+                finishedCopyTrans.add(tracked);
+            }
+        };
+
+        final List<String> failedZanataIds = new ArrayList<String>();
+        int runningCopyTrans = 0;
+        // Check the running documents first, so a full window doesn't wait for more documents to be discovered
+        while (runningCopyTrans > 0 || zanataIds.hasNext()) {
+            // Start CopyTrans for the next documents, until the window is full
+            while (runningCopyTrans < windowSize && zanataIds.hasNext()) {
+                final String zanataId = zanataIds.next();
+                if (!needsCopyTrans(zanataId)) {
+                    continue;
+                } else if (System.currentTimeMillis() >= deadline) {
+                    unfinishedDocuments++;
+                } else {
+                    log.info("Starting Zanata CopyTrans for {}", zanataId);
+                    copyTransTracker.start(zanataId, getDocumentSize(zanataId), completionHandler);
+                    runningCopyTrans++;
+                }
+            }
+
+            if (runningCopyTrans == 0) continue;
+
+            // Wait for a document to finish, to make room in the window
+            final CopyTransTracker.Tracked tracked;
+            try {
+                tracked = finishedCopyTrans.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // The documents that haven't been read yet can't be counted, as reading them would wait for discovery
+                log.error("Interrupted while waiting for CopyTrans to finish");
+                unfinishedDocuments += runningCopyTrans;
+                break;
+            }
+
+            runningCopyTrans--;
+            if (!tracked.isSuccess()) {
+                failedZanataIds.add(tracked.getZanataId());
+            } else {
+                log.info("Finished Zanata CopyTrans for {}", tracked.getZanataId());
+                if (journal != null) {
+                    journal.markComplete(getJournalKey(tracked.getZanataId()));
+                }
+            }
+        }
+
+        if (!failedZanataIds.isEmpty()) {
+            log.error("Failed running CopyTrans on {} document(s):", failedZanataIds.size());
+            for (final String failedZanataId : failedZanataIds) {
+                log.error("\t{}", failedZanataId);
+            }
+        }
+
+        return failedZanataIds.isEmpty();
+    }
+
+    /**
+     * Get the size of a document, so the CopyTrans tracker can work out how long it's likely to take.
+     *
+     * @param zanataId The id of the document.
+     * @return The number of messages in the document, or -1 if it isn't known.
+     */
+    private long getDocumentSize(final String zanataId) {
+        return statistics == null ? -1 : statistics.getMessageCount(zanataId);
+    }
+
+    private static String getJournalKey(final String zanataId) {
+        return "copytrans " + zanataId;
+    }
+
     /**
      * Run copy trans against a Source Document in zanata and then wait for it to complete
      *
@@ -158,6 +600,6 @@ public class CopyTransTool {
      */
     protected boolean runCopyTransForZanataSourceDocument(final String zanataId) {
         log.info("Running Zanata CopyTrans for " + zanataId);
-        return zanataInterface.runCopyTrans(zanataId, true);
+        return copyTransTracker.runAndWait(zanataId, getDocumentSize(zanataId));
     }
 }
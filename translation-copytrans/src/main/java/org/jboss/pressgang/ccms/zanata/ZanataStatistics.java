@@ -0,0 +1,164 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zanata.common.LocaleId;
+import org.zanata.rest.client.IStatisticsResource;
+import org.zanata.rest.dto.stats.ContainerTranslationStatistics;
+import org.zanata.rest.dto.stats.TranslationStatistics;
+
+/**
+ * A snapshot of the translation statistics for every document in a Zanata project version. The statistics are fetched in a single
+ * call, so they can be used to filter out work that can't have any effect before any per document calls are made.
+ * <p/>
+ * Documents or locales that aren't in the snapshot are treated as unknown, and are never filtered out.
+ */
+public class ZanataStatistics {
+    private static final Logger log = LoggerFactory.getLogger(ZanataStatistics.class);
+
+    private final Map<String, Map<String, Counts>> documentStats;
+    private final AtomicInteger avoidedCalls = new AtomicInteger(0);
+
+    protected ZanataStatistics(final Map<String, Map<String, Counts>> documentStats) {
+        this.documentStats = documentStats;
+    }
+
+    /**
+     * Fetch the message statistics for every document in a project version.
+     *
+     * @param zanataInterface The Zanata interface to use to make the call.
+     * @param rateLimiter     The rate limiter to acquire the call from.
+     * @param project         The Zanata project.
+     * @param version         The Zanata project version.
+     * @param locales         The locales to get statistics for, or null to get the statistics for all locales.
+     * @return The statistics, or null if they couldn't be fetched.
+     */
+    public static ZanataStatistics fetch(final ZanataInterface zanataInterface, final ZanataRateLimiter rateLimiter,
+            final String project, final String version, final Collection<LocaleId> locales) {
+        String[] localeIds = null;
+        if (locales != null) {
+            localeIds = new String[locales.size()];
+            int i = 0;
+            for (final LocaleId locale : locales) {
+                localeIds[i++] = locale.toString();
+            }
+        }
+
+        final ContainerTranslationStatistics statistics;
+        rateLimiter.acquire(ZanataRateLimiter.CallType.READ);
+        final long startTime = System.nanoTime();
+        try {
+            final IStatisticsResource client = zanataInterface.getProxyFactory().getStatisticsResource();
+            statistics = client.getStatistics(project, version, true, false, localeIds);
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_STATISTICS, RunMetrics.OK, startTime);
+            rateLimiter.onSuccess(ZanataRateLimiter.CallType.READ, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        } catch (Exception e) {
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_STATISTICS, RunMetrics.ERROR, startTime);
+            log.warn("Unable to fetch the translation statistics for {} {}, so no work will be filtered", project, version);
+            log.debug("", e);
+            return null;
+        }
+
+        final Map<String, Map<String, Counts>> documentStats = new HashMap<String, Map<String, Counts>>();
+        if (statistics != null && statistics.getDetailedStats() != null) {
+            for (final ContainerTranslationStatistics documentStatistics : statistics.getDetailedStats()) {
+                if (documentStatistics.getId() == null || documentStatistics.getStats() == null) continue;
+
+                final Map<String, Counts> localeStats = new HashMap<String, Counts>();
+                for (final TranslationStatistics localeStatistics : documentStatistics.getStats()) {
+                    localeStats.put(localeStatistics.getLocale(), new Counts(localeStatistics.getTranslated(),
+                            localeStatistics.getNeedReview(), localeStatistics.getUntranslated()));
+                }
+                documentStats.put(documentStatistics.getId(), localeStats);
+            }
+        }
+
+        log.info("Fetched the translation statistics for {} document(s)", documentStats.size());
+        return new ZanataStatistics(documentStats);
+    }
+
+    /**
+     * Check if a document might hold any translations for a locale.
+     *
+     * @param zanataId The Zanata document id.
+     * @param locale   The locale to check.
+     * @return False if the document is known to have no translated or fuzzy messages for the locale, otherwise true.
+     */
+    public boolean hasTranslations(final String zanataId, final LocaleId locale) {
+        final Counts counts = getCounts(zanataId, locale.toString());
+        return counts == null || counts.translated > 0 || counts.needReview > 0;
+    }
+
+    /**
+     * Check if a document is fully translated for every locale in the snapshot.
+     *
+     * @param zanataId The Zanata document id.
+     * @return True if the document is known to have no untranslated or fuzzy messages in any locale, otherwise false.
+     */
+    public boolean isFullyTranslated(final String zanataId) {
+        final Map<String, Counts> localeStats = documentStats.get(zanataId);
+        if (localeStats == null || localeStats.isEmpty()) {
+            return false;
+        }
+
+        for (final Counts counts : localeStats.values()) {
+            if (counts.untranslated > 0 || counts.needReview > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of messages in a document.
+     *
+     * @param zanataId The Zanata document id.
+     * @return The number of messages in the document, or -1 if the document isn't in the snapshot.
+     */
+    public long getMessageCount(final String zanataId) {
+        final Map<String, Counts> localeStats = documentStats.get(zanataId);
+        if (localeStats == null || localeStats.isEmpty()) {
+            return -1;
+        }
+
+        final Counts counts = localeStats.values().iterator().next();
+        return counts.translated + counts.needReview + counts.untranslated;
+    }
+
+    /**
+     * Record that some REST calls were avoided, because of the statistics.
+     *
+     * @param calls The number of calls avoided.
+     */
+    public void addAvoidedCalls(final int calls) {
+        avoidedCalls.addAndGet(calls);
+    }
+
+    public int getAvoidedCalls() {
+        return avoidedCalls.get();
+    }
+
+    private Counts getCounts(final String zanataId, final String locale) {
+        final Map<String, Counts> localeStats = documentStats.get(zanataId);
+        return localeStats == null ? null : localeStats.get(locale);
+    }
+
+    protected static class Counts {
+        private final long translated;
+        private final long needReview;
+        private final long untranslated;
+
+        protected Counts(final long translated, final long needReview, final long untranslated) {
+            this.translated = translated;
+            this.needReview = needReview;
+            this.untranslated = untranslated;
+        }
+    }
+}
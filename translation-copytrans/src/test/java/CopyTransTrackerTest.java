@@ -0,0 +1,184 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.pressgang.ccms.zanata.CopyTransTracker;
+import org.jboss.pressgang.ccms.zanata.ZanataRateLimiter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.zanata.rest.dto.CopyTransStatus;
+
+public class CopyTransTrackerTest {
+    private FakeClock clock;
+    private FakeClient client;
+    private CopyTransTracker tracker;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        client = new FakeClient(clock);
+        tracker = new CopyTransTracker(client, new ZanataRateLimiter(0.0), clock);
+    }
+
+    @After
+    public void tearDown() {
+        tracker.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldBackOffUntilTheDocumentFinishes() throws InterruptedException {
+        // Given a document that finishes after 10 seconds, when nothing has been learnt yet
+        client.addDocument("doc", 10000, 0);
+
+        // When
+        final boolean success = tracker.start("doc", 100, null).await();
+
+        // Then it should be polled just before the default duration, and then back off
+        assertTrue(success);
+        assertThat(client.getPollTimes("doc"), is(Arrays.asList(4000L, 5500L, 7750L, 11125L)));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldLearnHowLongDocumentsOfASimilarSizeTake() throws InterruptedException {
+        // Given a document that was last seen in progress at 7.75 seconds, and finished by 11.125 seconds
+        client.addDocument("doc", 10000, 0);
+        tracker.start("doc", 100, null).await();
+
+        // When a similar sized document is started
+        client.addDocument("similar", 0, 0);
+        final long startTime = clock.currentTimeMillis();
+        tracker.start("similar", 120, null).await();
+
+        // Then the midpoint should be learnt, and used to schedule the first poll
+        assertThat(client.getPollTimes("similar"), is(Arrays.asList(startTime + 7549L)));
+        assertThat(tracker.getExpectedDurationMillis(-1), is(tracker.getExpectedDurationMillis(5000)));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldPollSoonerWhenTheDocumentIsNearlyDone() throws InterruptedException {
+        // Given a document that is 90% done at the first poll
+        client.addDocument("doc", 4400, 90);
+
+        // When
+        tracker.start("doc", 100, null).await();
+
+        // Then the remaining 10% should take about 444 milliseconds
+        assertThat(client.getPollTimes("doc"), is(Arrays.asList(4000L, 4444L)));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldFailAfterRepeatedFailedPolls() throws InterruptedException {
+        // Given a document that Zanata has no status for
+
+        // When
+        final boolean success = tracker.start("missing", 100, null).await();
+
+        // Then the poll interval shouldn't back off for failed polls
+        assertFalse(success);
+        assertThat(client.getPollTimes("missing"), is(Arrays.asList(4000L, 5000L, 6000L)));
+    }
+
+    @Test
+    public void shouldFailWhenCopyTransCannotBeStarted() throws InterruptedException {
+        // Given
+        client.setStartFails(true);
+
+        // When
+        final CopyTransTracker.Tracked tracked = tracker.start("doc", 100, null);
+
+        // Then
+        assertTrue(tracked.isDone());
+        assertFalse(tracked.await());
+        assertTrue(client.getPollTimes("doc").isEmpty());
+    }
+
+    /**
+     * A clock that jumps straight to the next poll, instead of waiting for it.
+     */
+    private static class FakeClock implements CopyTransTracker.Clock {
+        private long time = 0;
+
+        @Override
+        public synchronized long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        public void waitUntil(final Object lock, final long until) throws InterruptedException {
+            if (until == Long.MAX_VALUE) {
+                lock.wait();
+            } else {
+                synchronized (this) {
+                    time = Math.max(time, until);
+                }
+            }
+        }
+    }
+
+    /**
+     * A Zanata client where each document finishes CopyTrans at a fixed time.
+     */
+    private static class FakeClient implements CopyTransTracker.Client {
+        private final FakeClock clock;
+        private final Map<String, Long> finishTimes = new HashMap<String, Long>();
+        private final Map<String, Integer> percentagesComplete = new HashMap<String, Integer>();
+        private final Map<String, List<Long>> pollTimes = new HashMap<String, List<Long>>();
+        private boolean startFails = false;
+
+        private FakeClient(final FakeClock clock) {
+            this.clock = clock;
+        }
+
+        public synchronized void addDocument(final String zanataId, final long finishTime, final int percentageComplete) {
+            finishTimes.put(zanataId, finishTime);
+            percentagesComplete.put(zanataId, percentageComplete);
+        }
+
+        public synchronized void setStartFails(final boolean startFails) {
+            this.startFails = startFails;
+        }
+
+        public synchronized List<Long> getPollTimes(final String zanataId) {
+            return pollTimes.containsKey(zanataId) ? pollTimes.get(zanataId) : new ArrayList<Long>();
+        }
+
+        @Override
+        public synchronized boolean startCopyTrans(final String zanataId) {
+            return !startFails;
+        }
+
+        @Override
+        public synchronized CopyTransStatus getCopyTransStatus(final String zanataId) {
+            final long now = clock.currentTimeMillis();
+            if (!pollTimes.containsKey(zanataId)) {
+                pollTimes.put(zanataId, new ArrayList<Long>());
+            }
+            pollTimes.get(zanataId).add(now);
+
+            if (!finishTimes.containsKey(zanataId)) {
+                return null;
+            }
+            final boolean inProgress = now < finishTimes.get(zanataId);
+            final int percentageComplete = inProgress ? percentagesComplete.get(zanataId) : 100;
+            return new CopyTransStatus() {
+                @Override
+                public boolean isInProgress() {
+                    return inProgress;
+                }
+
+                @Override
+                public int getPercentageComplete() {
+                    return percentageComplete;
+                }
+            };
+        }
+    }
+}
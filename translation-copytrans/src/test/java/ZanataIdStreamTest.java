@@ -0,0 +1,211 @@
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.pressgang.ccms.zanata.ZanataIdStream;
+import org.junit.Test;
+
+public class ZanataIdStreamTest {
+    @Test(timeout = 5000)
+    public void shouldOnlyHandOutEachIdOnce() {
+        // Given
+        final ZanataIdStream stream = ZanataIdStream.of("test", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                for (final String zanataId : Arrays.asList("a", "b", "a", "c", "b")) {
+                    zanataIds.add(zanataId);
+                }
+            }
+        });
+
+        // When
+        final List<String> zanataIds = readAll(stream);
+
+        // Then
+        assertThat(zanataIds, is(Arrays.asList("a", "b", "c")));
+        assertThat(stream.getCount(), is(3));
+        assertThat(stream.getDuplicates(), is(2));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldMakeTheProducerWaitWhenTheBufferIsFull() throws InterruptedException {
+        // Given a stream that can only hold 2 ids
+        final AtomicInteger added = new AtomicInteger();
+        final ZanataIdStream stream = new ZanataIdStream(2, 1);
+        stream.submit("test", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                for (int i = 0; i < 5; i++) {
+                    zanataIds.add("id" + i);
+                    added.incrementAndGet();
+                }
+            }
+        });
+        stream.finishSubmitting();
+
+        // When nothing has been read
+        Thread.sleep(200);
+
+        // Then the producer should be waiting to add the third id
+        assertThat(added.get(), is(2));
+
+        // When one id is read
+        assertThat(stream.next(), is("id0"));
+        waitFor(added, 3);
+
+        // Then the producer should be able to add one more
+        Thread.sleep(200);
+        assertThat(added.get(), is(3));
+        assertThat(readAll(stream), is(Arrays.asList("id1", "id2", "id3", "id4")));
+    }
+
+    @Test(timeout = 5000)
+    public void shouldEndOnceAllTheProducersHaveFinished() throws InterruptedException {
+        // Given one producer that finishes straight away, and one that waits before adding its id
+        final CountDownLatch release = new CountDownLatch(1);
+        final ZanataIdStream stream = new ZanataIdStream(10, 2);
+        stream.submit("first", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                zanataIds.add("a");
+            }
+        });
+        stream.submit("second", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                zanataIds.add("b");
+            }
+        });
+        stream.finishSubmitting();
+
+        // When the first producer has finished
+        assertThat(stream.next(), is("a"));
+        release.countDown();
+
+        // Then the stream should only end after the second producers id
+        assertThat(stream.next(), is("b"));
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasFailed());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldEndStraightAwayWithNoProducers() {
+        // Given
+        final ZanataIdStream stream = new ZanataIdStream(10, 1);
+
+        // When
+        stream.finishSubmitting();
+
+        // Then
+        assertFalse(stream.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class, timeout = 5000)
+    public void shouldThrowWhenReadingPastTheEnd() {
+        // Given
+        final ZanataIdStream stream = new ZanataIdStream(10, 1);
+        stream.finishSubmitting();
+
+        // When
+        stream.next();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectProducersOnceSubmittingHasFinished() {
+        // Given
+        final ZanataIdStream stream = new ZanataIdStream(10, 1);
+        stream.finishSubmitting();
+
+        // When
+        stream.submit("late", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+            }
+        });
+    }
+
+    @Test(timeout = 5000)
+    public void shouldStopTheProducersWhenClosed() throws InterruptedException {
+        // Given a producer that would add ids forever
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final ZanataIdStream stream = new ZanataIdStream(1, 1);
+        stream.submit("test", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                try {
+                    for (int i = 0; ; i++) {
+                        zanataIds.add("id" + i);
+                    }
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        });
+        stream.finishSubmitting();
+        assertThat(stream.next(), is("id0"));
+
+        // When
+        stream.close();
+
+        // Then the waiting producer should be stopped, without marking the stream as failed
+        assertTrue(stopped.await(2, TimeUnit.SECONDS));
+        assertFalse(stream.hasFailed());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldMarkTheStreamAsFailedWhenAProducerFails() {
+        // Given one producer that fails after adding an id, and one that succeeds
+        final ZanataIdStream stream = new ZanataIdStream(10, 2);
+        stream.submit("failing", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                zanataIds.add("a");
+                throw new IllegalStateException("Failed to download the topics");
+            }
+        });
+        stream.submit("working", new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream zanataIds) {
+                zanataIds.add("b");
+            }
+        });
+        stream.finishSubmitting();
+
+        // When
+        final List<String> zanataIds = readAll(stream);
+
+        // Then the ids that were found should still be handed out
+        assertThat(new HashSet<String>(zanataIds), is(new HashSet<String>(Arrays.asList("a", "b"))));
+        assertTrue(stream.hasFailed());
+    }
+
+    private static List<String> readAll(final ZanataIdStream stream) {
+        final List<String> zanataIds = new ArrayList<String>();
+        while (stream.hasNext()) {
+            zanataIds.add(stream.next());
+        }
+        return zanataIds;
+    }
+
+    private static void waitFor(final AtomicInteger value, final int expected) throws InterruptedException {
+        while (value.get() < expected) {
+            Thread.sleep(10);
+        }
+    }
+}
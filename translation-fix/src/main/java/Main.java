@@ -1,9 +1,18 @@
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
 import org.jboss.pressgang.ccms.utils.structures.Pair;
 import org.jboss.pressgang.ccms.zanata.DeletionTool;
+import org.jboss.pressgang.ccms.zanata.RevisionTopicFetcher;
+import org.jboss.pressgang.ccms.zanata.RunMetrics;
+import org.jboss.pressgang.ccms.zanata.WorkJournal;
+import org.jboss.pressgang.ccms.zanata.Utilities;
+import org.jboss.pressgang.ccms.zanata.WorkPlan;
+import org.jboss.pressgang.ccms.zanata.ZanataIdStore;
+import org.jboss.pressgang.ccms.zanata.ZanataTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,14 +20,149 @@ public class Main {
     private static final Logger log = LoggerFactory.getLogger(DeletionTool.class);
 
     public static void main(String[] args) throws Exception {
-        if (args.length < 2) {
+        // Parse any options that come before the processing type
+        int argIndex = 0;
+        final String pressGangServer = System.getProperty(CommonConstants.PRESS_GANG_REST_SERVER_SYSTEM_PROPERTY);
+        ZanataIdStore zanataIdStore = null;
+        File journalFile = null;
+        long deadline = Long.MAX_VALUE;
+        boolean prefilter = false;
+        String planFile = null;
+        String executePlanFile = null;
+        File metricsDir = null;
+        int metricsInterval = 0;
+        int maxConnections = ZanataTransport.DEFAULT_MAX_CONNECTIONS;
+        int maxConnectionsPerServer = ZanataTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        int keepAlive = ZanataTransport.DEFAULT_KEEP_ALIVE_SECONDS;
+        int deleteThreads = DeletionTool.DEFAULT_DELETE_THREADS;
+        int copyTransWindow = DeletionTool.DEFAULT_COPY_TRANS_WINDOW;
+        int downloadThreads = RevisionTopicFetcher.DEFAULT_PARALLELISM;
+        while (argIndex < args.length) {
+            if (args[argIndex].equals("--cache")) {
+                zanataIdStore = new ZanataIdStore(new File(ZanataIdStore.DEFAULT_DIRECTORY), pressGangServer);
+                argIndex++;
+            } else if (args[argIndex].equals("--cache-dir") && argIndex + 1 < args.length) {
+                zanataIdStore = new ZanataIdStore(new File(args[argIndex + 1]), pressGangServer);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--resume") && argIndex + 1 < args.length) {
+                journalFile = new File(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--prefilter")) {
+                prefilter = true;
+                argIndex++;
+            } else if (args[argIndex].equals("--plan") && argIndex + 1 < args.length) {
+                planFile = args[argIndex + 1];
+                argIndex += 2;
+            } else if (args[argIndex].equals("--execute-plan") && argIndex + 1 < args.length) {
+                executePlanFile = args[argIndex + 1];
+                argIndex += 2;
+            } else if (args[argIndex].equals("--metrics") && argIndex + 1 < args.length) {
+                metricsDir = new File(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--metrics-interval") && argIndex + 1 < args.length) {
+                metricsInterval = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--max-connections") && argIndex + 1 < args.length) {
+                maxConnections = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--max-connections-per-server") && argIndex + 1 < args.length) {
+                maxConnectionsPerServer = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--keep-alive") && argIndex + 1 < args.length) {
+                keepAlive = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--threads") && argIndex + 1 < args.length) {
+                deleteThreads = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--window") && argIndex + 1 < args.length) {
+                copyTransWindow = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--download-threads") && argIndex + 1 < args.length) {
+                downloadThreads = Integer.parseInt(args[argIndex + 1]);
+                argIndex += 2;
+            } else if (args[argIndex].equals("--time-budget") && argIndex + 1 < args.length) {
+                deadline = System.currentTimeMillis() + Integer.parseInt(args[argIndex + 1]) * 60L * 1000L;
+                argIndex += 2;
+            } else {
+                break;
+            }
+        }
+
+        if (executePlanFile == null && args.length - argIndex < 2) {
             return;
         }
 
+        if (metricsDir != null) {
+            RunMetrics.getInstance().startExporting(metricsDir, DeletionTool.TOOL_NAME, metricsInterval);
+        }
+
+        Utilities.setConcurrentDownloads(downloadThreads);
+
+        // Share a pool of keep-alive connections between all the PressGang and Zanata clients
+        ZanataTransport.install(maxConnections, maxConnectionsPerServer, keepAlive, false);
+
         final DeletionTool deletionTool = new DeletionTool();
+        deletionTool.setZanataIdStore(zanataIdStore);
+        deletionTool.setDeadline(deadline);
+        deletionTool.setPrefilter(prefilter);
+        deletionTool.setDeleteThreads(deleteThreads);
+        deletionTool.setCopyTransWindow(copyTransWindow);
+        WorkJournal journal = null;
+        boolean planFailed = false;
+        try {
+            // Open the journal of completed work, so completed work can be skipped
+            if (journalFile != null) {
+                journal = new WorkJournal(journalFile);
+                deletionTool.setJournal(journal);
+            }
 
-        final String processingType = args[0];
-        final List<String> ids = Arrays.asList(Arrays.copyOfRange(args, 1, args.length));
+            if (executePlanFile != null) {
+                // Execute a previously created plan, instead of discovering the work again
+                boolean success = deletionTool.executePlan(WorkPlan.read(new File(executePlanFile)));
+                if (success) {
+                    log.info("Successfully completed executing the plan " + executePlanFile);
+                } else {
+                    log.error("Failed to execute the plan " + executePlanFile);
+                }
+            } else if (planFile != null) {
+                // Only record the work to be done, so it can be reviewed and executed later
+                deletionTool.setPlan(new WorkPlan(DeletionTool.TOOL_NAME));
+                if (process(deletionTool, args, argIndex)) {
+                    deletionTool.writePlan(new File(planFile));
+                } else {
+                    // A partial plan could be executed later as if it were complete, so don't write one
+                    log.error("Not writing the plan to " + planFile + " as not all of the work could be found");
+                    planFailed = true;
+                }
+            } else {
+                process(deletionTool, args, argIndex);
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+            log.info("REST call metrics:\n" + RunMetrics.getInstance());
+            if (metricsDir != null) {
+                RunMetrics.getInstance().finishExporting();
+            }
+            ZanataTransport.shutdown();
+        }
+
+        if (planFailed) {
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * Process the topics, topic revisions or content specs listed on the command line.
+     *
+     * @return True if everything was processed successfully, otherwise false.
+     */
+    private static boolean process(final DeletionTool deletionTool, final String[] args, final int argIndex) throws Exception {
+        boolean allSucceeded = true;
+
+        final String processingType = args[argIndex];
+        final List<String> ids = Arrays.asList(Arrays.copyOfRange(args, argIndex + 1, args.length));
         if (processingType.equals("-t") || processingType.equals("--topic")) {
             // Topic Processing
             final List<Integer> topicIds = new ArrayList<Integer>();
@@ -31,6 +175,7 @@ public class Main {
                 log.info("Successfully completed processing topics");
             } else {
                 log.error("Failed to process topics");
+                allSucceeded = false;
             }
         } else if (processingType.equals("--topic-revisions")) {
             // Topic Revision Processing
@@ -47,6 +192,7 @@ public class Main {
                 log.info("Successfully completed processing revision topics");
             } else {
                 log.error("Failed to process revision topics");
+                allSucceeded = false;
             }
         } else {
             // Content Spec Processing
@@ -67,10 +213,13 @@ public class Main {
                     log.info("Successfully completed processing content spec " + contentSpecIdString);
                 } else {
                     log.error("Failed to process content spec " + contentSpecIdString);
+                    allSucceeded = false;
                 }
                 // Add a blank line to the logs to separate content specs
                 log.info("");
             }
         }
+
+        return allSucceeded;
     }
 }
@@ -0,0 +1,454 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zanata.rest.client.ICopyTransResource;
+import org.zanata.rest.dto.CopyTransStatus;
+
+/**
+ * Tracks the CopyTrans processes that have been started on Zanata, until they finish. A single poller thread checks every
+ * document that is due to be polled in each cycle, so any number of documents can be waited on without a thread sleeping for
+ * each one.
+ * <p/>
+ * Each document is first polled around when it is expected to finish, based on how long previous documents of a similar size
+ * took, and is then polled with an exponential backoff. The progress Zanata reports is used to poll sooner when a document is
+ * nearly done.
+ * <p/>
+ * The REST client behind a Zanata interface shouldn't be shared between threads, so CopyTrans is started with the calling
+ * threads interface and the poller uses its own. The Zanata calls and the clock can be replaced, so the polling can be tested
+ * without a server or waiting in real time.
+ */
+public class CopyTransTracker {
+    private static final Logger log = LoggerFactory.getLogger(CopyTransTracker.class);
+
+    /**
+     * How long CopyTrans is expected to take before any documents have finished. This matches the duration that work plans
+     * assume.
+     */
+    private static final long DEFAULT_EXPECTED_DURATION_MILLIS = 5000;
+    private static final long MIN_POLL_INTERVAL_MILLIS = 250;
+    private static final long MAX_POLL_INTERVAL_MILLIS = 30000;
+    private static final double BACKOFF_MULTIPLIER = 1.5;
+    /**
+     * How much weight the latest duration has, when learning the typical duration for a size of document.
+     */
+    private static final double DURATION_WEIGHT = 0.3;
+    /**
+     * The number of times in a row polling a document can fail, before its CopyTrans is treated as failed.
+     */
+    private static final int MAX_FAILED_POLLS = 3;
+    /**
+     * The size bucket used for documents of an unknown size, which also learns the typical duration of all documents.
+     */
+    private static final int UNKNOWN_SIZE_BUCKET = -1;
+
+    /**
+     * The system clock, which waits in real time.
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void waitUntil(final Object lock, final long time) throws InterruptedException {
+            if (time == Long.MAX_VALUE) {
+                lock.wait();
+            } else {
+                lock.wait(Math.max(1, time - System.currentTimeMillis()));
+            }
+        }
+    };
+
+    private final Client client;
+    private final ZanataRateLimiter rateLimiter;
+    private final Clock clock;
+    private final Object lock = new Object();
+    private final Queue<Tracked> scheduledPolls = new PriorityQueue<Tracked>();
+    private final Map<Integer, Double> expectedDurations = new HashMap<Integer, Double>();
+    private Thread poller;
+    private boolean running = true;
+
+    /**
+     * @param zanataInterfaces The Zanata interface for each thread that uses the tracker, which also creates the pollers own
+     *                         interface.
+     * @param rateLimiter      The rate limiter to acquire permits from before calling Zanata.
+     * @param project          The Zanata project.
+     * @param version          The Zanata project version.
+     */
+    public CopyTransTracker(final ThreadLocal<ZanataInterface> zanataInterfaces, final ZanataRateLimiter rateLimiter,
+            final String project, final String version) {
+        this(new ZanataClient(zanataInterfaces, project, version), rateLimiter, SYSTEM_CLOCK);
+    }
+
+    /**
+     * @param client      The client to start CopyTrans and get its status with.
+     * @param rateLimiter The rate limiter to acquire permits from before calling Zanata.
+     * @param clock       The clock to schedule the polls with.
+     */
+    public CopyTransTracker(final Client client, final ZanataRateLimiter rateLimiter, final Clock clock) {
+        this.client = client;
+        this.rateLimiter = rateLimiter;
+        this.clock = clock;
+    }
+
+    /**
+     * Start CopyTrans for a document, without waiting for it to finish.
+     *
+     * @param zanataId          The id of the document.
+     * @param documentSize      The number of messages in the document, or -1 if it isn't known.
+     * @param completionHandler A handler to notify when CopyTrans finishes, or null if no handler needs to be notified.
+     * @return The tracked CopyTrans process.
+     */
+    public Tracked start(final String zanataId, final long documentSize, final CompletionHandler completionHandler) {
+        final long expectedDuration = getExpectedDurationMillis(documentSize);
+        rateLimiter.acquire(ZanataRateLimiter.CallType.COPY_TRANS);
+        final Tracked tracked = new Tracked(zanataId, documentSize, clock.currentTimeMillis(), expectedDuration, completionHandler);
+        if (!client.startCopyTrans(zanataId)) {
+            finish(tracked, false);
+            return tracked;
+        }
+
+        // Poll just before the document is expected to finish, then back off from a fraction of the expected duration
+        tracked.pollInterval = clampPollInterval((long) (expectedDuration * 0.2));
+        schedule(tracked, clampPollInterval((long) (expectedDuration * 0.8)));
+        return tracked;
+    }
+
+    /**
+     * Run CopyTrans for a document, and wait for it to finish.
+     *
+     * @param zanataId     The id of the document.
+     * @param documentSize The number of messages in the document, or -1 if it isn't known.
+     * @return True if CopyTrans finished successfully, otherwise false.
+     */
+    public boolean runAndWait(final String zanataId, final long documentSize) {
+        try {
+            return start(zanataId, documentSize, null).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for CopyTrans to finish for {}", zanataId);
+            return false;
+        }
+    }
+
+    /**
+     * Get how long CopyTrans is expected to take for a document, based on how long previous documents of a similar size took.
+     *
+     * @param documentSize The number of messages in the document, or -1 if it isn't known.
+     * @return The expected duration in milliseconds.
+     */
+    public long getExpectedDurationMillis(final long documentSize) {
+        synchronized (expectedDurations) {
+            Double expectedDuration = expectedDurations.get(getSizeBucket(documentSize));
+            if (expectedDuration == null) {
+                expectedDuration = expectedDurations.get(UNKNOWN_SIZE_BUCKET);
+            }
+            return expectedDuration == null ? DEFAULT_EXPECTED_DURATION_MILLIS : expectedDuration.longValue();
+        }
+    }
+
+    /**
+     * Stop polling. Any documents that haven't finished are treated as failed.
+     */
+    public void shutdown() {
+        final List<Tracked> unfinished;
+        synchronized (lock) {
+            running = false;
+            unfinished = new ArrayList<Tracked>(scheduledPolls);
+            scheduledPolls.clear();
+            lock.notifyAll();
+        }
+
+        for (final Tracked tracked : unfinished) {
+            log.warn("Stopped waiting for CopyTrans to finish for {}", tracked.zanataId);
+            finish(tracked, false);
+        }
+    }
+
+    private void schedule(final Tracked tracked, final long delay) {
+        tracked.nextPollTime = clock.currentTimeMillis() + delay;
+        synchronized (lock) {
+            if (running) {
+                scheduledPolls.add(tracked);
+                startPoller();
+                lock.notifyAll();
+                return;
+            }
+        }
+
+        // The tracker has been shutdown, so the document will never be polled
+        finish(tracked, false);
+    }
+
+    private void startPoller() {
+        synchronized (lock) {
+            if (poller == null) {
+                poller = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        poll();
+                    }
+                }, "copytrans-poller");
+                poller.setDaemon(true);
+                poller.start();
+            }
+        }
+    }
+
+    /**
+     * The poller loop, which waits until documents are due to be polled and then polls all of them.
+     */
+    private void poll() {
+        while (true) {
+            final List<Tracked> duePolls = new ArrayList<Tracked>();
+            synchronized (lock) {
+                try {
+                    while (running && (scheduledPolls.isEmpty() || scheduledPolls.peek().nextPollTime > clock.currentTimeMillis())) {
+                        clock.waitUntil(lock, scheduledPolls.isEmpty() ? Long.MAX_VALUE : scheduledPolls.peek().nextPollTime);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!running) return;
+
+                final long now = clock.currentTimeMillis();
+                while (!scheduledPolls.isEmpty() && scheduledPolls.peek().nextPollTime <= now) {
+                    duePolls.add(scheduledPolls.poll());
+                }
+            }
+
+            for (final Tracked tracked : duePolls) {
+                poll(tracked);
+            }
+        }
+    }
+
+    private void poll(final Tracked tracked) {
+        final CopyTransStatus status = getCopyTransStatus(tracked.zanataId);
+        if (status == null) {
+            if (++tracked.failedPolls >= MAX_FAILED_POLLS) {
+                finish(tracked, false);
+            } else {
+                schedule(tracked, tracked.pollInterval);
+            }
+        } else if (!status.isInProgress()) {
+            // The document finished at some point since it was last seen in progress, so learn the midpoint
+            final long elapsed = clock.currentTimeMillis() - tracked.startTime;
+            learnDuration(tracked.documentSize, (tracked.lastInProgressElapsed + elapsed) / 2);
+            finish(tracked, true);
+        } else {
+            tracked.failedPolls = 0;
+            tracked.lastInProgressElapsed = clock.currentTimeMillis() - tracked.startTime;
+            tracked.pollInterval = clampPollInterval((long) (tracked.pollInterval * BACKOFF_MULTIPLIER));
+
+            // Use the progress to estimate how much longer the document will take, and poll sooner if it's nearly done
+            long delay = tracked.pollInterval;
+            final int percentageComplete = status.getPercentageComplete();
+            if (percentageComplete > 0 && percentageComplete < 100) {
+                final long remaining = tracked.lastInProgressElapsed * (100 - percentageComplete) / percentageComplete;
+                tracked.expectedCompletionTime = clock.currentTimeMillis() + remaining;
+                delay = Math.min(delay, clampPollInterval(remaining));
+            }
+            schedule(tracked, delay);
+        }
+    }
+
+    private CopyTransStatus getCopyTransStatus(final String zanataId) {
+        rateLimiter.acquire(ZanataRateLimiter.CallType.READ);
+        final long startTime = System.nanoTime();
+        try {
+            final CopyTransStatus status = client.getCopyTransStatus(zanataId);
+            if (status == null) {
+                // A missing status is counted as a failed poll, so don't treat it as a healthy response
+                RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_COPY_TRANS_STATUS, RunMetrics.EMPTY, startTime);
+            } else {
+                RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_COPY_TRANS_STATUS, RunMetrics.OK, startTime);
+                rateLimiter.onSuccess(ZanataRateLimiter.CallType.READ, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            }
+            return status;
+        } catch (Exception e) {
+            RunMetrics.getInstance().record(RunMetrics.ZANATA_GET_COPY_TRANS_STATUS, RunMetrics.ERROR, startTime);
+            log.debug("Failed to get the CopyTrans status for " + zanataId, e);
+            return null;
+        }
+    }
+
+    private void finish(final Tracked tracked, final boolean success) {
+        RunMetrics.getInstance().record(RunMetrics.ZANATA_COPY_TRANS, success ? RunMetrics.OK : RunMetrics.FAILED,
+                tracked.startNanoTime);
+        tracked.success = success;
+        tracked.done.countDown();
+        if (tracked.completionHandler != null) {
+            tracked.completionHandler.onCompletion(tracked);
+        }
+    }
+
+    private void learnDuration(final long documentSize, final long duration) {
+        synchronized (expectedDurations) {
+            for (final int bucket : new int[]{getSizeBucket(documentSize), UNKNOWN_SIZE_BUCKET}) {
+                final Double expectedDuration = expectedDurations.get(bucket);
+                expectedDurations.put(bucket, expectedDuration == null ? duration : expectedDuration + DURATION_WEIGHT * (duration -
+                        expectedDuration));
+            }
+        }
+    }
+
+    /**
+     * Group document sizes by powers of two, so documents of a similar size share their expected duration.
+     */
+    private static int getSizeBucket(final long documentSize) {
+        return documentSize < 0 ? UNKNOWN_SIZE_BUCKET : 64 - Long.numberOfLeadingZeros(documentSize);
+    }
+
+    private static long clampPollInterval(final long interval) {
+        return Math.max(MIN_POLL_INTERVAL_MILLIS, Math.min(MAX_POLL_INTERVAL_MILLIS, interval));
+    }
+
+    /**
+     * The Zanata calls that the tracker makes.
+     */
+    public static interface Client {
+        /**
+         * @param zanataId The id of the document.
+         * @return True if CopyTrans was started, otherwise false.
+         */
+        boolean startCopyTrans(String zanataId);
+
+        /**
+         * @param zanataId The id of the document.
+         * @return The CopyTrans status, or null if it couldn't be found.
+         */
+        CopyTransStatus getCopyTransStatus(String zanataId);
+    }
+
+    /**
+     * The clock that polls are scheduled with.
+     */
+    public static interface Clock {
+        long currentTimeMillis();
+
+        /**
+         * Wait until a time is reached or the lock is notified. The caller must hold the locks monitor.
+         *
+         * @param lock The lock to wait on.
+         * @param time The time to wait until, or Long.MAX_VALUE to wait until the lock is notified.
+         * @throws InterruptedException Thrown if the thread is interrupted while waiting.
+         */
+        void waitUntil(Object lock, long time) throws InterruptedException;
+    }
+
+    /**
+     * Makes the calls with the Zanata interface of the calling thread.
+     */
+    private static class ZanataClient implements Client {
+        private final ThreadLocal<ZanataInterface> zanataInterfaces;
+        private final ThreadLocal<ICopyTransResource> copyTransResources = new ThreadLocal<ICopyTransResource>() {
+            @Override
+            protected ICopyTransResource initialValue() {
+                return zanataInterfaces.get().getProxyFactory().getCopyTransResource();
+            }
+        };
+        private final String project;
+        private final String version;
+
+        private ZanataClient(final ThreadLocal<ZanataInterface> zanataInterfaces, final String project, final String version) {
+            this.zanataInterfaces = zanataInterfaces;
+            this.project = project;
+            this.version = version;
+        }
+
+        @Override
+        public boolean startCopyTrans(final String zanataId) {
+            return zanataInterfaces.get().runCopyTrans(zanataId, false);
+        }
+
+        @Override
+        public CopyTransStatus getCopyTransStatus(final String zanataId) {
+            return copyTransResources.get().getCopyTransStatus(project, version, zanataId);
+        }
+    }
+
+    /**
+     * Notified when a tracked CopyTrans process finishes. Handlers are called from the poller thread, so they should return
+     * quickly.
+     */
+    public static interface CompletionHandler {
+        void onCompletion(Tracked tracked);
+    }
+
+    /**
+     * A CopyTrans process that is being tracked.
+     */
+    public static class Tracked implements Comparable<Tracked> {
+        private final String zanataId;
+        private final long documentSize;
+        private final long startNanoTime = System.nanoTime();
+        private final long startTime;
+        private final CompletionHandler completionHandler;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean success = false;
+        private volatile long expectedCompletionTime;
+        private long nextPollTime;
+        private long pollInterval;
+        private long lastInProgressElapsed = 0;
+        private int failedPolls = 0;
+
+        private Tracked(final String zanataId, final long documentSize, final long startTime, final long expectedDuration,
+                final CompletionHandler completionHandler) {
+            this.zanataId = zanataId;
+            this.documentSize = documentSize;
+            this.startTime = startTime;
+            this.completionHandler = completionHandler;
+            expectedCompletionTime = startTime + expectedDuration;
+        }
+
+        public String getZanataId() {
+            return zanataId;
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * @return True if CopyTrans finished successfully, or false if it failed or hasn't finished yet.
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+
+        /**
+         * @return When CopyTrans is expected to finish, in milliseconds since the epoch.
+         */
+        public long getExpectedCompletionTime() {
+            return expectedCompletionTime;
+        }
+
+        /**
+         * Wait for CopyTrans to finish.
+         *
+         * @return True if CopyTrans finished successfully, otherwise false.
+         * @throws InterruptedException Thrown if the thread is interrupted while waiting.
+         */
+        public boolean await() throws InterruptedException {
+            done.await();
+            return success;
+        }
+
+        @Override
+        public int compareTo(final Tracked tracked) {
+            return nextPollTime < tracked.nextPollTime ? -1 : (nextPollTime == tracked.nextPollTime ? 0 : 1);
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package org.jboss.pressgang.ccms.zanata;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.jboss.pressgang.ccms.contentspec.utils.EntityUtilities;
 import org.jboss.pressgang.ccms.provider.RESTProviderFactory;
+import org.jboss.pressgang.ccms.provider.RESTTopicProvider;
 import org.jboss.pressgang.ccms.provider.ServerSettingsProvider;
 import org.jboss.pressgang.ccms.provider.TopicProvider;
-import org.jboss.pressgang.ccms.rest.v1.expansion.ExpandDataDetails;
-import org.jboss.pressgang.ccms.rest.v1.expansion.ExpandDataTrunk;
-import org.jboss.pressgang.ccms.rest.v1.query.RESTTopicQueryBuilderV1;
 import org.jboss.pressgang.ccms.utils.common.CollectionUtilities;
 import org.jboss.pressgang.ccms.utils.constants.CommonConstants;
 import org.jboss.pressgang.ccms.utils.structures.Pair;
@@ -31,7 +40,18 @@ public class DeletionTool {
      * The Default amount of time that should be waited between Zanata REST API Calls.
      */
     private static final Double DEFAULT_ZANATA_CALL_INTERVAL = 0.2;
-    private static int MAX_DOWNLOAD_SIZE = 400;
+    /**
+     * The name of the tool that is recorded in work plans and metrics.
+     */
+    public static final String TOOL_NAME = "translation-fix";
+    /**
+     * The default number of documents to delete translations for at the same time.
+     */
+    public static final int DEFAULT_DELETE_THREADS = 1;
+    /**
+     * The default number of documents to run CopyTrans for at the same time.
+     */
+    public static final int DEFAULT_COPY_TRANS_WINDOW = 1;
 
     /* Get the system properties */
     private static final String PRESSGANG_SERVER = System.getProperty(CommonConstants.PRESS_GANG_REST_SERVER_SYSTEM_PROPERTY);
@@ -43,19 +63,42 @@ public class DeletionTool {
     private static final String MIN_ZANATA_CALL_INTERVAL = System.getProperty(ZanataConstants.MIN_ZANATA_CALL_INTERNAL_PROPERTY);
 
     /**
-     * The minimum amount of time in seconds between calls to the Zanata REST API
+     * Each worker thread gets its own Zanata interface, as the underlying REST client shouldn't be shared between threads.
      */
-    private final ZanataInterface zanataInterface;
+    private final ThreadLocal<ZanataInterface> zanataInterfaces = new ThreadLocal<ZanataInterface>() {
+        @Override
+        protected ZanataInterface initialValue() {
+            // Rate limiting is handled by the rate limiter, so disable the interfaces own call interval
+            return new ZanataInterface(0);
+        }
+    };
+    private final CopyTransTracker copyTransTracker;
+    private final ZanataRateLimiter rateLimiter;
     private final RESTProviderFactory providerFactory;
+    private final RESTProviderFactory pushedTopicProviderFactory;
     private final List<LocaleId> locales;
     private final Set<String> ignoreZanataIds = new HashSet<String>();
+    private ZanataIdStore zanataIdStore;
+    private WorkJournal journal;
+    private long deadline = Long.MAX_VALUE;
+    private boolean prefilter = false;
+    private ZanataStatistics statistics;
+    private WorkPlan workPlan;
+    private int deleteThreads = DEFAULT_DELETE_THREADS;
+    private int copyTransWindow = DEFAULT_COPY_TRANS_WINDOW;
 
     public DeletionTool() throws Exception {
         if (!checkEnvironment()) {
             throw new IllegalStateException("The system variables have not been set for PressGang and Zanata.");
         }
 
+        // Processing topics by id only uses their ids and revisions, so don't expand the translations of those topics
         providerFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
+        providerFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(false);
+        // The translations are needed to find the pushed topics in a content spec, so only expand them when looking up the
+        // Zanata ids
+        pushedTopicProviderFactory = RESTProviderFactory.create(PRESSGANG_SERVER);
+        pushedTopicProviderFactory.getProvider(RESTTopicProvider.class).setExpandTranslations(true);
 
         /* Parse the specified time from the System Variables. If no time is set or is invalid then use the default value */
         double zanataRESTCallInterval;
@@ -67,7 +110,10 @@ public class DeletionTool {
             zanataRESTCallInterval = DEFAULT_ZANATA_CALL_INTERVAL;
         }
 
-        zanataInterface = new ZanataInterface(zanataRESTCallInterval);
+        rateLimiter = new ZanataRateLimiter(zanataRESTCallInterval);
+        // Create the main threads interface straight away, so any problems connecting to Zanata are found before starting
+        getZanataInterface();
+        copyTransTracker = new CopyTransTracker(zanataInterfaces, rateLimiter, ZANATA_PROJECT, ZANATA_VERSION);
 
         locales = getLocales();
     }
@@ -121,12 +167,131 @@ public class DeletionTool {
         return localeIds;
     }
 
+    /**
+     * Set the store that should be used to cache the Zanata document ids of content specs between runs.
+     *
+     * @param zanataIdStore The store to use, or null if the ids shouldn't be cached.
+     */
+    public void setZanataIdStore(final ZanataIdStore zanataIdStore) {
+        this.zanataIdStore = zanataIdStore;
+    }
+
+    /**
+     * Set the journal that completed deletions and CopyTrans runs should be recorded in. Any work already recorded in the journal
+     * will be skipped.
+     *
+     * @param journal The journal to use, or null if completed work shouldn't be recorded.
+     */
+    public void setJournal(final WorkJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Set the time at which the tool should stop starting new work, so that it stops cleanly and can be resumed later.
+     *
+     * @param deadline The deadline, in milliseconds since the epoch.
+     */
+    public void setDeadline(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Set whether the Zanata translation statistics should be used to skip deleting translations that hold nothing.
+     *
+     * @param prefilter True if the statistics should be used, otherwise false.
+     */
+    public void setPrefilter(final boolean prefilter) {
+        this.prefilter = prefilter;
+    }
+
+    /**
+     * Set the number of documents that translations should be deleted for at the same time.
+     *
+     * @param deleteThreads The number of documents, which must be at least one.
+     */
+    public void setDeleteThreads(final int deleteThreads) {
+        if (deleteThreads < 1) {
+            throw new IllegalArgumentException("The number of delete threads must be at least one");
+        }
+        this.deleteThreads = deleteThreads;
+    }
+
+    /**
+     * Set the number of documents that CopyTrans should be run for at the same time. A document waits for room in the window
+     * once its translations have been deleted, so this also limits how far the deletions can get ahead of CopyTrans.
+     *
+     * @param copyTransWindow The number of documents, which must be at least one.
+     */
+    public void setCopyTransWindow(final int copyTransWindow) {
+        if (copyTransWindow < 1) {
+            throw new IllegalArgumentException("The CopyTrans window must be at least one");
+        }
+        this.copyTransWindow = copyTransWindow;
+    }
+
+    /**
+     * Set the plan that deletions and CopyTrans runs should be recorded in. While a plan is set, no translations are deleted and
+     * CopyTrans isn't run, so that the plan can be reviewed and executed later.
+     *
+     * @param workPlan The plan to record the work in, or null if the work should be done.
+     */
+    public void setPlan(final WorkPlan workPlan) {
+        this.workPlan = workPlan;
+    }
+
+    /**
+     * Write the plan the work has been recorded in to a file, along with the number of REST calls needed and a projected duration.
+     *
+     * @param planFile The file to write the plan to.
+     * @throws IOException Thrown if the plan couldn't be written.
+     */
+    public void writePlan(final File planFile) throws IOException {
+        workPlan.setPressGangGets(Utilities.getPressGangRequests());
+        // The deletions and CopyTrans runs are pipelined, so CopyTrans is bounded by its own window
+        workPlan.estimate(rateLimiter, deleteThreads, copyTransWindow);
+        workPlan.write(planFile);
+
+        log.info("Wrote the plan to " + planFile.getAbsolutePath() + ": " + workPlan);
+    }
+
+    /**
+     * Delete the translated documents and run CopyTrans for the documents listed in a work plan. CopyTrans is only run for a
+     * document once all of its planned deletions have succeeded.
+     *
+     * @param workPlan The plan to execute.
+     * @return True if the plan was executed successfully otherwise false.
+     */
+    public boolean executePlan(final WorkPlan workPlan) {
+        if (!TOOL_NAME.equals(workPlan.getTool())) {
+            throw new IllegalArgumentException("The plan is for " + workPlan.getTool() + ", not " + TOOL_NAME);
+        }
+        log.info("Executing the plan: " + workPlan);
+        initStatistics();
+
+        // Group the deletions by document
+        final Map<String, List<LocaleId>> deletions = new HashMap<String, List<LocaleId>>();
+        for (final WorkPlan.Step step : workPlan.getSteps(WorkPlan.Operation.DELETE)) {
+            if (!deletions.containsKey(step.getDocumentId())) {
+                deletions.put(step.getDocumentId(), new ArrayList<LocaleId>());
+            }
+            deletions.get(step.getDocumentId()).add(new LocaleId(step.getLocale()));
+        }
+
+        final Map<String, List<LocaleId>> documents = new LinkedHashMap<String, List<LocaleId>>();
+        for (final WorkPlan.Step step : workPlan.getSteps(WorkPlan.Operation.COPY_TRANS)) {
+            final String zanataId = step.getDocumentId();
+            documents.put(zanataId, deletions.containsKey(zanataId) ? deletions.get(zanataId) : Collections.<LocaleId>emptyList());
+        }
+
+        return deleteAndCopyTransForDocuments(documents.entrySet().iterator());
+    }
+
     public void addContentSpecToIgnoreList(Integer contentSpecId, Integer revision) throws Exception {
-        final TranslatedContentSpecWrapper pushedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(providerFactory,
+        final TranslatedContentSpecWrapper pushedContentSpec = Utilities.getClosestTranslatedContentSpecById(providerFactory,
                 contentSpecId, revision);
 
         // Create the set of topic zanata ids
-        final Set<String> topicZanataIds = Utilities.getZanataIds(providerFactory, pushedContentSpec);
+        final Set<String> topicZanataIds = Utilities.getZanataIds(pushedTopicProviderFactory, pushedContentSpec, zanataIdStore);
 
         // Add the Zanata Ids so that they will be ignored
         ignoreZanataIds.addAll(topicZanataIds);
@@ -155,12 +320,22 @@ public class DeletionTool {
      */
     public boolean deleteAndCopyTransForContentSpec(Integer contentSpecId, Integer revision,
             final List<LocaleId> locales) throws Exception {
-        final TranslatedContentSpecWrapper pushedContentSpec = EntityUtilities.getClosestTranslatedContentSpecById(providerFactory,
+        final TranslatedContentSpecWrapper pushedContentSpec = Utilities.getClosestTranslatedContentSpecById(providerFactory,
                 contentSpecId, revision);
 
-        // Create the set of topic zanata ids
-        final Set<String> topicZanataIds = Utilities.getZanataIds(providerFactory, pushedContentSpec);
-        return deleteAndCopyTransForTopics(topicZanataIds, locales);
+        // Find the topic zanata ids in the background, so the first documents are processed while the rest are still being found
+        final ZanataIdStream topicZanataIds = ZanataIdStream.of("content spec " + contentSpecId, new ZanataIdStream.Producer() {
+            @Override
+            public void produce(final ZanataIdStream stream) {
+                Utilities.streamZanataIds(pushedTopicProviderFactory, pushedContentSpec, zanataIdStore, stream);
+            }
+        });
+        try {
+            final boolean success = deleteAndCopyTransForTopics(topicZanataIds, locales);
+            return success && !topicZanataIds.hasFailed();
+        } finally {
+            topicZanataIds.close();
+        }
     }
 
     /**
@@ -181,17 +356,24 @@ public class DeletionTool {
      * @return True if the topics were processed successfully otherwise false.
      */
     public boolean deleteAndCopyTransForTopics(final List<Integer> topicIds, final List<LocaleId> locales) throws IOException {
-        final RESTTopicQueryBuilderV1 topicQueryBuilder = new RESTTopicQueryBuilderV1();
-        topicQueryBuilder.setTopicIds(topicIds);
-
-        final ExpandDataTrunk expand = new ExpandDataTrunk();
-        final ExpandDataTrunk expandTopics = new ExpandDataTrunk(new ExpandDataDetails("topics"));
-        expand.setBranches(Arrays.asList(expandTopics));
+        // Only the ids and revisions of the topics are needed, so keep them as each chunk arrives rather than the whole topics
+        final Set<String> topicZanataIds = new HashSet<String>();
+        Utilities.createTopicDownloader(providerFactory.getProvider(TopicProvider.class)).download(topicIds,
+                new TopicDownloader.ChunkHandler() {
+                    @Override
+                    public void onTopics(final CollectionWrapper<TopicWrapper> topics) {
+                        for (final TopicWrapper topic : topics.getItems()) {
+                            topicZanataIds.add(topic.getId() + "-" + topic.getRevision());
+                        }
+                    }
+                });
 
-        final CollectionWrapper<TopicWrapper > topics = providerFactory.getProvider(TopicProvider.class)
-                .getTopicsWithQuery(topicQueryBuilder.getQuery());
+        if (topicZanataIds.isEmpty()) {
+            log.error("No topics to delete and run copy trans for.");
+            return false;
+        }
 
-        return deleteAndCopyTransForTopics(topics, locales);
+        return deleteAndCopyTransForTopics(topicZanataIds, locales);
     }
 
     /**
@@ -216,10 +398,7 @@ public class DeletionTool {
 
         final TopicProvider topicProvider = providerFactory.getProvider(TopicProvider.class);
         final CollectionWrapper<TopicWrapper> topics = topicProvider.newTopicCollection();
-        for (final Pair<Integer, Integer> revTopicId : topicIds) {
-            final TopicWrapper revTopic = topicProvider.getTopic(revTopicId.getFirst(), revTopicId.getSecond());
-            topics.addItem(revTopic);
-        }
+        Utilities.downloadRevisionTopics(topicProvider, topicIds, topics);
 
         return deleteAndCopyTransForTopics(topics, locales);
     }
@@ -254,54 +433,261 @@ public class DeletionTool {
      * @return True if the topics were processed successfully otherwise false.
      */
     public boolean deleteAndCopyTransForTopics(final Set<String> zanataIds, final List<LocaleId> locales) {
+        return deleteAndCopyTransForTopics(zanataIds.iterator(), locales);
+    }
 
-        // Delete all the translation documents from zanata
-        final Set<String> processedZanataIds = new HashSet<String>();
-        boolean error = false;
-        if (!deleteZanataTranslatedDocuments(zanataIds, locales, processedZanataIds)) {
-            error = true;
+    /**
+     * Deletes all translated documents and runs copytrans to re-populate the translated data. The documents are processed as
+     * they are read, so the work can start while the rest of the documents are still being discovered.
+     *
+     * @param zanataIds The Zanata Document Ids to be deleted and re-populated.
+     * @param locales   The locales of the translated documents to be deleted.
+     * @return True if the topics were processed successfully otherwise false.
+     */
+    public boolean deleteAndCopyTransForTopics(final Iterator<String> zanataIds, final List<LocaleId> locales) {
+        // Only record the work to be done, if a plan is being created
+        if (workPlan != null) {
+            final Set<String> plannedZanataIds = new LinkedHashSet<String>();
+            while (zanataIds.hasNext()) {
+                plannedZanataIds.add(zanataIds.next());
+            }
+            addToPlan(plannedZanataIds, locales);
+            return true;
+        }
+
+        return deleteAndCopyTransForDocuments(new Iterator<Map.Entry<String, List<LocaleId>>>() {
+            @Override
+            public boolean hasNext() {
+                return zanataIds.hasNext();
+            }
+
+            @Override
+            public Map.Entry<String, List<LocaleId>> next() {
+                return new AbstractMap.SimpleImmutableEntry<String, List<LocaleId>>(zanataIds.next(), locales);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    /**
+     * Delete the translated documents and run CopyTrans for a set of documents, as a pipeline. As soon as all the translations
+     * of a document have been deleted, CopyTrans is started for it while the translations of the following documents are
+     * deleted, so a document is only left without translations for as long as it takes to process that document.
+     * <p/>
+     * Documents are only read once there is room for them in the pipeline, so the documents can still be being discovered while
+     * the first ones are processed.
+     *
+     * @param documents The Zanata Document Ids to process, mapped to the locales that should be deleted for each document.
+     * @return True if all the translations were deleted and CopyTrans ran successfully for all the documents that were started
+     *         before the time budget was used up, otherwise false.
+     */
+    protected boolean deleteAndCopyTransForDocuments(final Iterator<Map.Entry<String, List<LocaleId>>> documents) {
+        initStatistics();
+
+        log.info("Deleting translations for " + deleteThreads + " document(s) at a time, and running CopyTrans for " +
+                copyTransWindow + " at a time");
+        // Each document holds a permit from when it's read until it has finished
+        final int maxUnfinishedDocuments = deleteThreads + copyTransWindow;
+        final Semaphore unfinishedDocuments = new Semaphore(maxUnfinishedDocuments);
+        final AtomicInteger failedDocuments = new AtomicInteger(0);
+        final AtomicInteger deferredDocuments = new AtomicInteger(0);
+        final Semaphore copyTransSlots = new Semaphore(copyTransWindow);
+        final CopyTransTracker.CompletionHandler completionHandler = new CopyTransTracker.CompletionHandler() {
+            @Override
+            public void onCompletion(final CopyTransTracker.Tracked tracked) {
+                if (tracked.isSuccess()) {
+                    log.info("Finished Zanata CopyTrans for " + tracked.getZanataId());
+                    if (journal != null) {
+                        journal.markComplete(getCopyTransJournalKey(tracked.getZanataId()));
+                    }
+                } else {
+                    log.error("Failed to run Zanata CopyTrans for " + tracked.getZanataId());
+                    failedDocuments.incrementAndGet();
+                }
+                copyTransSlots.release();
+                unfinishedDocuments.release();
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(deleteThreads);
+        try {
+            while (documents.hasNext()) {
+                final Map.Entry<String, List<LocaleId>> document = documents.next();
+                if (ignoreZanataIds.contains(document.getKey())) {
+                    log.info("Ignoring Zanata Translation " + document.getKey());
+                    continue;
+                }
+
+                unfinishedDocuments.acquire();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final String zanataId = document.getKey();
+                        DocumentResult result;
+                        try {
+                            result = deleteZanataTranslatedDocuments(zanataId, document.getValue());
+                            if (result != DocumentResult.DONE) {
+                                // Don't recreate the translations until all of them have been deleted
+                            } else if (journal != null && journal.isComplete(getCopyTransJournalKey(zanataId))) {
+                                log.info("Skipping CopyTrans for " + zanataId + " as it was run by a previous run");
+                            } else {
+                                result = startCopyTrans(zanataId, copyTransSlots, completionHandler);
+                                if (result == DocumentResult.STARTED) {
+                                    // The completion handler will finish the document
+                                    return;
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            log.error("Failed to process Zanata Translation " + zanataId, e);
+                            result = DocumentResult.FAILED;
+                        }
+
+                        if (result == DocumentResult.FAILED) {
+                            failedDocuments.incrementAndGet();
+                        } else if (result == DocumentResult.DEFERRED) {
+                            deferredDocuments.incrementAndGet();
+                        }
+                        unfinishedDocuments.release();
+                    }
+                });
+            }
+
+            // Wait for all the documents to finish
+            unfinishedDocuments.acquire(maxUnfinishedDocuments);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while deleting translations and running CopyTrans");
+            return false;
+        } finally {
+            executor.shutdownNow();
         }
 
-        // run copy trans on the source documents to recreate the translated documents
-        if (!runCopyTransForZanataSourceDocuments(processedZanataIds)) {
-            error = true;
+        if (statistics != null) {
+            log.info("Skipped " + statistics.getAvoidedCalls() + " deletion(s) of empty Zanata Translations");
+        }
+        if (deferredDocuments.get() > 0) {
+            // Stopping for the time budget isn't a failure, the documents will be processed when the run is resumed
+            log.info("Deferred " + deferredDocuments.get() + " document(s) that weren't finished before the time budget was used " +
+                    "up. Run the tool again with --resume to continue.");
         }
 
-        return !error;
+        return failedDocuments.get() == 0;
     }
 
     /**
-     * Delete the Translated Documents from Zanata for a set of topics and relevant locales.
+     * Start CopyTrans for a document once there is room in the CopyTrans window, without waiting for it to finish.
      *
-     * @param zanataIds          The collection of zanata document ids to delete the translations for.
-     * @param locales            The locales of the translated documents that should be deleted.
-     * @param processedZanataIds A collection of zanata ids to add successfully processed zanata document ids to.
-     * @return True if all of the translated documents are successfully deleted otherwise false.
+     * @param zanataId          The id of the document.
+     * @param copyTransSlots    The slots in the CopyTrans window, which are released by the completion handler.
+     * @param completionHandler The handler to notify when CopyTrans finishes.
+     * @return {@link DocumentResult#STARTED} if CopyTrans was started and the completion handler will be notified,
+     *         {@link DocumentResult#DEFERRED} if the time budget has been used up, otherwise {@link DocumentResult#FAILED}.
      */
-    protected boolean deleteZanataTranslatedDocuments(final Set<String> zanataIds, final List<LocaleId> locales,
-            final Set<String> processedZanataIds) {
+    private DocumentResult startCopyTrans(final String zanataId, final Semaphore copyTransSlots,
+            final CopyTransTracker.CompletionHandler completionHandler) {
+        try {
+            copyTransSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return DocumentResult.FAILED;
+        }
+
+        if (hasDeadlinePassed()) {
+            copyTransSlots.release();
+            return DocumentResult.DEFERRED;
+        }
+
+        log.info("Running Zanata CopyTrans for " + zanataId);
+        try {
+            copyTransTracker.start(zanataId, statistics == null ? -1 : statistics.getMessageCount(zanataId), completionHandler);
+            return DocumentResult.STARTED;
+        } catch (RuntimeException e) {
+            // The completion handler won't be notified, so give the slot back for the following documents
+            log.error("Failed to start Zanata CopyTrans for " + zanataId, e);
+            copyTransSlots.release();
+            return DocumentResult.FAILED;
+        }
+    }
+
+    /**
+     * Delete the Translated Documents from Zanata for a single document and a set of locales.
+     *
+     * @param zanataId The zanata document id to delete the translations for.
+     * @param locales  The locales of the translated documents that should be deleted.
+     * @return {@link DocumentResult#DONE} if all of the translated documents are successfully deleted,
+     *         {@link DocumentResult#DEFERRED} if the time budget was used up before they could be, otherwise
+     *         {@link DocumentResult#FAILED}.
+     */
+    protected DocumentResult deleteZanataTranslatedDocuments(final String zanataId, final List<LocaleId> locales) {
         boolean error = false;
+        for (final LocaleId localeId : locales) {
+            final String journalKey = "delete " + zanataId + " " + localeId;
+            if (journal != null && journal.isComplete(journalKey)) {
+                log.info("Skipping Zanata Translation " + zanataId + " " + localeId + " as it was deleted by a previous run");
+            } else if (statistics != null && !statistics.hasTranslations(zanataId, localeId)) {
+                // There is nothing to delete
+                statistics.addAvoidedCalls(1);
+            } else if (hasDeadlinePassed()) {
+                // Stop here, the document will be processed when the run is resumed
+                return error ? DocumentResult.FAILED : DocumentResult.DEFERRED;
+            } else if (!deleteZanataTranslatedDocument(zanataId, localeId)) {
+                error = true;
+            } else if (journal != null) {
+                journal.markComplete(journalKey);
+            }
+        }
+
+        return error ? DocumentResult.FAILED : DocumentResult.DONE;
+    }
+
+    /**
+     * Record the deletions and CopyTrans runs needed for a set of documents in the work plan.
+     *
+     * @param zanataIds The collection of Zanata Document Ids to be deleted and re-populated.
+     * @param locales   The locales of the translated documents to be deleted.
+     */
+    protected void addToPlan(final Set<String> zanataIds, final List<LocaleId> locales) {
+        initStatistics();
+
         for (final String zanataId : zanataIds) {
-            // Check if the
-            if (!ignoreZanataIds.contains(zanataId)) {
-                boolean topicError = false;
-                for (final LocaleId localeId : locales) {
-                    if (!deleteZanataTranslatedDocument(zanataId, localeId)) {
-                        topicError = true;
-                    }
-                }
+            if (ignoreZanataIds.contains(zanataId)) {
+                log.info("Ignoring Zanata Translation " + zanataId);
+                continue;
+            }
 
-                if (topicError) {
-                    error = true;
+            for (final LocaleId localeId : locales) {
+                if (statistics != null && !statistics.hasTranslations(zanataId, localeId)) {
+                    // There is nothing to delete
+                    statistics.addAvoidedCalls(1);
                 } else {
-                    processedZanataIds.add(zanataId);
+                    workPlan.addDelete(zanataId, localeId.toString());
                 }
-            } else {
-                log.info("Ignoring Zanata Translation " + zanataId);
             }
+            workPlan.addCopyTrans(zanataId);
         }
+    }
 
-        return !error;
+    /**
+     * Get the translation statistics for the whole project version, the first time they are needed.
+     */
+    private void initStatistics() {
+        if (prefilter && statistics == null) {
+            statistics = ZanataStatistics.fetch(getZanataInterface(), rateLimiter, ZANATA_PROJECT, ZANATA_VERSION, null);
+            prefilter = statistics != null;
+        }
+    }
+
+    /**
+     * Get the Zanata interface that should be used by the current thread.
+     *
+     * @return The current threads Zanata interface.
+     */
+    protected ZanataInterface getZanataInterface() {
+        return zanataInterfaces.get();
     }
 
     /**
@@ -313,34 +699,59 @@ public class DeletionTool {
      */
     protected boolean deleteZanataTranslatedDocument(final String zanataId, LocaleId localeId) {
         log.info("Deleting Zanata Translation " + zanataId + " " + localeId.toString());
-        return zanataInterface.deleteTranslation(zanataId, localeId);
+        rateLimiter.acquire(ZanataRateLimiter.CallType.WRITE);
+        final long startTime = System.nanoTime();
+        final boolean deleted = getZanataInterface().deleteTranslation(zanataId, localeId);
+        RunMetrics.getInstance().record(RunMetrics.ZANATA_DELETE_TRANSLATIONS, deleted ? RunMetrics.OK : RunMetrics.FAILED, startTime);
+        if (deleted) {
+            rateLimiter.onSuccess(ZanataRateLimiter.CallType.WRITE, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+        return deleted;
     }
 
     /**
-     * Run CopyTrans against a set of topics.
+     * Get the key that a CopyTrans run for a document is recorded under in the journal.
      *
-     * @param zanataIds The collection of topics to run copytrans for.
-     * @return True if copytrans runs fine for all topics otherwise false.
+     * @param zanataId The id of the document.
+     * @return The journal key.
      */
-    protected boolean runCopyTransForZanataSourceDocuments(final Set<String> zanataIds) {
-        boolean error = false;
-        for (final String zanataId : zanataIds) {
-            if (!runCopyTransForZanataSourceDocument(zanataId)) {
-                error = true;
-            }
+    private static String getCopyTransJournalKey(final String zanataId) {
+        return "copytrans " + zanataId;
+    }
+
+    /**
+     * Check if the time budget for the run has been used up. Once it has, no new deletions or CopyTrans runs will be started.
+     *
+     * @return True if the deadline has passed, otherwise false.
+     */
+    protected boolean hasDeadlinePassed() {
+        if (System.currentTimeMillis() >= deadline) {
+            log.warn("The time budget has been used up, so no more work will be started. Run the tool again with --resume to continue.");
+            return true;
         }
 
-        return !error;
+        return false;
     }
 
     /**
-     * Run copy trans against a Source Document in zanata and then wait for it to complete
-     *
-     * @param zanataId The id of the document to run copytrans for.
-     * @return True if copytrans was run successfully, otherwise false.
+     * What happened to a document while its translations were being deleted and CopyTrans was being started.
      */
-    protected boolean runCopyTransForZanataSourceDocument(final String zanataId) {
-        log.info("Running Zanata CopyTrans for " + zanataId);
-        return zanataInterface.runCopyTrans(zanataId, true);
+    protected static enum DocumentResult {
+        /**
+         * The step finished successfully.
+         */
+        DONE,
+        /**
+         * CopyTrans was started, and the completion handler will finish the document.
+         */
+        STARTED,
+        /**
+         * The step failed.
+         */
+        FAILED,
+        /**
+         * The time budget was used up before the step could be done, so the document will be processed when the run is resumed.
+         */
+        DEFERRED
     }
 }
@@ -0,0 +1,49 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import org.jboss.pressgang.ccms.wrapper.TranslatedTopicWrapper;
+
+/**
+ * The parts of a pushed translated topic that are needed to find its Zanata document. Only these are kept once a topic has been
+ * downloaded during discovery, rather than the topic along with all of its translations.
+ * <p/>
+ * This only reduces what is held in memory. The topic provider can either expand all of a topics translations or none of them,
+ * so the topics are still downloaded with all of their translations to find the pushed topic.
+ */
+public class PushedTopic {
+    /**
+     * Used to record that a topic has no pushed translation, so the topic doesn't need to be downloaded again to find that out.
+     */
+    static final PushedTopic NOT_PUSHED = new PushedTopic(null, null);
+
+    private final String zanataId;
+    private final Integer topicRevision;
+
+    public PushedTopic(final String zanataId, final Integer topicRevision) {
+        this.zanataId = zanataId;
+        this.topicRevision = topicRevision;
+    }
+
+    /**
+     * Get the parts of a pushed translated topic that are needed to find its Zanata document.
+     *
+     * @param translatedTopic The pushed translated topic, or null if there isn't one.
+     * @return The pushed topic, or {@link #NOT_PUSHED} if there isn't one.
+     */
+    public static PushedTopic from(final TranslatedTopicWrapper translatedTopic) {
+        return translatedTopic == null ? NOT_PUSHED : new PushedTopic(translatedTopic.getZanataId(), translatedTopic.getTopicRevision());
+    }
+
+    /**
+     * @return The id of the Zanata document the topic was pushed to.
+     */
+    public String getZanataId() {
+        return zanataId;
+    }
+
+    /**
+     * @return The revision of the topic that was pushed.
+     */
+    public Integer getTopicRevision() {
+        return topicRevision;
+    }
+}
@@ -0,0 +1,233 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.utils.structures.Pair;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads topic revisions from PressGang concurrently. A topic revision that is already being downloaded, either earlier in the
+ * same request or by another thread, is only downloaded once, and downloaded topics are added to the topic cache.
+ */
+public class RevisionTopicFetcher {
+    private static final Logger log = LoggerFactory.getLogger(RevisionTopicFetcher.class);
+    /**
+     * The default number of topic revisions to download at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+    /**
+     * The minimum amount of time between progress log messages.
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    /**
+     * Handles each topic revision that is fetched, in the order the topics were listed.
+     */
+    public static interface TopicHandler {
+        void onTopic(Integer topicId, Integer topicRevision, TopicWrapper topic);
+    }
+
+    private final TopicCache topicCache;
+    private final ConcurrentMap<String, Future<TopicWrapper>> inFlight = new ConcurrentHashMap<String, Future<TopicWrapper>>();
+    private volatile int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * @param topicCache The cache to look for topics in and add downloaded topics to, or null if topics shouldn't be cached.
+     */
+    public RevisionTopicFetcher(final TopicCache topicCache) {
+        this.topicCache = topicCache;
+    }
+
+    /**
+     * Set the number of topic revisions to download at the same time.
+     *
+     * @param parallelism The number of topics, which must be at least one.
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The number of concurrent downloads must be at least one");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Download a list of topic revisions, and add them to a collection in the same order as they were listed.
+     *
+     * @param topicProvider    The topic provider to download the topics with.
+     * @param revisionTopicIds The topic ids and revisions to download.
+     * @param topics           The collection to add the downloaded topics to.
+     */
+    public void fetch(final TopicProvider topicProvider, final List<Pair<Integer, Integer>> revisionTopicIds,
+            final CollectionWrapper<TopicWrapper> topics) {
+        fetch(topicProvider, revisionTopicIds, new TopicHandler() {
+            @Override
+            public void onTopic(final Integer topicId, final Integer topicRevision, final TopicWrapper topic) {
+                topics.addItem(topic);
+            }
+        });
+    }
+
+    /**
+     * Download a list of topic revisions, and pass each one to a handler in the same order as they were listed, so the topics
+     * don't all have to be held on to.
+     *
+     * @param topicProvider    The topic provider to download the topics with.
+     * @param revisionTopicIds The topic ids and revisions to download.
+     * @param handler          The handler to pass the downloaded topics to.
+     */
+    public void fetch(final TopicProvider topicProvider, final List<Pair<Integer, Integer>> revisionTopicIds,
+            final TopicHandler handler) {
+        if (revisionTopicIds.isEmpty()) {
+            return;
+        }
+
+        final Progress progress = new Progress();
+        final List<Future<TopicWrapper>> results = new ArrayList<Future<TopicWrapper>>();
+        final List<FutureTask<TopicWrapper>> downloads = new ArrayList<FutureTask<TopicWrapper>>();
+        int duplicates = 0;
+        for (final Pair<Integer, Integer> topicToRevision : revisionTopicIds) {
+            final TopicWrapper cachedTopic = topicCache == null ? null : topicCache.get(topicToRevision.getFirst(),
+                    topicToRevision.getSecond());
+            if (cachedTopic != null) {
+                final FutureTask<TopicWrapper> result = new FutureTask<TopicWrapper>(new Callable<TopicWrapper>() {
+                    @Override
+                    public TopicWrapper call() {
+                        return cachedTopic;
+                    }
+                });
+                result.run();
+                results.add(result);
+                continue;
+            }
+
+            // Share the download with anyone else who is already downloading the same topic revision
+            final String key = Utilities.getTopicKey(topicToRevision.getFirst(), topicToRevision.getSecond());
+            final FutureTask<TopicWrapper> download = createDownload(topicProvider, topicToRevision, key, progress);
+            final Future<TopicWrapper> existingDownload = inFlight.putIfAbsent(key, download);
+            if (existingDownload == null) {
+                downloads.add(download);
+                results.add(download);
+            } else {
+                duplicates++;
+                results.add(existingDownload);
+            }
+        }
+
+        if (duplicates > 0) {
+            log.info("\tSkipped downloading {} duplicate revision topic(s)", duplicates);
+        }
+
+        progress.start(downloads.size());
+        final ExecutorService executor = downloads.isEmpty() ? null : Executors.newFixedThreadPool(Math.min(parallelism,
+                downloads.size()));
+        try {
+            for (final FutureTask<TopicWrapper> download : downloads) {
+                executor.execute(download);
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                final Pair<Integer, Integer> topicToRevision = revisionTopicIds.get(i);
+                handler.onTopic(topicToRevision.getFirst(), topicToRevision.getSecond(), results.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while downloading the revision topics", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (executor != null) {
+                // Let any queued downloads finish, as other threads may be waiting on them
+                executor.shutdown();
+            }
+        }
+
+        progress.finished();
+    }
+
+    private FutureTask<TopicWrapper> createDownload(final TopicProvider topicProvider, final Pair<Integer, Integer> topicToRevision,
+            final String key, final Progress progress) {
+        return new FutureTask<TopicWrapper>(new Callable<TopicWrapper>() {
+            @Override
+            public TopicWrapper call() {
+                final TopicWrapper topic = Utilities.downloadTopic(topicProvider, topicToRevision.getFirst(),
+                        topicToRevision.getSecond());
+                if (topicCache != null) {
+                    topicCache.put(topicToRevision.getFirst(), topicToRevision.getSecond(), topic);
+                }
+                progress.completed();
+                return topic;
+            }
+        }) {
+            @Override
+            protected void done() {
+                inFlight.remove(key, this);
+            }
+        };
+    }
+
+    /**
+     * Logs how many topics have been downloaded, how quickly they are being downloaded and how long the rest are expected to take.
+     */
+    private static class Progress {
+        private int total;
+        private int completed = 0;
+        private long startTime;
+        private long lastLogTime;
+
+        synchronized void start(final int total) {
+            this.total = total;
+            startTime = System.nanoTime();
+            lastLogTime = startTime;
+        }
+
+        synchronized void completed() {
+            completed++;
+            final long now = System.nanoTime();
+            if (completed < total && TimeUnit.NANOSECONDS.toMillis(now - lastLogTime) >= PROGRESS_INTERVAL_MILLIS) {
+                lastLogTime = now;
+                log(now);
+            }
+        }
+
+        synchronized void finished() {
+            if (total > 0) {
+                log(System.nanoTime());
+            }
+        }
+
+        private void log(final long now) {
+            final double elapsedSeconds = Math.max(now - startTime, 1L) / 1e9;
+            final double topicsPerSecond = completed / elapsedSeconds;
+            final long remainingSeconds = topicsPerSecond > 0 ? Math.round((total - completed) / topicsPerSecond) : -1;
+            log.info(String.format("\tDownloaded %d of %d revision topics (%.1f topics/s, %s remaining)", completed, total,
+                    topicsPerSecond, remainingSeconds < 0 ? "unknown time" : formatDuration(remainingSeconds)));
+        }
+
+        private static String formatDuration(final long seconds) {
+            if (seconds >= 3600) {
+                return String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+            } else if (seconds >= 60) {
+                return String.format("%dm %02ds", seconds / 60, seconds % 60);
+            } else {
+                return seconds + "s";
+            }
+        }
+    }
+}
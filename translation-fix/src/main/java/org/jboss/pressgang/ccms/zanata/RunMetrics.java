@@ -0,0 +1,511 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times and counts the calls the tools make to PressGang and Zanata, grouped by endpoint and status. Each group records its
+ * latencies in a {@link LatencyHistogram}, so recording a call is lock free and only costs a few atomic increments.
+ * <p/>
+ * The metrics can be exported to a JSON file and to a Prometheus text format file (for the node exporter textfile collector),
+ * either periodically or at the end of a run. The files are written to a temporary file and then renamed, so a reader never sees
+ * a partially written file.
+ */
+public class RunMetrics {
+    private static final Logger log = LoggerFactory.getLogger(RunMetrics.class);
+    private static final String ENCODING = "UTF-8";
+    private static final String METRIC_PREFIX = "zanata_tools_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public static final String PRESSGANG_GET_TOPIC = "pressgang_get_topic";
+    public static final String PRESSGANG_QUERY_TOPICS = "pressgang_query_topics";
+    public static final String PRESSGANG_GET_TRANSLATED_CONTENT_SPEC = "pressgang_get_translated_content_spec";
+    public static final String ZANATA_GET_TRANSLATIONS = "zanata_get_translations";
+    public static final String ZANATA_PUT_TRANSLATIONS = "zanata_put_translations";
+    public static final String ZANATA_DELETE_TRANSLATIONS = "zanata_delete_translations";
+    public static final String ZANATA_COPY_TRANS = "zanata_copy_trans";
+    public static final String ZANATA_GET_COPY_TRANS_STATUS = "zanata_get_copy_trans_status";
+    public static final String ZANATA_GET_STATISTICS = "zanata_get_statistics";
+
+    /**
+     * The status of a call that completed, where the HTTP status code isn't available.
+     */
+    public static final String OK = "ok";
+    /**
+     * The status of a call that returned nothing, where the HTTP status code isn't available.
+     */
+    public static final String EMPTY = "empty";
+    /**
+     * The status of a call that reported that it failed, where the HTTP status code isn't available.
+     */
+    public static final String FAILED = "failed";
+    /**
+     * The status of a call that threw an exception.
+     */
+    public static final String ERROR = "error";
+
+    /**
+     * The number of bytes that were sent or received gzip compressed.
+     */
+    public static final String COMPRESSED_BYTES = "compressed_bytes";
+    /**
+     * The number of bytes that gzip compression avoided sending or receiving.
+     */
+    public static final String COMPRESSION_SAVED_BYTES = "compression_saved_bytes";
+
+    private static final RunMetrics instance = new RunMetrics();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<String,
+            ConcurrentMap<String, LatencyHistogram>>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    private final long startTime = System.currentTimeMillis();
+    private ScheduledExecutorService exporter;
+    private Thread shutdownHook;
+    private File exportDirectory;
+    private String tool;
+
+    /**
+     * Get the metrics for the current run, which are shared by everything that makes calls.
+     *
+     * @return The run metrics.
+     */
+    public static RunMetrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param endpoint      The endpoint that was called.
+     * @param status        The HTTP status code of the call, or one of the status constants if the status code isn't available.
+     * @param startNanoTime The value of {@link System#nanoTime()} when the call was started.
+     */
+    public void record(final String endpoint, final String status, final long startNanoTime) {
+        getOrCreateHistogram(endpoint, status).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanoTime));
+    }
+
+    /**
+     * Record a call.
+     *
+     * @param endpoint      The endpoint that was called.
+     * @param statusCode    The HTTP status code of the call.
+     * @param startNanoTime The value of {@link System#nanoTime()} when the call was started.
+     */
+    public void record(final String endpoint, final int statusCode, final long startNanoTime) {
+        record(endpoint, Integer.toString(statusCode), startNanoTime);
+    }
+
+    /**
+     * Add to a counter.
+     *
+     * @param counter The name of the counter.
+     * @param delta   The amount to add to the counter.
+     */
+    public void increment(final String counter, final long delta) {
+        AtomicLong value = counters.get(counter);
+        if (value == null) {
+            final AtomicLong newValue = new AtomicLong();
+            value = counters.putIfAbsent(counter, newValue);
+            if (value == null) {
+                value = newValue;
+            }
+        }
+
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Get the value of a counter.
+     *
+     * @param counter The name of the counter.
+     * @return The value of the counter, or zero if nothing has been added to it.
+     */
+    public long getCounter(final String counter) {
+        final AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    private LatencyHistogram getOrCreateHistogram(final String endpoint, final String status) {
+        ConcurrentMap<String, LatencyHistogram> endpointHistograms = histograms.get(endpoint);
+        if (endpointHistograms == null) {
+            final ConcurrentMap<String, LatencyHistogram> newHistograms = new ConcurrentHashMap<String, LatencyHistogram>();
+            endpointHistograms = histograms.putIfAbsent(endpoint, newHistograms);
+            if (endpointHistograms == null) {
+                endpointHistograms = newHistograms;
+            }
+        }
+
+        LatencyHistogram histogram = endpointHistograms.get(status);
+        if (histogram == null) {
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = endpointHistograms.putIfAbsent(status, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Get the histogram for an endpoint and status.
+     *
+     * @param endpoint The endpoint.
+     * @param status   The status.
+     * @return The histogram, or null if no calls have been recorded for the endpoint and status.
+     */
+    public LatencyHistogram getHistogram(final String endpoint, final String status) {
+        final Map<String, LatencyHistogram> endpointHistograms = histograms.get(endpoint);
+        return endpointHistograms == null ? null : endpointHistograms.get(status);
+    }
+
+    /**
+     * Start exporting the metrics to a directory. The metrics are written to {@code <tool>-metrics.json} and {@code <tool>.prom}
+     * every interval, and when the run finishes or the JVM exits.
+     *
+     * @param directory       The directory to write the metrics to.
+     * @param tool            The name of the tool, which is used for the file names and as a label.
+     * @param intervalSeconds How often to write the metrics, or zero to only write them at the end of the run.
+     */
+    public synchronized void startExporting(final File directory, final String tool, final int intervalSeconds) {
+        stopExporting(false);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.error("Unable to create the metrics directory " + directory.getAbsolutePath());
+            return;
+        }
+
+        this.exportDirectory = directory;
+        this.tool = tool;
+
+        if (intervalSeconds > 0) {
+            exporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "metrics-exporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            exporter.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    export();
+                }
+            }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+
+        // Make sure the metrics are written if the tool exits early
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Stop exporting the metrics, and write them one last time.
+     */
+    public synchronized void finishExporting() {
+        stopExporting(true);
+    }
+
+    private synchronized void stopExporting(final boolean writeMetrics) {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down
+            }
+            shutdownHook = null;
+        }
+        if (writeMetrics) {
+            export();
+        }
+        exportDirectory = null;
+    }
+
+    private synchronized void export() {
+        if (exportDirectory == null) return;
+
+        try {
+            write(new File(exportDirectory, tool + "-metrics.json"), toJson(tool));
+            write(new File(exportDirectory, tool + ".prom"), toPrometheus(tool));
+        } catch (IOException e) {
+            log.warn("Unable to write the metrics to " + exportDirectory.getAbsolutePath(), e);
+        }
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final File tempFile = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), ENCODING);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            // Some platforms can't rename over an existing file
+            if (!file.delete() || !tempFile.renameTo(file)) {
+                throw new IOException("Unable to replace " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of all the histograms, sorted by endpoint and then status.
+     */
+    private Map<String, Map<String, LatencyHistogram>> getSortedHistograms() {
+        final Map<String, Map<String, LatencyHistogram>> sortedHistograms = new TreeMap<String, Map<String, LatencyHistogram>>();
+        for (final Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> entry : histograms.entrySet()) {
+            sortedHistograms.put(entry.getKey(), new TreeMap<String, LatencyHistogram>(entry.getValue()));
+        }
+
+        return sortedHistograms;
+    }
+
+    /**
+     * Get a snapshot of all the counters, sorted by name.
+     */
+    private Map<String, Long> getSortedCounters() {
+        final Map<String, Long> sortedCounters = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            sortedCounters.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return sortedCounters;
+    }
+
+    /**
+     * Format the metrics as JSON.
+     *
+     * @param tool The name of the tool.
+     * @return The JSON document.
+     */
+    public String toJson(final String tool) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n  \"tool\": \"").append(tool).append("\",\n");
+        json.append("  \"startTime\": ").append(startTime).append(",\n");
+        json.append("  \"durationSeconds\": ").append(format((System.currentTimeMillis() - startTime) / 1000.0)).append(",\n");
+        json.append("  \"counters\": {");
+        boolean firstCounter = true;
+        for (final Map.Entry<String, Long> counter : getSortedCounters().entrySet()) {
+            json.append(firstCounter ? "" : ", ").append('"').append(counter.getKey()).append("\": ").append(counter.getValue());
+            firstCounter = false;
+        }
+        json.append("},\n");
+        json.append("  \"endpoints\": [");
+        boolean first = true;
+        for (final Map.Entry<String, Map<String, LatencyHistogram>> endpoint : getSortedHistograms().entrySet()) {
+            for (final Map.Entry<String, LatencyHistogram> status : endpoint.getValue().entrySet()) {
+                final LatencyHistogram histogram = status.getValue();
+                json.append(first ? "\n" : ",\n");
+                json.append("    {\"endpoint\": \"").append(endpoint.getKey()).append("\", \"status\": \"").append(status.getKey());
+                json.append("\", \"count\": ").append(histogram.getCount());
+                json.append(", \"sumSeconds\": ").append(format(histogram.getSum() / 1e6));
+                json.append(", \"maxSeconds\": ").append(format(histogram.getMax() / 1e6));
+                for (final double quantile : QUANTILES) {
+                    json.append(", \"p").append(formatQuantileName(quantile)).append("Seconds\": ");
+                    json.append(format(histogram.getValueAtQuantile(quantile) / 1e6));
+                }
+                json.append("}");
+                first = false;
+            }
+        }
+        json.append(first ? "]\n}\n" : "\n  ]\n}\n");
+
+        return json.toString();
+    }
+
+    /**
+     * Format the metrics using the Prometheus text exposition format. The latencies are exported as summaries, as the histograms
+     * have too many buckets to export as Prometheus histograms.
+     *
+     * @param tool The name of the tool.
+     * @return The metrics text.
+     */
+    public String toPrometheus(final String tool) {
+        final String name = METRIC_PREFIX + "request_duration_seconds";
+        final StringBuilder text = new StringBuilder();
+        text.append("# HELP ").append(name).append(" The latency of the calls made to PressGang and Zanata.\n");
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (final Map.Entry<String, Map<String, LatencyHistogram>> endpoint : getSortedHistograms().entrySet()) {
+            for (final Map.Entry<String, LatencyHistogram> status : endpoint.getValue().entrySet()) {
+                final LatencyHistogram histogram = status.getValue();
+                final String labels = "tool=\"" + tool + "\",endpoint=\"" + endpoint.getKey() + "\",status=\"" + status.getKey() + "\"";
+                for (final double quantile : QUANTILES) {
+                    text.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ");
+                    text.append(format(histogram.getValueAtQuantile(quantile) / 1e6)).append('\n');
+                }
+                text.append(name).append("_sum{").append(labels).append("} ").append(format(histogram.getSum() / 1e6)).append('\n');
+                text.append(name).append("_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+            }
+        }
+
+        for (final Map.Entry<String, Long> counter : getSortedCounters().entrySet()) {
+            final String counterName = METRIC_PREFIX + counter.getKey() + "_total";
+            text.append("# TYPE ").append(counterName).append(" counter\n");
+            text.append(counterName).append("{tool=\"").append(tool).append("\"} ").append(counter.getValue()).append('\n');
+        }
+
+        final String startName = METRIC_PREFIX + "run_start_time_seconds";
+        text.append("# HELP ").append(startName).append(" The time the run started, in seconds since the epoch.\n");
+        text.append("# TYPE ").append(startName).append(" gauge\n");
+        text.append(startName).append("{tool=\"").append(tool).append("\"} ").append(startTime / 1000).append('\n');
+
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder summary = new StringBuilder(String.format("%-40s %-8s %8s %10s %10s %10s %10s", "Endpoint", "Status",
+                "Count", "p50 (ms)", "p99 (ms)", "Max (ms)", "Total (s)"));
+        for (final Map.Entry<String, Map<String, LatencyHistogram>> endpoint : getSortedHistograms().entrySet()) {
+            for (final Map.Entry<String, LatencyHistogram> status : endpoint.getValue().entrySet()) {
+                final LatencyHistogram histogram = status.getValue();
+                summary.append(String.format(Locale.ENGLISH, "%n%-40s %-8s %8d %10.1f %10.1f %10.1f %10.1f", endpoint.getKey(),
+                        status.getKey(), histogram.getCount(), histogram.getValueAtQuantile(0.5) / 1e3,
+                        histogram.getValueAtQuantile(0.99) / 1e3, histogram.getMax() / 1e3, histogram.getSum() / 1e6));
+            }
+        }
+        for (final Map.Entry<String, Long> counter : getSortedCounters().entrySet()) {
+            summary.append(String.format("%n%-49s %8d", counter.getKey(), counter.getValue()));
+        }
+
+        return summary.toString();
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ENGLISH, "%.6f", value);
+    }
+
+    private static String formatQuantileName(final double quantile) {
+        final String name = Double.toString(quantile * 100);
+        return (name.endsWith(".0") ? name.substring(0, name.length() - 2) : name).replace('.', '_');
+    }
+
+    /**
+     * A histogram of latencies in microseconds, in the style of an HDR histogram. Values are counted in buckets that are exact up
+     * to 128us, and above that each power of two range is split into 64 linear sub buckets, so any value is accurate to within
+     * about 1.5%. Values above about 38 hours are counted in the last bucket.
+     */
+    public static class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 6;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+        private static final int MAX_SHIFT = 30;
+        private static final int BUCKET_COUNT = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKET_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Record a value.
+         *
+         * @param micros The value in microseconds.
+         */
+        public void record(final long micros) {
+            final long value = Math.max(0, micros);
+            counts.incrementAndGet(getBucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        static int getBucketIndex(final long value) {
+            if (value < LINEAR_LIMIT) {
+                return (int) value;
+            }
+
+            final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            if (shift > MAX_SHIFT) {
+                return BUCKET_COUNT - 1;
+            }
+            return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) ((value >> shift) - SUB_BUCKET_COUNT);
+        }
+
+        /**
+         * Get the highest value that is counted in a bucket.
+         */
+        static long getBucketHighValue(final int index) {
+            if (index < LINEAR_LIMIT) {
+                return index;
+            }
+
+            final int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+            final long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+            return ((subBucket + 1) << shift) - 1;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return The sum of all the recorded values in microseconds.
+         */
+        public long getSum() {
+            return sum.get();
+        }
+
+        /**
+         * @return The largest recorded value in microseconds.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Get the value that the specified fraction of the recorded values are less than or equal to.
+         *
+         * @param quantile The quantile, between 0 and 1.
+         * @return The value in microseconds, or 0 if nothing has been recorded.
+         */
+        public long getValueAtQuantile(final double quantile) {
+            final long totalCount = count.get();
+            if (totalCount == 0) {
+                return 0;
+            }
+
+            final long targetCount = Math.max(1, (long) Math.ceil(quantile * totalCount));
+            long runningCount = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                runningCount += counts.get(i);
+                if (runningCount >= targetCount) {
+                    return Math.min(getBucketHighValue(i), getMax());
+                }
+            }
+
+            return getMax();
+        }
+    }
+}
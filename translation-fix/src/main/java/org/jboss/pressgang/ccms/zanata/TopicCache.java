@@ -0,0 +1,122 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+
+/**
+ * A bounded, in memory cache of topics keyed by their id and revision. The least recently used topics are evicted once the cache
+ * is full. Topic revisions never change so they never need to be revalidated, and latest topics (no revision) are treated as
+ * unchanging for the life of a single run.
+ */
+public class TopicCache {
+    private final int maxSize;
+    private final Map<Key, TopicWrapper> topics;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TopicCache(final int maxSize) {
+        this.maxSize = maxSize;
+        topics = new LinkedHashMap<Key, TopicWrapper>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TopicWrapper> eldest) {
+                return size() > TopicCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a topic from the cache.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision of the topic, or null for the latest topic.
+     * @return The cached topic, or null if it isn't in the cache.
+     */
+    public TopicWrapper get(final Integer topicId, final Integer topicRevision) {
+        final TopicWrapper topic;
+        synchronized (topics) {
+            topic = topics.get(new Key(topicId, topicRevision));
+        }
+
+        if (topic == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return topic;
+    }
+
+    /**
+     * Check if a topic is in the cache, without affecting the eviction order or counters.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision of the topic, or null for the latest topic.
+     * @return True if the topic is cached, otherwise false.
+     */
+    public boolean contains(final Integer topicId, final Integer topicRevision) {
+        synchronized (topics) {
+            return topics.containsKey(new Key(topicId, topicRevision));
+        }
+    }
+
+    /**
+     * Add a topic to the cache.
+     *
+     * @param topicId       The id of the topic.
+     * @param topicRevision The revision the topic was requested with, or null if the latest topic was requested.
+     * @param topic         The topic to cache.
+     */
+    public void put(final Integer topicId, final Integer topicRevision, final TopicWrapper topic) {
+        if (topic != null) {
+            synchronized (topics) {
+                topics.put(new Key(topicId, topicRevision), topic);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (topics) {
+            return topics.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses();
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int revision;
+
+        Key(final Integer id, final Integer revision) {
+            this.id = id;
+            // Revisions start at 1, so -1 can be used to represent the latest topic
+            this.revision = revision == null ? -1 : revision;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key key = (Key) o;
+            return id == key.id && revision == key.revision;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * id + revision;
+        }
+    }
+}
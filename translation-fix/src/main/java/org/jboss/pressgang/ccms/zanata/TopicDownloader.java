@@ -0,0 +1,246 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.pressgang.ccms.provider.TopicProvider;
+import org.jboss.pressgang.ccms.rest.v1.query.RESTTopicQueryBuilderV1;
+import org.jboss.pressgang.ccms.wrapper.TopicWrapper;
+import org.jboss.pressgang.ccms.wrapper.collection.CollectionWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads the latest revisions of a list of topics from PressGang, by querying for the topics in chunks. Several chunks are
+ * downloaded at the same time, and the topics in each chunk are handed to the caller as soon as the chunk arrives.
+ * <p/>
+ * The chunk size adapts to how long the server takes to respond, so that each query takes about
+ * {@link #DEFAULT_TARGET_CHUNK_MILLIS} by default, and is limited so that the topic ids in a query never make the URL longer than {@link #MAX_QUERY_IDS_LENGTH}.
+ */
+public class TopicDownloader {
+    private static final Logger log = LoggerFactory.getLogger(TopicDownloader.class);
+    /**
+     * The number of topics to download in the first chunk, before any response times have been observed.
+     */
+    public static final int INITIAL_CHUNK_SIZE = 400;
+    private static final int MIN_CHUNK_SIZE = 25;
+    private static final int MAX_CHUNK_SIZE = 2000;
+    /**
+     * The default amount of time a single chunk should take to download.
+     */
+    public static final long DEFAULT_TARGET_CHUNK_MILLIS = 2000;
+    /**
+     * The maximum number of characters that the topic ids in a single query can take up, so the URL stays well within the limits
+     * of the server and any proxies.
+     */
+    private static final int MAX_QUERY_IDS_LENGTH = 4000;
+    /**
+     * The weight given to the latest observation, when averaging the time taken to download each topic.
+     */
+    private static final double MILLIS_PER_TOPIC_WEIGHT = 0.5;
+
+    /**
+     * A handler that is given the topics from each chunk, as the chunks are downloaded. Only one chunk is handled at a time, so the
+     * handler doesn't need to be thread safe, but it is called from the download threads.
+     */
+    public static interface ChunkHandler {
+        void onTopics(CollectionWrapper<TopicWrapper> topics);
+    }
+
+    private final TopicProvider topicProvider;
+    private final int parallelism;
+    private final long targetChunkMillis;
+    private int chunkSize = INITIAL_CHUNK_SIZE;
+    private double millisPerTopic = -1;
+
+    /**
+     * @param topicProvider The topic provider to download the topics with.
+     * @param parallelism   The maximum number of chunks to download at the same time.
+     */
+    public TopicDownloader(final TopicProvider topicProvider, final int parallelism) {
+        this(topicProvider, parallelism, DEFAULT_TARGET_CHUNK_MILLIS);
+    }
+
+    /**
+     * @param topicProvider     The topic provider to download the topics with.
+     * @param parallelism       The maximum number of chunks to download at the same time.
+     * @param targetChunkMillis The amount of time a single chunk should take to download.
+     */
+    public TopicDownloader(final TopicProvider topicProvider, final int parallelism, final long targetChunkMillis) {
+        this.topicProvider = topicProvider;
+        this.parallelism = Math.max(1, parallelism);
+        this.targetChunkMillis = targetChunkMillis;
+    }
+
+    /**
+     * Download a list of topics, and add them to a collection. The topics are added in the order their chunks arrive.
+     *
+     * @param topicIds The ids of the topics to download.
+     * @param topics   The collection to add the topics to.
+     */
+    public void download(final List<Integer> topicIds, final CollectionWrapper<TopicWrapper> topics) {
+        download(topicIds, new ChunkHandler() {
+            @Override
+            public void onTopics(final CollectionWrapper<TopicWrapper> chunk) {
+                for (final TopicWrapper topic : chunk.getItems()) {
+                    topics.addItem(topic);
+                }
+            }
+        });
+    }
+
+    /**
+     * Download a list of topics, and hand the topics from each chunk to a handler as soon as the chunk arrives. If a chunk fails
+     * to download, no more chunks are started and the error is thrown once the chunks already being downloaded have finished.
+     *
+     * @param topicIds The ids of the topics to download.
+     * @param handler  The handler to give the topics to.
+     */
+    public void download(final List<Integer> topicIds, final ChunkHandler handler) {
+        if (topicIds.isEmpty()) {
+            return;
+        }
+
+        final Download download = new Download(topicIds, handler);
+        final int threads = Math.min(parallelism, (topicIds.size() + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+        // Don't let a few large chunks leave the other threads with nothing to do
+        final int evenShare = Math.max(MIN_CHUNK_SIZE, (topicIds.size() + threads - 1) / threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Integer> chunk;
+                        while ((chunk = download.nextChunk(Math.min(getChunkSize(), evenShare))) != null) {
+                            downloadChunk(download, chunk);
+                        }
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while downloading the topics", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        download.rethrowFailure();
+    }
+
+    private void downloadChunk(final Download download, final List<Integer> chunk) {
+        final long startTime = System.nanoTime();
+        final CollectionWrapper<TopicWrapper> topics;
+        try {
+            topics = queryTopics(chunk);
+        } catch (RuntimeException e) {
+            download.fail(e);
+            return;
+        }
+        onChunkDownloaded(chunk.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+        if (topics != null && topics.getItems() != null) {
+            try {
+                download.handle(topics);
+            } catch (RuntimeException e) {
+                download.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Query PressGang for a single chunk of topics.
+     *
+     * @param topicIds The ids of the topics in the chunk.
+     * @return The topics that were found.
+     */
+    protected CollectionWrapper<TopicWrapper> queryTopics(final List<Integer> topicIds) {
+        final RESTTopicQueryBuilderV1 queryBuilder = new RESTTopicQueryBuilderV1();
+        queryBuilder.setTopicIds(topicIds);
+        return Utilities.queryTopics(topicProvider, queryBuilder.getQuery());
+    }
+
+    private synchronized int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Resize the following chunks, so that they are expected to take about the target time to download.
+     */
+    private synchronized void onChunkDownloaded(final int topics, final long elapsedMillis) {
+        final double chunkMillisPerTopic = Math.max(elapsedMillis, 1L) / (double) topics;
+        millisPerTopic = millisPerTopic < 0 ? chunkMillisPerTopic
+                : MILLIS_PER_TOPIC_WEIGHT * chunkMillisPerTopic + (1 - MILLIS_PER_TOPIC_WEIGHT) * millisPerTopic;
+
+        final int newChunkSize = (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, targetChunkMillis / millisPerTopic));
+        if (newChunkSize != chunkSize) {
+            log.debug("Downloaded {} topics in {} ms, so the chunk size is now {}", new Object[]{topics, elapsedMillis, newChunkSize});
+            chunkSize = newChunkSize;
+        }
+    }
+
+    /**
+     * The progress of a single call to download a list of topics.
+     */
+    private static class Download {
+        private final List<Integer> topicIds;
+        private final ChunkHandler handler;
+        private final Object handlerLock = new Object();
+        private int nextIndex = 0;
+        private RuntimeException failure;
+
+        Download(final List<Integer> topicIds, final ChunkHandler handler) {
+            this.topicIds = topicIds;
+            this.handler = handler;
+        }
+
+        /**
+         * Get the next chunk of topic ids to download, limited by the chunk size and the length of the ids.
+         *
+         * @param chunkSize The maximum number of topics in the chunk.
+         * @return The ids in the next chunk, or null if there are no more chunks to download.
+         */
+        synchronized List<Integer> nextChunk(final int chunkSize) {
+            if (failure != null || nextIndex >= topicIds.size()) {
+                return null;
+            }
+
+            final int start = nextIndex;
+            int queryLength = 0;
+            while (nextIndex < topicIds.size() && nextIndex - start < chunkSize) {
+                // Each id is followed by a separator in the query
+                final int idLength = topicIds.get(nextIndex).toString().length() + 1;
+                if (nextIndex > start && queryLength + idLength > MAX_QUERY_IDS_LENGTH) {
+                    break;
+                }
+                queryLength += idLength;
+                nextIndex++;
+            }
+
+            return topicIds.subList(start, nextIndex);
+        }
+
+        void handle(final CollectionWrapper<TopicWrapper> topics) {
+            synchronized (handlerLock) {
+                handler.onTopics(topics);
+            }
+        }
+
+        synchronized void fail(final RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        synchronized void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append only journal of the work items that have been completed by a run, so that a run that dies part way through can be
+ * resumed without redoing the completed work. Each completed work item is written as a single line, and the journal is synced to
+ * disk in batches to keep the overhead low.
+ */
+public class WorkJournal {
+    private static final Logger log = LoggerFactory.getLogger(WorkJournal.class);
+    private static final String ENCODING = "UTF-8";
+    /**
+     * The maximum number of entries that can be written before the journal is synced to disk.
+     */
+    private static final int SYNC_BATCH_SIZE = 50;
+    /**
+     * The maximum amount of time in milliseconds that an entry can be waiting to be synced to disk.
+     */
+    private static final long SYNC_INTERVAL = 2000;
+
+    private final File file;
+    private final Set<String> completedWorkItems = new HashSet<String>();
+    private FileOutputStream outputStream;
+    private Writer writer;
+    private int unsyncedEntries = 0;
+    private long lastSyncTime = System.currentTimeMillis();
+
+    /**
+     * Open a journal, loading any work items that have already been completed.
+     *
+     * @param file The journal file. The file will be created if it doesn't exist.
+     * @throws IOException Thrown if the journal can't be read or opened for writing.
+     */
+    public WorkJournal(final File file) throws IOException {
+        this.file = file;
+        load();
+
+        outputStream = new FileOutputStream(file, true);
+        writer = new OutputStreamWriter(outputStream, ENCODING);
+    }
+
+    /**
+     * Load the completed work items from the journal file.
+     */
+    private void load() throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+
+        truncatePartialEntry();
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    completedWorkItems.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        log.info("Loaded {} completed work items from {}", completedWorkItems.size(), file.getAbsolutePath());
+    }
+
+    /**
+     * Remove the partially written entry that is left at the end of the journal if the last run died while writing an entry. The
+     * entry can't be trusted, as a truncated key could match a different work item, so the work item is redone instead.
+     */
+    private void truncatePartialEntry() throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            // Find the end of the last complete entry
+            long end = randomAccessFile.length();
+            while (end > 0) {
+                randomAccessFile.seek(end - 1);
+                if (randomAccessFile.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+
+            if (end < randomAccessFile.length()) {
+                log.warn("Discarding the partially written entry at the end of {}", file.getAbsolutePath());
+                randomAccessFile.setLength(end);
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Check if a work item has been completed.
+     *
+     * @param workItem The key of the work item.
+     * @return True if the work item was completed by this or a previous run, otherwise false.
+     */
+    public synchronized boolean isComplete(final String workItem) {
+        return completedWorkItems.contains(workItem);
+    }
+
+    /**
+     * Record that a work item has been completed.
+     *
+     * @param workItem The key of the work item. It must not contain any line breaks.
+     */
+    public synchronized void markComplete(final String workItem) {
+        if (!completedWorkItems.add(workItem) || writer == null) {
+            return;
+        }
+
+        try {
+            writer.write(workItem);
+            writer.write('\n');
+            unsyncedEntries++;
+
+            if (unsyncedEntries >= SYNC_BATCH_SIZE || System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL) {
+                sync();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write to the journal " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Flush all the recorded work items and sync them to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            outputStream.getFD().sync();
+            unsyncedEntries = 0;
+            lastSyncTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Sync any outstanding work items to disk and close the journal.
+     */
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                sync();
+                writer.close();
+            } catch (IOException e) {
+                log.error("Failed to close the journal " + file.getAbsolutePath(), e);
+            } finally {
+                writer = null;
+                outputStream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A plan of the work a tool will do, made up of the (document, locale, operation) steps found by discovery and the number of REST
+ * calls needed to carry them out. Plans are written as JSON lines, so that a plan can be reviewed before it is executed and then
+ * executed later without repeating the discovery. The first line holds the totals and each following line holds a single step, eg:
+ * <pre>
+ * {"type":"totals","tool":"translation-copy","steps":1,"pressGangGets":12,"zanataGets":1,"zanataPuts":1,...}
+ * {"type":"copy","document":"1-20","locale":"de","sources":["1-10"]}
+ * </pre>
+ */
+public class WorkPlan {
+    private static final String ENCODING = "UTF-8";
+    private static final String TOTALS_TYPE = "totals";
+    /**
+     * The time a typical Zanata GET, PUT or DELETE is assumed to take, when projecting how long a plan will take.
+     */
+    private static final long ASSUMED_CALL_MILLIS = 250;
+    /**
+     * The time a typical CopyTrans run is assumed to take, when projecting how long a plan will take.
+     */
+    private static final long ASSUMED_COPY_TRANS_MILLIS = 5000;
+
+    /**
+     * The operations that can be planned.
+     */
+    public static enum Operation {
+        COPY("copy"), DELETE("delete"), COPY_TRANS("copytrans");
+
+        private final String type;
+
+        Operation(final String type) {
+            this.type = type;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public static Operation fromType(final String type) {
+            for (final Operation operation : values()) {
+                if (operation.type.equals(type)) {
+                    return operation;
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown plan operation \"" + type + "\"");
+        }
+    }
+
+    private final String tool;
+    private final List<Step> steps = new ArrayList<Step>();
+    private long pressGangGets = 0;
+    private long zanataGets = 0;
+    private long zanataPuts = 0;
+    private long zanataDeletes = 0;
+    private long copyTransRuns = 0;
+    private double projectedSeconds = 0;
+
+    /**
+     * @param tool The name of the tool the plan is for.
+     */
+    public WorkPlan(final String tool) {
+        this.tool = tool;
+    }
+
+    /**
+     * Add a step to copy the translations for a locale from one or more old documents to a new document.
+     *
+     * @param sourceIds  The old Zanata document ids to copy from, sorted oldest first.
+     * @param documentId The new Zanata document id to copy to.
+     * @param locale     The locale to copy.
+     * @param diff       Whether the existing translations in the new document will be fetched, to only push the changes.
+     */
+    public void addCopy(final List<String> sourceIds, final String documentId, final String locale, final boolean diff) {
+        steps.add(new Step(Operation.COPY, documentId, locale, sourceIds));
+        zanataGets += sourceIds.size() + (diff ? 1 : 0);
+        zanataPuts++;
+    }
+
+    /**
+     * Add a step to delete the translations for a locale from a document.
+     *
+     * @param documentId The Zanata document id to delete the translations from.
+     * @param locale     The locale to delete.
+     */
+    public void addDelete(final String documentId, final String locale) {
+        steps.add(new Step(Operation.DELETE, documentId, locale, null));
+        zanataDeletes++;
+    }
+
+    /**
+     * Add a step to run CopyTrans for a document.
+     *
+     * @param documentId The Zanata document id to run CopyTrans for.
+     */
+    public void addCopyTrans(final String documentId) {
+        steps.add(new Step(Operation.COPY_TRANS, documentId, null, null));
+        copyTransRuns++;
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Get the steps for a single type of operation, in the order they were planned.
+     *
+     * @param operation The type of operation.
+     * @return The matching steps.
+     */
+    public List<Step> getSteps(final Operation operation) {
+        final List<Step> retValue = new ArrayList<Step>();
+        for (final Step step : steps) {
+            if (step.getOperation() == operation) {
+                retValue.add(step);
+            }
+        }
+
+        return retValue;
+    }
+
+    /**
+     * @return The number of PressGang requests that were made to discover the work in the plan.
+     */
+    public long getPressGangGets() {
+        return pressGangGets;
+    }
+
+    public void setPressGangGets(final long pressGangGets) {
+        this.pressGangGets = pressGangGets;
+    }
+
+    public long getZanataGets() {
+        return zanataGets;
+    }
+
+    public long getZanataPuts() {
+        return zanataPuts;
+    }
+
+    public long getZanataDeletes() {
+        return zanataDeletes;
+    }
+
+    public long getCopyTransRuns() {
+        return copyTransRuns;
+    }
+
+    /**
+     * @return The projected time in seconds to execute the plan, as worked out by {@link #estimate(ZanataRateLimiter, int)} or
+     *         {@link #estimate(ZanataRateLimiter, int, int)}.
+     */
+    public double getProjectedSeconds() {
+        return projectedSeconds;
+    }
+
+    /**
+     * Project how long the plan will take to execute. Each type of call is limited by its own rate limiter bucket, so the plan can't
+     * be executed any faster than the slowest bucket allows. It also can't be executed faster than the calls themselves take, spread
+     * over the number of concurrent workers.
+     *
+     * @param rateLimiter The rate limiter the plan will be executed with.
+     * @param concurrency The number of calls that will be made concurrently.
+     * @return The projected time in seconds.
+     */
+    public double estimate(final ZanataRateLimiter rateLimiter, final int concurrency) {
+        final long callMillis = (zanataGets + zanataPuts + zanataDeletes) * ASSUMED_CALL_MILLIS + copyTransRuns *
+                ASSUMED_COPY_TRANS_MILLIS;
+        projectedSeconds = Math.max(getRateLimitedSeconds(rateLimiter), callMillis / 1000.0 / Math.max(1, concurrency));
+        return projectedSeconds;
+    }
+
+    /**
+     * Project how long the plan will take to execute, when CopyTrans is run for a window of documents at the same time as the
+     * other calls are made. Each type of call is limited by its own rate limiter bucket, and the CopyTrans runs and the other calls
+     * can't be done faster than they take, spread over the CopyTrans window and the number of concurrent workers respectively.
+     *
+     * @param rateLimiter          The rate limiter the plan will be executed with.
+     * @param concurrency          The number of calls, other than CopyTrans runs, that will be made concurrently.
+     * @param copyTransConcurrency The number of documents CopyTrans will be run for at the same time.
+     * @return The projected time in seconds.
+     */
+    public double estimate(final ZanataRateLimiter rateLimiter, final int concurrency, final int copyTransConcurrency) {
+        final double callSeconds = (zanataGets + zanataPuts + zanataDeletes) * ASSUMED_CALL_MILLIS / 1000.0 / Math.max(1,
+                concurrency);
+        final double copyTransSeconds = copyTransRuns * ASSUMED_COPY_TRANS_MILLIS / 1000.0 / Math.max(1, copyTransConcurrency);
+
+        projectedSeconds = Math.max(getRateLimitedSeconds(rateLimiter), Math.max(callSeconds, copyTransSeconds));
+        return projectedSeconds;
+    }
+
+    /**
+     * Get how long the plan will take to execute, if the calls were only limited by the rate limiter. Each type of call has its
+     * own bucket, so this is how long the slowest bucket takes.
+     */
+    private double getRateLimitedSeconds(final ZanataRateLimiter rateLimiter) {
+        final double readSeconds = getRateLimitedSeconds(zanataGets, rateLimiter.getRate(ZanataRateLimiter.CallType.READ));
+        final double writeSeconds = getRateLimitedSeconds(zanataPuts + zanataDeletes,
+                rateLimiter.getRate(ZanataRateLimiter.CallType.WRITE));
+        final double copyTransSeconds = getRateLimitedSeconds(copyTransRuns, rateLimiter.getRate(ZanataRateLimiter.CallType.COPY_TRANS));
+        return Math.max(readSeconds, Math.max(writeSeconds, copyTransSeconds));
+    }
+
+    private static double getRateLimitedSeconds(final long calls, final double callsPerSecond) {
+        return callsPerSecond <= 0 ? 0 : calls / callsPerSecond;
+    }
+
+    /**
+     * Write the plan to a file, replacing any existing plan.
+     *
+     * @param file The file to write to.
+     * @throws IOException Thrown if the plan couldn't be written.
+     */
+    public void write(final File file) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+        try {
+            final Map<String, Object> totals = new LinkedHashMap<String, Object>();
+            totals.put("type", TOTALS_TYPE);
+            totals.put("tool", tool);
+            totals.put("steps", steps.size());
+            totals.put("pressGangGets", pressGangGets);
+            totals.put("zanataGets", zanataGets);
+            totals.put("zanataPuts", zanataPuts);
+            totals.put("zanataDeletes", zanataDeletes);
+            totals.put("copyTransRuns", copyTransRuns);
+            totals.put("projectedSeconds", Math.round(projectedSeconds));
+            writer.write(toJson(totals));
+            writer.write('\n');
+
+            for (final Step step : steps) {
+                writer.write(step.toJson());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Read a plan from a file.
+     *
+     * @param file The file to read from.
+     * @return The plan.
+     * @throws IOException              Thrown if the plan couldn't be read.
+     * @throws IllegalArgumentException Thrown if the file isn't a valid plan.
+     */
+    public static WorkPlan read(final File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try {
+            WorkPlan plan = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+
+                final Map<String, Object> values;
+                try {
+                    values = new JsonLineParser(line).parseObject();
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid plan entry on line " + lineNumber + " of " + file + ": " + e.getMessage());
+                }
+
+                final String type = (String) values.get("type");
+                if (plan == null) {
+                    if (!TOTALS_TYPE.equals(type)) {
+                        throw new IllegalArgumentException(file + " is not a work plan, as it doesn't start with the plan totals");
+                    }
+                    plan = new WorkPlan((String) values.get("tool"));
+                    plan.pressGangGets = getLong(values, "pressGangGets");
+                    plan.zanataGets = getLong(values, "zanataGets");
+                    plan.zanataPuts = getLong(values, "zanataPuts");
+                    plan.zanataDeletes = getLong(values, "zanataDeletes");
+                    plan.copyTransRuns = getLong(values, "copyTransRuns");
+                    plan.projectedSeconds = getLong(values, "projectedSeconds");
+                } else {
+                    @SuppressWarnings("unchecked")
+                    final List<String> sourceIds = (List<String>) values.get("sources");
+                    plan.steps.add(new Step(Operation.fromType(type), (String) values.get("document"), (String) values.get("locale"),
+                            sourceIds));
+                }
+            }
+
+            if (plan == null) {
+                throw new IllegalArgumentException(file + " is an empty work plan");
+            }
+            return plan;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static long getLong(final Map<String, Object> values, final String key) {
+        final Object value = values.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d step(s), %d PressGang GET(s) for discovery, %d Zanata GET(s), %d Zanata PUT(s), %d Zanata DELETE(s) "
+                + "and %d CopyTrans run(s), projected to take %s", steps.size(), pressGangGets, zanataGets, zanataPuts, zanataDeletes,
+                copyTransRuns, formatDuration(projectedSeconds));
+    }
+
+    private static String formatDuration(final double seconds) {
+        final long totalSeconds = Math.round(seconds);
+        return String.format("%dh %02dm %02ds", totalSeconds / 3600, (totalSeconds / 60) % 60, totalSeconds % 60);
+    }
+
+    private static String toJson(final Map<String, Object> values) {
+        final StringBuilder json = new StringBuilder("{");
+        for (final Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() == null) continue;
+
+            if (json.length() > 1) json.append(',');
+            appendString(json, entry.getKey());
+            json.append(':');
+            if (entry.getValue() instanceof List) {
+                json.append('[');
+                boolean first = true;
+                for (final Object item : (List<?>) entry.getValue()) {
+                    if (!first) json.append(',');
+                    appendString(json, item.toString());
+                    first = false;
+                }
+                json.append(']');
+            } else if (entry.getValue() instanceof Number) {
+                json.append(entry.getValue());
+            } else {
+                appendString(json, entry.getValue().toString());
+            }
+        }
+
+        return json.append('}').toString();
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * A single planned operation on a Zanata document.
+     */
+    public static class Step {
+        private final Operation operation;
+        private final String documentId;
+        private final String locale;
+        private final List<String> sourceIds;
+
+        Step(final Operation operation, final String documentId, final String locale, final List<String> sourceIds) {
+            if (documentId == null) {
+                throw new IllegalArgumentException("A plan step must have a document");
+            }
+            this.operation = operation;
+            this.documentId = documentId;
+            this.locale = locale;
+            this.sourceIds = sourceIds == null ? Collections.<String>emptyList() : Collections.unmodifiableList(
+                    new ArrayList<String>(sourceIds));
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        /**
+         * @return The locale of the step, or null if the step applies to the whole document.
+         */
+        public String getLocale() {
+            return locale;
+        }
+
+        /**
+         * @return The documents to copy from for a copy step, sorted oldest first.
+         */
+        public List<String> getSourceIds() {
+            return sourceIds;
+        }
+
+        String toJson() {
+            final Map<String, Object> values = new LinkedHashMap<String, Object>();
+            values.put("type", operation.getType());
+            values.put("document", documentId);
+            values.put("locale", locale);
+            if (!sourceIds.isEmpty()) {
+                values.put("sources", sourceIds);
+            }
+            return WorkPlan.toJson(values);
+        }
+
+        @Override
+        public String toString() {
+            return toJson();
+        }
+    }
+
+    /**
+     * A minimal parser for the single line JSON objects written to a plan, which only hold strings, numbers and arrays of strings.
+     */
+    private static class JsonLineParser {
+        private final String json;
+        private int pos = 0;
+
+        JsonLineParser(final String json) {
+            this.json = json;
+        }
+
+        Map<String, Object> parseObject() {
+            final Map<String, Object> values = new LinkedHashMap<String, Object>();
+            expect('{');
+            if (peek() != '}') {
+                do {
+                    final String key = parseString();
+                    expect(':');
+                    values.put(key, parseValue());
+                } while (consume(','));
+            }
+            expect('}');
+            if (peek() != 0) {
+                throw error("Unexpected data after the end of the object");
+            }
+
+            return values;
+        }
+
+        private Object parseValue() {
+            final char c = peek();
+            if (c == '"') {
+                return parseString();
+            } else if (c == '[') {
+                final List<String> items = new ArrayList<String>();
+                expect('[');
+                if (peek() != ']') {
+                    do {
+                        items.add(parseString());
+                    } while (consume(','));
+                }
+                expect(']');
+                return items;
+            } else if (c == '-' || Character.isDigit(c)) {
+                final int start = pos;
+                while (pos < json.length() && "-+.eE0123456789".indexOf(json.charAt(pos)) != -1) {
+                    pos++;
+                }
+                try {
+                    return Double.parseDouble(json.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number");
+                }
+            } else if (json.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            } else {
+                throw error("Unexpected value");
+            }
+        }
+
+        private String parseString() {
+            expect('"');
+            final StringBuilder value = new StringBuilder();
+            while (pos < json.length()) {
+                final char c = json.charAt(pos++);
+                if (c == '"') {
+                    return value.toString();
+                } else if (c != '\\') {
+                    value.append(c);
+                } else if (pos < json.length()) {
+                    final char escaped = json.charAt(pos++);
+                    switch (escaped) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 'b':
+                            value.append('\b');
+                            break;
+                        case 'f':
+                            value.append('\f');
+                            break;
+                        case 'u':
+                            if (pos + 4 > json.length()) throw error("Invalid unicode escape");
+                            try {
+                                value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            } catch (NumberFormatException e) {
+                                throw error("Invalid unicode escape");
+                            }
+                            pos += 4;
+                            break;
+                        default:
+                            value.append(escaped);
+                    }
+                }
+            }
+
+            throw error("Unterminated string");
+        }
+
+        private char peek() {
+            skipWhitespace();
+            return pos < json.length() ? json.charAt(pos) : 0;
+        }
+
+        private boolean consume(final char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(final char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jboss.pressgang.ccms.wrapper.TranslatedContentSpecWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent, on disk store of the Zanata ids that belong to a translated content spec. Only the Zanata ids of translated
+ * content spec revisions that can't change are stored (ie every topic is fixed to a revision), so that the ids never need to be
+ * revalidated and can be reused across runs.
+ * <p/>
+ * Each entry is stored in its own file using a compact binary format: a magic number, the format version, the number of ids and
+ * then each id. The files are kept in a sub directory for each PressGang server, since translated content spec ids are only unique
+ * within a server.
+ */
+public class ZanataIdStore {
+    private static final Logger log = LoggerFactory.getLogger(ZanataIdStore.class);
+    private static final int MAGIC = 0x5A494453;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".ids";
+
+    /**
+     * The default location of the store, in the users home directory.
+     */
+    public static final String DEFAULT_DIRECTORY = System.getProperty("user.home") + File.separator + ".zanata-tools" + File.separator
+            + "cache";
+
+    private final File directory;
+    private final File serverDirectory;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * @param directory The directory to store the ids in.
+     * @param serverUrl The URL of the PressGang server the translated content specs are from.
+     */
+    public ZanataIdStore(final File directory, final String serverUrl) {
+        this.directory = directory;
+        serverDirectory = new File(directory, getServerKey(serverUrl));
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the stored Zanata ids for a translated content spec.
+     *
+     * @param translatedContentSpec The translated content spec to get the ids for.
+     * @param latestTranslation     Whether or not the ids are for the latest available translation.
+     * @return The stored ids, or null if no ids have been stored for the translated content spec.
+     */
+    public synchronized Set<String> get(final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation) {
+        final File file = getFile(translatedContentSpec, latestTranslation);
+        if (!file.isFile()) {
+            misses++;
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.debug("Ignoring {} as it isn't a valid Zanata id store file", file.getAbsolutePath());
+                misses++;
+                return null;
+            }
+
+            final int count = in.readInt();
+            final Set<String> zanataIds = new LinkedHashSet<String>(count * 2);
+            for (int i = 0; i < count; i++) {
+                zanataIds.add(in.readUTF());
+            }
+
+            hits++;
+            return zanataIds;
+        } catch (IOException e) {
+            log.debug("Failed to read " + file.getAbsolutePath(), e);
+            misses++;
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store the Zanata ids for a translated content spec. The ids are written to a temporary file first, so that a run that dies
+     * part way through writing can't leave a corrupt entry behind.
+     *
+     * @param translatedContentSpec The translated content spec the ids belong to.
+     * @param latestTranslation     Whether or not the ids are for the latest available translation.
+     * @param zanataIds             The Zanata ids to store.
+     */
+    public synchronized void put(final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation,
+            final Set<String> zanataIds) {
+        if (!serverDirectory.isDirectory() && !serverDirectory.mkdirs()) {
+            log.warn("Unable to create the cache directory {}", serverDirectory.getAbsolutePath());
+            return;
+        }
+
+        final File file = getFile(translatedContentSpec, latestTranslation);
+        final File tempFile = new File(serverDirectory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(zanataIds.size());
+            for (final String zanataId : zanataIds) {
+                out.writeUTF(zanataId);
+            }
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(file)) {
+                // Some platforms won't rename over an existing file
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    log.warn("Unable to write the cache file {}", file.getAbsolutePath());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write the cache file " + file.getAbsolutePath(), e);
+        } finally {
+            closeQuietly(out);
+            tempFile.delete();
+        }
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the file that stores the ids for a translated content spec. The translated content spec id and its revision are used, so
+     * any change to the translated content spec will result in a different file.
+     */
+    protected File getFile(final TranslatedContentSpecWrapper translatedContentSpec, boolean latestTranslation) {
+        final String name = "TCS" + translatedContentSpec.getId() + "-" + translatedContentSpec.getRevision() + (latestTranslation ? ""
+                : "-previous") + FILE_EXTENSION;
+        return new File(serverDirectory, name);
+    }
+
+    /**
+     * Get the name of the sub directory that stores the ids for a PressGang server. A hash of the URL is used, so the name is always
+     * a valid file name.
+     *
+     * @param serverUrl The URL of the PressGang server.
+     * @return The name of the servers sub directory.
+     */
+    protected static String getServerKey(final String serverUrl) {
+        // Don't treat the same server with or without a trailing slash as two different servers
+        String url = serverUrl == null ? "" : serverUrl.trim();
+        while (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+            final StringBuilder key = new StringBuilder("server-");
+            for (int i = 0; i < 8; i++) {
+                key.append(String.format("%02x", hash[i]));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void closeQuietly(final java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Do nothing
+            }
+        }
+    }
+}
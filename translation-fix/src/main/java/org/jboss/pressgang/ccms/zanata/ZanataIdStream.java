@@ -0,0 +1,246 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stream of unique Zanata document ids, that hands out the ids as they are discovered instead of once discovery has finished.
+ * <p/>
+ * Discovery is run by producers on background threads, which add the ids they find to a bounded buffer. The ids can be read
+ * from the stream while the producers are still running, so work on the first documents can start straight away, and the
+ * producers wait whenever they get more than the capacity of the buffer ahead of the reader. An id that has already been added to
+ * the stream is skipped, so each document is only handed out once, no matter how many producers find it.
+ * <p/>
+ * The stream should only be read by a single thread.
+ */
+public class ZanataIdStream implements Iterator<String> {
+    private static final Logger log = LoggerFactory.getLogger(ZanataIdStream.class);
+    /**
+     * The default number of ids that can be waiting to be read, before the producers have to wait.
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+    /**
+     * Marks the end of the stream in the buffer. It's compared by identity, so it can never be mistaken for a real id.
+     */
+    private static final String END_OF_STREAM = new String("end of stream");
+
+    /**
+     * Discovers Zanata ids and adds them to a stream.
+     */
+    public static interface Producer {
+        void produce(ZanataIdStream stream);
+    }
+
+    private final BlockingQueue<String> buffer = new LinkedBlockingQueue<String>();
+    private final Semaphore bufferSlots;
+    private final ExecutorService executor;
+    private final Set<String> seenZanataIds = new HashSet<String>();
+    private int duplicates = 0;
+    private int runningProducers = 0;
+    private boolean submitted = false;
+    private volatile boolean failed = false;
+    private volatile boolean closed = false;
+    private String next;
+    private boolean finished = false;
+
+    /**
+     * @param capacity  The number of ids that can be waiting to be read, before the producers have to wait.
+     * @param producers The maximum number of producers to run at the same time.
+     */
+    public ZanataIdStream(final int capacity, final int producers) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the stream must be at least one");
+        }
+        bufferSlots = new Semaphore(capacity);
+        executor = Executors.newFixedThreadPool(Math.max(1, producers), new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "zanata-id-discovery");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Create a stream that is fed by a single producer, and start running the producer.
+     *
+     * @param description A description of what the producer discovers the ids for, to use when logging errors.
+     * @param producer    The producer, which should add the ids it finds to the stream.
+     * @return The stream.
+     */
+    public static ZanataIdStream of(final String description, final Producer producer) {
+        final ZanataIdStream stream = new ZanataIdStream(DEFAULT_CAPACITY, 1);
+        stream.submit(description, producer);
+        stream.finishSubmitting();
+        return stream;
+    }
+
+    /**
+     * Run a producer in the background. If the producer fails then the error is logged and the stream is marked as failed, but
+     * the ids it has already added and the ids from the other producers are still handed out.
+     *
+     * @param description A description of what the producer discovers the ids for, to use when logging errors.
+     * @param producer    The producer, which should add the ids it finds to the stream.
+     */
+    public synchronized void submit(final String description, final Producer producer) {
+        if (submitted) {
+            throw new IllegalStateException("No more producers can be submitted once submitting has finished");
+        }
+
+        runningProducers++;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    producer.produce(ZanataIdStream.this);
+                } catch (RuntimeException e) {
+                    if (!closed) {
+                        log.error("Failed to find the Zanata ids for " + description, e);
+                        failed = true;
+                    }
+                } finally {
+                    producerFinished();
+                }
+            }
+        });
+    }
+
+    /**
+     * Mark that all the producers have been submitted, so the stream ends once they have all finished.
+     */
+    public synchronized void finishSubmitting() {
+        submitted = true;
+        if (runningProducers == 0) {
+            end();
+        }
+    }
+
+    private synchronized void producerFinished() {
+        runningProducers--;
+        if (submitted && runningProducers == 0) {
+            end();
+        }
+    }
+
+    private void end() {
+        executor.shutdown();
+        buffer.add(END_OF_STREAM);
+    }
+
+    /**
+     * Add an id to the stream, waiting for room in the buffer if the reader has fallen behind. Ids that have already been added
+     * are skipped.
+     *
+     * @param zanataId The Zanata document id.
+     * @return True if the id was added, or false if it had already been added.
+     */
+    public boolean add(final String zanataId) {
+        synchronized (seenZanataIds) {
+            if (!seenZanataIds.add(zanataId)) {
+                duplicates++;
+                return false;
+            }
+        }
+
+        try {
+            bufferSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to add " + zanataId + " to the stream", e);
+        }
+        buffer.add(zanataId);
+        return true;
+    }
+
+    /**
+     * Check if there is another id in the stream, waiting for the producers to either find one or finish.
+     *
+     * @return True if there is another id, or false if all the producers have finished and every id has been read.
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        } else if (finished) {
+            return false;
+        }
+
+        final String zanataId;
+        try {
+            zanataId = buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next Zanata id", e);
+        }
+
+        if (zanataId == END_OF_STREAM) {
+            finished = true;
+            return false;
+        }
+
+        bufferSlots.release();
+        next = zanataId;
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final String zanataId = next;
+        next = null;
+        return zanataId;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stop any producers that are still running, when the rest of the ids aren't going to be read.
+     */
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return True if any of the producers failed, so the stream may be missing some ids.
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * @return The number of unique ids that have been added to the stream.
+     */
+    public int getCount() {
+        synchronized (seenZanataIds) {
+            return seenZanataIds.size();
+        }
+    }
+
+    /**
+     * @return The number of ids that were skipped because they had already been added to the stream.
+     */
+    public int getDuplicates() {
+        synchronized (seenZanataIds) {
+            return duplicates;
+        }
+    }
+}
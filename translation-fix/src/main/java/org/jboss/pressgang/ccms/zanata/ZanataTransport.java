@@ -0,0 +1,433 @@
+package org.jboss.pressgang.ccms.zanata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.jboss.resteasy.client.ClientRequest;
+import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zanata.rest.client.ITranslatedDocResource;
+import org.zanata.rest.client.ZanataProxyFactory;
+
+/**
+ * The HTTP transport shared by the PressGang and Zanata REST clients. By default RESTEasy gives every client proxy its own
+ * HTTP client, so connections (and TLS handshakes) aren't reused between proxies. Once installed, every RESTEasy client that
+ * is created without its own executor uses a single pool of keep-alive connections instead, and idle connections are evicted
+ * in the background.
+ * <p/>
+ * The transport also asks for gzip compressed responses, and gzip compresses large PUT bodies. If a server rejects a compressed
+ * body, then later bodies sent to that server are left uncompressed.
+ */
+public class ZanataTransport {
+    private static final Logger log = LoggerFactory.getLogger(ZanataTransport.class);
+
+    /**
+     * The default maximum number of open connections, across all servers.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    /**
+     * The default maximum number of open connections to a single server.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    /**
+     * The default number of seconds to keep an idle connection open for, when the server doesn't say how long to keep it.
+     */
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+    /**
+     * Request bodies smaller than this aren't worth compressing.
+     */
+    private static final int MIN_COMPRESSED_REQUEST_BYTES = 1024;
+    private static final String GZIP = "gzip";
+    private static final String COMPRESSED_REQUEST_ATTRIBUTE = "zanata.compressed-request";
+
+    private static HttpClient httpClient;
+    private static ThreadSafeClientConnManager connectionManager;
+    private static ScheduledExecutorService evictor;
+    private static final Map<ZanataProxyFactory, Map<String, ITranslatedDocResource>> translatedDocResources = new
+            WeakHashMap<ZanataProxyFactory, Map<String, ITranslatedDocResource>>();
+    private static final Set<String> uncompressedRequestHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private static final ThreadLocal<Boolean> compressionRejected = new ThreadLocal<Boolean>();
+    private static volatile boolean compression = true;
+
+    private ZanataTransport() {
+    }
+
+    /**
+     * Install the pooled transport, so that any PressGang or Zanata clients created afterwards share its connections. This
+     * should be called before the clients are created.
+     *
+     * @param maxConnections         The maximum number of open connections, across all servers.
+     * @param maxConnectionsPerRoute The maximum number of open connections to a single server.
+     * @param keepAliveSeconds       How long to keep an idle connection open for, when the server doesn't say how long to keep it.
+     * @param disableSSLCert         Whether the SSL Certificate verification should be disabled.
+     */
+    public static synchronized void install(final int maxConnections, final int maxConnectionsPerRoute, final int keepAliveSeconds,
+            final boolean disableSSLCert) {
+        shutdown();
+
+        final SchemeRegistry schemeRegistry = SchemeRegistryFactory.createDefault();
+        if (disableSSLCert) {
+            try {
+                schemeRegistry.register(new Scheme("https", 443, new SSLSocketFactory(new TrustStrategy() {
+                    @Override
+                    public boolean isTrusted(final X509Certificate[] chain, final String authType) {
+                        return true;
+                    }
+                }, SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER)));
+            } catch (Exception e) {
+                log.error("Unable to disable the SSL Certificate verification", e);
+            }
+        }
+
+        connectionManager = new ThreadSafeClientConnManager(schemeRegistry);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        final DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+        final long keepAliveMillis = keepAliveSeconds * 1000L;
+        client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+                // Use the servers keep alive timeout if it sent one
+                final long duration = super.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAliveMillis;
+            }
+        });
+        client.addRequestInterceptor(new CompressingRequestInterceptor(), 0);
+        client.addResponseInterceptor(new DecompressingResponseInterceptor());
+        httpClient = client;
+
+        // Close any connections that have expired or been idle too long, so the pool doesn't hand out stale connections
+        evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "connection-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final ThreadSafeClientConnManager evictedConnectionManager = connectionManager;
+        final long evictionInterval = Math.max(1, keepAliveSeconds / 2);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictedConnectionManager.closeExpiredConnections();
+                evictedConnectionManager.closeIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS);
+            }
+        }, evictionInterval, evictionInterval, TimeUnit.SECONDS);
+
+        ClientRequest.setDefaultExecutorClass(PooledClientExecutor.class.getName());
+        log.info("HTTP Connections: {} total, {} per server, kept alive for {} seconds", new Object[]{maxConnections,
+                maxConnectionsPerRoute, keepAliveSeconds});
+    }
+
+    /**
+     * Close all the pooled connections. Clients created after this use their own connections, until the transport is installed
+     * again.
+     */
+    public static synchronized void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+        httpClient = null;
+        ClientRequest.setDefaultExecutorClass(ApacheHttpClient4Executor.class.getName());
+    }
+
+    /**
+     * Set whether responses and request bodies should be gzip compressed. Compression is enabled by default.
+     *
+     * @param enabled True if compression should be used, otherwise false.
+     */
+    public static void setCompression(final boolean enabled) {
+        compression = enabled;
+    }
+
+    /**
+     * Check if the last request made by the current thread failed because the server rejected its compressed body. Later requests
+     * to the same server are sent uncompressed, so the request can be retried.
+     *
+     * @return True if the last request should be retried without compression, otherwise false.
+     */
+    public static boolean wasCompressionRejected() {
+        final boolean rejected = Boolean.TRUE.equals(compressionRejected.get());
+        compressionRejected.remove();
+        return rejected;
+    }
+
+    private static String getHost(final HttpContext context) {
+        final HttpHost host = (HttpHost) context.getAttribute(ExecutionContext.HTTP_TARGET_HOST);
+        return host == null ? null : host.toHostString();
+    }
+
+    private static void recordCompression(final long uncompressedBytes, final long compressedBytes) {
+        RunMetrics.getInstance().increment(RunMetrics.COMPRESSED_BYTES, compressedBytes);
+        RunMetrics.getInstance().increment(RunMetrics.COMPRESSION_SAVED_BYTES, Math.max(0, uncompressedBytes - compressedBytes));
+    }
+
+    /**
+     * Get the pooled HTTP client.
+     *
+     * @return The pooled HTTP client.
+     * @throws IllegalStateException Thrown if the transport hasn't been installed.
+     */
+    protected static synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            throw new IllegalStateException("The pooled transport hasn't been installed");
+        }
+        return httpClient;
+    }
+
+    /**
+     * Get the translated document resource proxy for a project version. Proxies are created once for each Zanata interface and
+     * project version, instead of once per call.
+     *
+     * @param zanataInterface The Zanata interface to create the proxy from.
+     * @param project         The Zanata project.
+     * @param version         The Zanata project version.
+     * @return The translated document resource proxy.
+     */
+    public static ITranslatedDocResource getTranslatedDocResource(final ZanataInterface zanataInterface, final String project,
+            final String version) {
+        final ZanataProxyFactory proxyFactory = zanataInterface.getProxyFactory();
+        synchronized (translatedDocResources) {
+            Map<String, ITranslatedDocResource> resources = translatedDocResources.get(proxyFactory);
+            if (resources == null) {
+                resources = new HashMap<String, ITranslatedDocResource>();
+                translatedDocResources.put(proxyFactory, resources);
+            }
+
+            final String key = project + ":" + version;
+            ITranslatedDocResource resource = resources.get(key);
+            if (resource == null) {
+                resource = proxyFactory.getTranslatedDocResource(project, version);
+                resources.put(key, resource);
+            }
+            return resource;
+        }
+    }
+
+    /**
+     * The RESTEasy client executor that uses the pooled HTTP client. RESTEasy creates the default executor by name, so this
+     * needs a public no argument constructor.
+     */
+    public static class PooledClientExecutor extends ApacheHttpClient4Executor {
+        public PooledClientExecutor() {
+            super(getHttpClient());
+        }
+
+        @Override
+        public void close() {
+            // The pooled connections are shared, so they are only closed when the transport is shutdown
+        }
+    }
+
+    /**
+     * Asks for gzip compressed responses, and compresses the body of PUT requests. This runs before the standard request
+     * interceptors, so the content headers are generated from the compressed body.
+     */
+    private static class CompressingRequestInterceptor implements HttpRequestInterceptor {
+        @Override
+        public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+            compressionRejected.remove();
+            if (!compression) return;
+
+            if (!request.containsHeader("Accept-Encoding")) {
+                request.addHeader("Accept-Encoding", GZIP);
+            }
+
+            if (!(request instanceof HttpEntityEnclosingRequest) || !"PUT".equals(request.getRequestLine().getMethod())) return;
+            final HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+            final HttpEntity entity = entityRequest.getEntity();
+            final String host = getHost(context);
+            if (entity == null || !entity.isRepeatable() || entity.getContentEncoding() != null || entity.getContentLength() <
+                    MIN_COMPRESSED_REQUEST_BYTES || host == null || uncompressedRequestHosts.contains(host)) {
+                return;
+            }
+
+            final byte[] content = EntityUtils.toByteArray(entity);
+            final ByteArrayOutputStream compressedContent = new ByteArrayOutputStream(content.length / 4);
+            final GZIPOutputStream gzipStream = new GZIPOutputStream(compressedContent);
+            gzipStream.write(content);
+            gzipStream.close();
+            if (compressedContent.size() >= content.length) return;
+
+            final ByteArrayEntity compressedEntity = new ByteArrayEntity(compressedContent.toByteArray());
+            compressedEntity.setContentType(entity.getContentType());
+            compressedEntity.setContentEncoding(GZIP);
+            entityRequest.setEntity(compressedEntity);
+            context.setAttribute(COMPRESSED_REQUEST_ATTRIBUTE, new long[]{content.length, compressedContent.size()});
+        }
+    }
+
+    /**
+     * Decompresses gzip compressed responses, and stops compressing request bodies for servers that reject them.
+     */
+    private static class DecompressingResponseInterceptor implements HttpResponseInterceptor {
+        @Override
+        public void process(final HttpResponse response, final HttpContext context) throws HttpException, IOException {
+            final HttpEntity entity = response.getEntity();
+            final Header contentEncoding = entity == null ? null : entity.getContentEncoding();
+            if (contentEncoding != null && GZIP.equalsIgnoreCase(contentEncoding.getValue().trim())) {
+                response.setEntity(new GzipDecompressingEntity(entity));
+                response.removeHeaders("Content-Encoding");
+                response.removeHeaders("Content-Length");
+            }
+
+            final long[] compressedRequest = (long[]) context.removeAttribute(COMPRESSED_REQUEST_ATTRIBUTE);
+            if (compressedRequest != null) {
+                if (isCompressionRejection(response)) {
+                    final String host = getHost(context);
+                    if (uncompressedRequestHosts.add(host)) {
+                        log.warn("{} rejected a gzip compressed request, so requests will be sent to it uncompressed", host);
+                    }
+                    compressionRejected.set(true);
+                } else {
+                    recordCompression(compressedRequest[0], compressedRequest[1]);
+                }
+            }
+        }
+
+        /**
+         * Check if the response to a compressed request means the server doesn't accept compressed bodies. A 415 always does,
+         * but a 400 only does if its body names the content encoding, as otherwise it's an ordinary validation error.
+         */
+        private boolean isCompressionRejection(final HttpResponse response) throws IOException {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode == 415) {
+                return true;
+            } else if (statusCode != 400 || response.getEntity() == null) {
+                return false;
+            }
+
+            // Buffer the body, so it can still be read by the caller
+            final HttpEntity entity = new BufferedHttpEntity(response.getEntity());
+            response.setEntity(entity);
+            final String body = new String(EntityUtils.toByteArray(entity), "UTF-8").toLowerCase(Locale.ENGLISH);
+            return body.contains(GZIP) || body.contains("content-encoding") || body.contains("content encoding");
+        }
+    }
+
+    /**
+     * A response entity that decompresses the gzip compressed content of another entity, and records how many bytes the
+     * compression saved once the content is closed.
+     */
+    private static class GzipDecompressingEntity extends HttpEntityWrapper {
+        GzipDecompressingEntity(final HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            final CountingInputStream compressedStream = new CountingInputStream(wrappedEntity.getContent());
+            return new CountingInputStream(new GZIPInputStream(compressedStream)) {
+                private boolean recorded = false;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!recorded) {
+                            recorded = true;
+                            recordCompression(getCount(), compressedStream.getCount());
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}